@@ -0,0 +1,55 @@
+-- Plans for the main repository queries. Run with psql before and after V2 has been applied:
+--   psql "$DATABASE_URL" -f scripts/explain-queries.sql > plans-<label>.txt
+-- The values match the data generated by scripts/explain-seed.sql.
+\set serial '''P152-151'''
+\set search '''%user1234%'''
+
+-- DeviceRepository.getAllDevices (page 1, size 10)
+explain (analyze, buffers)
+select distinct d.* from devices d
+    left join users u on u.id = d.user_id
+    left join passports p on p.id = d.passport_id
+offset 0 rows fetch first 10 rows only;
+
+-- DeviceRepository.findAll(searchBy)
+explain (analyze, buffers)
+select distinct d.* from devices d
+    left join users u on u.id = d.user_id
+    left join passports p on p.id = d.passport_id
+where lower(d.serial_number) like :search or lower(u.full_name) like :search
+   or lower(u.email) like :search or lower(u.phone) like :search
+   or lower(p.name) like :search or lower(p.model) like :search
+offset 0 rows fetch first 10 rows only;
+
+-- UserRepository.getAllUsers
+explain (analyze, buffers)
+select distinct u.* from users u
+    left join devices d on d.user_id = u.id
+    left join passports p on p.id = d.passport_id
+where u.role <> 'ADMIN'
+offset 0 rows fetch first 10 rows only;
+
+-- UserRepository.getByEmail / getByPhone
+explain (analyze, buffers) select * from users where email = 'user1234@mail.com';
+explain (analyze, buffers) select * from users where phone = '0888001234';
+
+-- EAGER User.devices and Device.renovations collections
+explain (analyze, buffers) select * from devices where user_id = 1;
+explain (analyze, buffers) select * from renovations where device_serial_number = :serial;
+
+-- PassportRepository.findByFromSerial
+explain (analyze, buffers) select * from passports where :serial like concat(serial_prefix, '%');
+
+-- PassportRepository.findByFromSerialNumberBetween
+explain (analyze, buffers)
+select * from passports
+where serial_prefix like 'P151' and from_serial_number between 1 and 1000
+   or serial_prefix like 'P151' and to_serial_number between 1 and 1000;
+
+-- devices past warranty
+explain (analyze, buffers) select count(*) from devices where warranty_expiration_date < current_date;
+
+-- FleetCounterRepository.countWarrantiesEnding (daily warranty roll)
+explain (analyze, buffers)
+select count(*) from devices
+where warranty_expiration_date >= current_date - 1 and warranty_expiration_date < current_date;
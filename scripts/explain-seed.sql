@@ -0,0 +1,21 @@
+-- Production-sized data for scripts/explain-queries.sql: 500 passports, 200k users, 600k devices
+-- (70% registered, warranties spread over four years) and 500k renovations. Load into an empty
+-- database migrated to V1 only, then capture, migrate and capture again:
+--   psql "$DATABASE_URL" -f scripts/explain-seed.sql
+insert into passports (name, model, serial_prefix, from_serial_number, to_serial_number, warranty_months)
+select 'Passport ' || i, 'M' || i, 'P' || i, 1, 1000000, 24 from generate_series(1, 500) i;
+insert into users (full_name, address, phone, email, password, role)
+select 'User ' || i, 'Street ' || i, '0888' || lpad(i::text, 6, '0'), 'user' || i || '@mail.com', 'x', 'USER'
+from generate_series(1, 200000) i;
+insert into users (full_name, email, password, role) values ('Admin', 'admin@mail.com', 'x', 'ADMIN');
+insert into devices (serial_number, purchase_date, warranty_expiration_date, user_id, passport_id)
+select 'P' || (i % 500 + 1) || '-' || i, current_date - (i % 1500), current_date - (i % 1500) + 730,
+       case when i % 10 < 7 then (i % 200000) + 1 end, (i % 500) + 1
+from generate_series(1, 600000) i;
+insert into renovations (description, renovation_date, device_serial_number)
+select 'Fix ' || i, current_date - (i % 1000), 'P' || (i % 500 + 1) || '-' || i
+from generate_series(1, 600000, 2) i;
+insert into renovations (description, renovation_date, device_serial_number)
+select 'Fix again ' || i, current_date - (i % 700), 'P' || (i % 500 + 1) || '-' || i
+from generate_series(1, 600000, 3) i;
+analyze;
@@ -0,0 +1,50 @@
+#!/usr/bin/env sh
+# Container entrypoint for the JVM image. Picks the fastest start-up mode that is available:
+#   crac   - restore from a CRaC checkpoint in $CRAC_DIR (requires a CRaC-enabled JDK)
+#   cds    - plain start with the AppCDS archive produced at image build time
+#   plain  - java -jar
+# LAUNCH_MODE forces one of the above, or "checkpoint" to create the CRaC checkpoint.
+set -eu
+
+JAVA_OPTS="${JAVA_OPTS:-}"
+
+APP_DIR="${APP_DIR:-/app/application}"
+APP_JAR="$APP_DIR/device_service.jar"
+CDS_ARCHIVE="${CDS_ARCHIVE:-/app/application.jsa}"
+CRAC_DIR="${CRAC_DIR:-/app/crac}"
+STARTUP_LOG="${STARTUP_LOG:-/app/logs/startup.log}"
+MODE="${LAUNCH_MODE:-auto}"
+
+crac_supported() {
+    java -XX:CRaCCheckpointTo=/tmp/crac-probe -version > /dev/null 2>&1
+}
+
+if [ "$MODE" = "auto" ]; then
+    if crac_supported && [ -f "$CRAC_DIR/cppath" ]; then
+        MODE=crac
+    elif [ -f "$CDS_ARCHIVE" ]; then
+        MODE=cds
+    else
+        MODE=plain
+    fi
+fi
+
+mkdir -p "$(dirname "$STARTUP_LOG")"
+echo "$(date -u +%Y-%m-%dT%H:%M:%S.%3NZ) mode=$MODE" >> "$STARTUP_LOG"
+echo "Launching in $MODE mode"
+
+case "$MODE" in
+    crac)
+        exec java -XX:CRaCRestoreFrom="$CRAC_DIR" $JAVA_OPTS
+        ;;
+    checkpoint)
+        mkdir -p "$CRAC_DIR"
+        exec java -XX:CRaCCheckpointTo="$CRAC_DIR" -Dspring.context.checkpoint=onRefresh $JAVA_OPTS -jar "$APP_JAR"
+        ;;
+    cds)
+        exec java -XX:SharedArchiveFile="$CDS_ARCHIVE" -Xshare:auto $JAVA_OPTS -jar "$APP_JAR"
+        ;;
+    *)
+        exec java $JAVA_OPTS -jar "$APP_JAR"
+        ;;
+esac
@@ -0,0 +1,49 @@
+#!/usr/bin/env bash
+# Measures time-to-first-successful-request and resident memory per image and launch mode.
+#
+# Usage: scripts/startup-benchmark.sh [runs]
+# Env:   VARIANTS    "<docker target>:<LAUNCH_MODE>" pairs to compare
+#                    (default: "jvm:plain jvm:cds native:-"; add "jvm-crac:crac" when a
+#                    checkpoint volume named "crac" has been prepared)
+#        PROBE_PATH  endpoint that must answer 200 (default: /swagger)
+#        OUT         result CSV (default: build/startup-benchmark.csv)
+set -euo pipefail
+
+RUNS="${1:-5}"
+VARIANTS="${VARIANTS:-jvm:plain jvm:cds native:-}"
+PROBE_PATH="${PROBE_PATH:-/swagger}"
+OUT="${OUT:-build/startup-benchmark.csv}"
+PORT=18080
+
+mkdir -p "$(dirname "$OUT")"
+echo "target,mode,run,first_request_ms,rss_kb" > "$OUT"
+
+now_ms() { date +%s%3N; }
+
+for variant in $VARIANTS; do
+    target="${variant%%:*}"
+    mode="${variant#*:}"
+    docker build -q --target "$target" -t "device_backend:$target" . > /dev/null
+
+    run_args=(-d --rm -p "$PORT:8080" -e APP_PROFILE=prod -e LAUNCH_MODE="$mode")
+    if [ "$mode" = "crac" ]; then
+        run_args+=(--cap-add CHECKPOINT_RESTORE --cap-add SYS_PTRACE -v crac:/app/crac)
+    fi
+
+    for run in $(seq 1 "$RUNS"); do
+        start=$(now_ms)
+        cid=$(docker run "${run_args[@]}" "device_backend:$target")
+
+        until curl -fs -o /dev/null "http://localhost:$PORT$PROBE_PATH"; do
+            sleep 0.02
+        done
+        elapsed=$(( $(now_ms) - start ))
+
+        rss=$(docker exec "$cid" sh -c "grep VmRSS /proc/1/status" | awk '{print $2}')
+        echo "$target,$mode,$run,$elapsed,$rss" | tee -a "$OUT"
+
+        docker stop "$cid" > /dev/null
+    done
+done
+
+echo "Results written to $OUT"
@@ -0,0 +1,69 @@
+package bg.tuvarna.devicebackend.benchmarks;
+
+import bg.tuvarna.devicebackend.DeviceBackendApplication;
+import bg.tuvarna.devicebackend.models.dtos.DeviceCreateVO;
+import bg.tuvarna.devicebackend.models.dtos.PassportCreateVO;
+import bg.tuvarna.devicebackend.services.DeviceService;
+import bg.tuvarna.devicebackend.services.PassportService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Anonymous device registration throughput with and without the passport second-level cache.
+ * Run with {@code gradle jmh}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Threads(4)
+public class RegistrationBenchmark {
+    private static final int PASSPORTS = 200;
+
+    @Param({"true", "false"})
+    public boolean cache;
+
+    private ConfigurableApplicationContext context;
+    private DeviceService deviceService;
+    private final AtomicInteger nextSerial = new AtomicInteger();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(DeviceBackendApplication.class)
+                .web(WebApplicationType.NONE)
+                .profiles("test")
+                .properties(
+                        "spring.datasource.url=jdbc:h2:mem:registration-bench-" + cache + ";DB_CLOSE_DELAY=-1",
+                        "spring.jpa.properties.hibernate.cache.use_second_level_cache=" + cache,
+                        "logging.level.root=WARN"
+                )
+                .run();
+
+        PassportService passportService = context.getBean(PassportService.class);
+        for (int i = 0; i < PASSPORTS; i++) {
+            passportService.create(new PassportCreateVO("Passport " + i, "M" + i, prefix(i), 24, 1, Integer.MAX_VALUE));
+        }
+        deviceService = context.getBean(DeviceService.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Object registerAnonymousDevice() {
+        int serial = nextSerial.incrementAndGet();
+        String serialNumber = prefix(serial % PASSPORTS) + serial;
+        return deviceService.addAnonymousDevice(new DeviceCreateVO(serialNumber, LocalDate.now()));
+    }
+
+    private static String prefix(int i) {
+        return "P%03d".formatted(i);
+    }
+}
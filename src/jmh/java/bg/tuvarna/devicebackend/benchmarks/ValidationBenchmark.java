@@ -0,0 +1,109 @@
+package bg.tuvarna.devicebackend.benchmarks;
+
+import bg.tuvarna.devicebackend.models.dtos.PassportCreateVO;
+import bg.tuvarna.devicebackend.models.dtos.UserCreateVO;
+import bg.tuvarna.devicebackend.validators.RecordValidator;
+import bg.tuvarna.devicebackend.validators.ValidationRules;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+import jakarta.validation.ValidatorFactory;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of validating 1,000 import rows: the former {@code String.matches} regexes against the hand-rolled
+ * matchers, and Bean Validation against {@link RecordValidator} on whole create VOs. About a quarter of the
+ * rows are invalid. Run with {@code gradle jmh}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ValidationBenchmark {
+    private static final int ROWS = 1_000;
+    private static final String EMAIL_REGEX = "^[A-Za-z0-9+_.-]+@[A-Za-z0-9.-]+\\.[A-Za-z]{2,}$";
+    private static final String PASSWORD_REGEX = "^(?=.*[0-9])(?=.*[a-z])(?=.*[A-Z])(?=\\S+$).{8,}$";
+
+    private ValidatorFactory validatorFactory;
+    private Validator beanValidator;
+    private RecordValidator<UserCreateVO> userRules;
+    private RecordValidator<PassportCreateVO> passportRules;
+    private UserCreateVO[] users;
+    private PassportCreateVO[] passports;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        validatorFactory = Validation.buildDefaultValidatorFactory();
+        beanValidator = validatorFactory.getValidator();
+        userRules = RecordValidator.of(UserCreateVO.class);
+        passportRules = RecordValidator.of(PassportCreateVO.class);
+
+        users = new UserCreateVO[ROWS];
+        passports = new PassportCreateVO[ROWS];
+        for (int i = 0; i < ROWS; i++) {
+            boolean valid = i % 4 != 0;
+            users[i] = new UserCreateVO(
+                    "User " + i,
+                    valid ? "Secret-pass" + i : "secret pass " + i,
+                    valid ? "user." + i + "@example.com" : "user" + i + "@example",
+                    "+35988800" + i,
+                    null,
+                    null,
+                    null
+            );
+            passports[i] = new PassportCreateVO(
+                    "Passport " + i,
+                    valid ? "M" + i : " ",
+                    "P" + i,
+                    24,
+                    valid ? 0 : -1,
+                    1_000
+            );
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        validatorFactory.close();
+    }
+
+    @Benchmark
+    public int regexFields() {
+        int valid = 0;
+        for (UserCreateVO user : users) {
+            if (user.email().matches(EMAIL_REGEX) && user.password().matches(PASSWORD_REGEX)) {
+                valid++;
+            }
+        }
+        return valid;
+    }
+
+    @Benchmark
+    public int handRolledFields() {
+        int valid = 0;
+        for (UserCreateVO user : users) {
+            if (ValidationRules.isValidEmail(user.email()) && ValidationRules.isValidPassword(user.password())) {
+                valid++;
+            }
+        }
+        return valid;
+    }
+
+    @Benchmark
+    public int beanValidationRows() {
+        int violations = 0;
+        for (int i = 0; i < ROWS; i++) {
+            violations += beanValidator.validate(users[i]).size() + beanValidator.validate(passports[i]).size();
+        }
+        return violations;
+    }
+
+    @Benchmark
+    public int recordValidatorRows() {
+        int violations = 0;
+        for (int i = 0; i < ROWS; i++) {
+            violations += userRules.validate(users[i]).size() + passportRules.validate(passports[i]).size();
+        }
+        return violations;
+    }
+}
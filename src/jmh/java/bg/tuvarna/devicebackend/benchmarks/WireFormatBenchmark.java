@@ -0,0 +1,92 @@
+package bg.tuvarna.devicebackend.benchmarks;
+
+import bg.tuvarna.devicebackend.models.dtos.DeviceVO;
+import bg.tuvarna.devicebackend.models.dtos.PassportVO;
+import bg.tuvarna.devicebackend.models.dtos.RenovationVO;
+import bg.tuvarna.devicebackend.models.dtos.UserVO;
+import bg.tuvarna.devicebackend.models.enums.UserRole;
+import bg.tuvarna.devicebackend.utils.CustomPage;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encode cost of a 500-device listing page per wire format, with and without Blackbird.
+ * The encoded size of each format is printed once per trial. Run with {@code gradle jmh}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class WireFormatBenchmark {
+    private static final int PAGE_SIZE = 500;
+
+    @Param({"json", "cbor", "smile"})
+    public String format;
+
+    @Param({"true", "false"})
+    public boolean blackbird;
+
+    private ObjectMapper objectMapper;
+    private CustomPage<DeviceVO> page;
+    private byte[] encoded;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        Jackson2ObjectMapperBuilder builder = Jackson2ObjectMapperBuilder.json();
+        switch (format) {
+            case "cbor" -> builder.factory(new CBORFactory());
+            case "smile" -> builder.factory(new SmileFactory());
+            default -> {
+            }
+        }
+        if (blackbird) {
+            builder.modulesToInstall(new BlackbirdModule());
+        }
+        objectMapper = builder.build();
+
+        page = samplePage();
+        encoded = objectMapper.writeValueAsBytes(page);
+        System.out.printf("%n%s (blackbird=%s): %d bytes per page of %d devices%n", format, blackbird, encoded.length, PAGE_SIZE);
+    }
+
+    @Benchmark
+    public byte[] encode() throws Exception {
+        return objectMapper.writeValueAsBytes(page);
+    }
+
+    @Benchmark
+    public Object decode() throws Exception {
+        return objectMapper.readTree(encoded);
+    }
+
+    private static CustomPage<DeviceVO> samplePage() {
+        PassportVO passport = new PassportVO(1L, "Washing machine", "WM-2000", "WM", 1, 1_000_000, 24);
+        List<DeviceVO> devices = new ArrayList<>(PAGE_SIZE);
+
+        for (int i = 0; i < PAGE_SIZE; i++) {
+            LocalDate purchaseDate = LocalDate.of(2024, 1, 1).plusDays(i);
+            UserVO user = new UserVO((long) i, "User " + i, "Street " + i, "+359888" + i, "user" + i + "@mail.com", UserRole.USER, null);
+            List<RenovationVO> renovations = List.of(
+                    new RenovationVO((long) i * 2, "Replaced pump", purchaseDate.plusMonths(6), null),
+                    new RenovationVO((long) i * 2 + 1, "Replaced door seal", purchaseDate.plusMonths(9), null)
+            );
+            devices.add(new DeviceVO("WM" + i, purchaseDate, purchaseDate.plusMonths(36), "comment " + i, user, passport, renovations));
+        }
+
+        CustomPage<DeviceVO> page = new CustomPage<>();
+        page.setCurrentPage(1);
+        page.setTotalPages(20);
+        page.setSize(PAGE_SIZE);
+        page.setTotalItems(PAGE_SIZE * 20L);
+        page.setItems(devices);
+        return page;
+    }
+}
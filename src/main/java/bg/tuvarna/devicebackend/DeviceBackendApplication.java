@@ -1,9 +1,12 @@
 package bg.tuvarna.devicebackend;
 
+import bg.tuvarna.devicebackend.config.NativeRuntimeHints;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.context.annotation.ImportRuntimeHints;
 
 @SpringBootApplication
+@ImportRuntimeHints(NativeRuntimeHints.class)
 public class DeviceBackendApplication {
 
     public static void main(String[] args) {
@@ -7,6 +7,7 @@ import bg.tuvarna.devicebackend.models.dtos.AuthResponseDTO;
 import bg.tuvarna.devicebackend.models.dtos.UserLoginDTO;
 import bg.tuvarna.devicebackend.models.dtos.UserVO;
 import bg.tuvarna.devicebackend.models.entities.User;
+import bg.tuvarna.devicebackend.services.RefreshTokenService;
 import bg.tuvarna.devicebackend.services.UserService;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.gson.Gson;
@@ -35,6 +36,7 @@ public class AuthFilter {
     private final AuthenticationManager manager;
     private final UserService userService;
     private final JwtService jwtService;
+    private final RefreshTokenService refreshTokenService;
     @Autowired
     private ObjectMapper objectMapper;
 
@@ -52,8 +54,9 @@ public class AuthFilter {
         if (authentication.isAuthenticated()) {
             User principal = (User) authentication.getPrincipal();
             String token = jwtService.generateToken(userService.getUserById(principal.getId()));
+            String refreshToken = refreshTokenService.issue(principal.getId());
             UserVO userVO = new UserVO(principal);
-            AuthResponseDTO responseDTO = new AuthResponseDTO(token, userVO);
+            AuthResponseDTO responseDTO = new AuthResponseDTO(token, refreshToken, userVO);
             httpServletResponse.setStatus(HttpServletResponse.SC_OK);
             httpServletResponse.setContentType("application/json");
             try {
@@ -0,0 +1,38 @@
+package bg.tuvarna.devicebackend.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.jdbc.support.MetaDataAccessException;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.DatabaseMetaData;
+
+/**
+ * The database product behind the datasource, read once at startup, for the few statements that differ
+ * between PostgreSQL and the H2 database of the tests. Anything that cannot be identified is treated as H2.
+ */
+@Component
+public class DatabaseDialect {
+    private static final Logger logger = LoggerFactory.getLogger(DatabaseDialect.class);
+
+    private final boolean postgres;
+
+    public DatabaseDialect(DataSource dataSource) {
+        this.postgres = "PostgreSQL".equals(productName(dataSource));
+    }
+
+    public boolean isPostgres() {
+        return postgres;
+    }
+
+    private static String productName(DataSource dataSource) {
+        try {
+            return JdbcUtils.extractDatabaseMetaData(dataSource, DatabaseMetaData::getDatabaseProductName);
+        } catch (MetaDataAccessException e) {
+            logger.warn("Could not identify the database, assuming H2", e);
+            return null;
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package bg.tuvarna.devicebackend.config;
+
+import io.jsonwebtoken.JwtParser;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.security.Keys;
+
+import javax.crypto.SecretKey;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.GeneralSecurityException;
+import java.security.Key;
+import java.security.KeyStore;
+import java.time.Instant;
+import java.util.*;
+
+/**
+ * Immutable set of signing keys with a pre-built parser per key id. Keys are ordered by activation time: tokens
+ * are signed with the newest active key, and a key is dropped once its successor has been active for a full
+ * token lifetime plus the rotation overlap, i.e. once no token it signed can still be valid.
+ */
+public final class JwtKeyRing {
+    public record SigningKey(String id, SecretKey key, Instant activatesAt) {
+    }
+
+    private final List<SigningKey> keys;
+    private final Map<String, JwtParser> parsers;
+    private final boolean ephemeral;
+
+    private JwtKeyRing(List<SigningKey> keys, boolean ephemeral) {
+        this.keys = List.copyOf(keys);
+        this.ephemeral = ephemeral;
+
+        Map<String, JwtParser> parsers = new HashMap<>();
+        for (SigningKey key : keys) {
+            parsers.put(key.id(), Jwts.parserBuilder().setSigningKey(key.key()).build());
+        }
+        this.parsers = Map.copyOf(parsers);
+    }
+
+    /**
+     * A single random key, for instances without configured keys.
+     */
+    public static JwtKeyRing ephemeral() {
+        SigningKey key = new SigningKey(UUID.randomUUID().toString(),
+                Keys.secretKeyFor(SignatureAlgorithm.HS256), Instant.EPOCH);
+        return new JwtKeyRing(List.of(key), true);
+    }
+
+    /**
+     * Reads the configured and keystore keys and drops those retired at {@code now}.
+     *
+     * @return the ring, or {@code null} when no keys are configured
+     */
+    public static JwtKeyRing load(JwtProperties properties, Instant now) throws GeneralSecurityException, IOException {
+        List<SigningKey> keys = new ArrayList<>();
+        for (JwtProperties.Key key : properties.keys()) {
+            if (key.id() == null || key.id().isBlank() || key.secret() == null || key.secret().isBlank()) {
+                throw new IllegalStateException("JWT keys need an id and a secret");
+            }
+            SecretKey secret = Keys.hmacShaKeyFor(Base64.getDecoder().decode(key.secret()));
+            keys.add(new SigningKey(key.id(), secret,
+                    key.activatesAt() != null ? key.activatesAt() : Instant.EPOCH));
+        }
+        keys.addAll(readKeystore(properties.keystore()));
+
+        if (keys.isEmpty()) {
+            return null;
+        }
+
+        Set<String> ids = new HashSet<>();
+        for (SigningKey key : keys) {
+            if (!ids.add(key.id())) {
+                throw new IllegalStateException("Duplicate JWT key id " + key.id());
+            }
+        }
+
+        keys.sort(Comparator.comparing(SigningKey::activatesAt).thenComparing(SigningKey::id));
+
+        Instant retiredBefore = now.minus(properties.tokenLifetime()).minus(properties.rotationOverlap());
+        List<SigningKey> live = new ArrayList<>(keys.size());
+        for (int i = 0; i < keys.size(); i++) {
+            boolean replaced = i + 1 < keys.size() && !keys.get(i + 1).activatesAt().isAfter(retiredBefore);
+            if (!replaced) {
+                live.add(keys.get(i));
+            }
+        }
+        return new JwtKeyRing(live, false);
+    }
+
+    private static List<SigningKey> readKeystore(JwtProperties.Keystore keystore)
+            throws GeneralSecurityException, IOException {
+        if (keystore.path() == null || keystore.path().isBlank()) {
+            return List.of();
+        }
+
+        char[] password = keystore.password() != null ? keystore.password().toCharArray() : new char[0];
+        KeyStore store = KeyStore.getInstance(keystore.type());
+        try (InputStream in = Files.newInputStream(Path.of(keystore.path()))) {
+            store.load(in, password);
+        }
+
+        List<SigningKey> keys = new ArrayList<>();
+        for (String alias : Collections.list(store.aliases())) {
+            if (!store.isKeyEntry(alias)) {
+                continue;
+            }
+            Key key = store.getKey(alias, password);
+            if (key instanceof SecretKey secret) {
+                Date created = store.getCreationDate(alias);
+                Instant activatesAt = created != null
+                        ? created.toInstant().plus(keystore.activationDelay())
+                        : Instant.EPOCH;
+                keys.add(new SigningKey(alias, Keys.hmacShaKeyFor(secret.getEncoded()), activatesAt));
+            }
+        }
+        return keys;
+    }
+
+    /**
+     * The newest key active at {@code now}; the earliest one if none is active yet.
+     */
+    public SigningKey signingKey(Instant now) {
+        SigningKey signing = keys.get(0);
+        for (SigningKey key : keys) {
+            if (key.activatesAt().isAfter(now)) {
+                break;
+            }
+            signing = key;
+        }
+        return signing;
+    }
+
+    /**
+     * @return the parser verifying tokens with key id {@code kid}, or {@code null} for unknown or retired keys
+     */
+    public JwtParser parser(String kid) {
+        return kid != null ? parsers.get(kid) : null;
+    }
+
+    public List<String> keyIds() {
+        return keys.stream().map(SigningKey::id).toList();
+    }
+
+    public boolean isEphemeral() {
+        return ephemeral;
+    }
+}
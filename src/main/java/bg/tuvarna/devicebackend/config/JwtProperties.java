@@ -0,0 +1,50 @@
+package bg.tuvarna.devicebackend.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Access token signing keys shared by every instance. Keys come from {@code keys} and, when {@code keystore.path}
+ * is set, from the secret key entries of a keystore (the alias is the key id). With neither, each instance
+ * generates its own key, which only works for a single instance. The keystore is re-read at runtime; {@code keys}
+ * is bound once, so changes to it take effect on restart.
+ *
+ * @param tokenLifetime   how long an issued token is valid
+ * @param rotationOverlap extra time a replaced key is still accepted, on top of {@code tokenLifetime}
+ */
+@ConfigurationProperties(prefix = "app.jwt")
+public record JwtProperties(
+        List<Key> keys,
+        Keystore keystore,
+        Duration tokenLifetime,
+        Duration rotationOverlap
+) {
+    public JwtProperties {
+        keys = keys != null ? keys : List.of();
+        keystore = keystore != null ? keystore : new Keystore(null, null, null, null);
+        tokenLifetime = tokenLifetime != null ? tokenLifetime : Duration.ofHours(2);
+        rotationOverlap = rotationOverlap != null ? rotationOverlap : Duration.ofMinutes(5);
+    }
+
+    /**
+     * @param id          key id, sent as the {@code kid} token header
+     * @param secret      Base64 encoded HMAC secret, at least 256 bits
+     * @param activatesAt when instances start signing with this key; {@code null} for immediately
+     */
+    public record Key(String id, String secret, Instant activatesAt) {
+    }
+
+    /**
+     * @param activationDelay time between an entry's creation date and its use for signing, so every instance
+     *                        has reloaded the keystore before the first token signed with it arrives
+     */
+    public record Keystore(String path, String password, String type, Duration activationDelay) {
+        public Keystore {
+            type = type != null ? type : "PKCS12";
+            activationDelay = activationDelay != null ? activationDelay : Duration.ofMinutes(10);
+        }
+    }
+}
@@ -3,24 +3,48 @@ package bg.tuvarna.devicebackend.config;
 import bg.tuvarna.devicebackend.controllers.exceptions.CustomException;
 import bg.tuvarna.devicebackend.controllers.exceptions.ErrorCode;
 import bg.tuvarna.devicebackend.models.entities.User;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import io.jsonwebtoken.*;
-import io.jsonwebtoken.security.Keys;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.context.Lifecycle;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
-import javax.crypto.SecretKey;
+import java.io.IOException;
+import java.security.GeneralSecurityException;
 import java.time.Instant;
-import java.time.temporal.ChronoUnit;
+import java.util.Base64;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.function.Function;
 
+/**
+ * Issues and verifies access tokens.
+ * Tokens carry the id of their signing key in the {@code kid} header and are verified with the pre-built parser
+ * of that key, so any instance sharing the {@link JwtProperties} keys accepts them. The key ring is reloaded
+ * every {@code app.jwt.reload-interval}, which picks up keystore entries added for rotation; the
+ * {@code app.jwt.keys} list is bound once, so keys added there need a restart.
+ * <p>
+ * Without configured keys a random key is generated, as for a single instance. Implements {@link Lifecycle}
+ * so that a CRaC checkpoint/restore cycle (which stops and restarts all lifecycle beans) then replaces it:
+ * every instance restored from the same checkpoint image would otherwise share the key that was generated
+ * during the training run. Configured keys are reloaded from the keystore instead.
+ */
 @Service
-public class JwtService {
+public class JwtService implements Lifecycle {
     private static final Logger logger = LoggerFactory.getLogger(JwtService.class);
-    private final SecretKey key = Keys.secretKeyFor(SignatureAlgorithm.HS256);
+    private static final ObjectMapper HEADER_READER = new ObjectMapper();
+
+    private final JwtProperties properties;
+    private volatile JwtKeyRing keyRing;
+    private volatile boolean running = true;
+
+    public JwtService(JwtProperties properties) {
+        this.properties = properties;
+        this.keyRing = loadKeyRing();
+    }
 
     public String extractId(String token) {
         return extractClaim(token, Claims::getSubject);
@@ -36,13 +60,20 @@ public class JwtService {
     }
 
     public String generateToken(Map<String, Object> extraClaims, User user) {
+        return generateToken(extraClaims, user.getId());
+    }
+
+    public String generateToken(Map<String, Object> extraClaims, Long userId) {
+        Instant now = Instant.now();
+        JwtKeyRing.SigningKey signingKey = keyRing.signingKey(now);
         return Jwts
                 .builder()
+                .setHeaderParam(JwsHeader.KEY_ID, signingKey.id())
                 .setClaims(extraClaims)
-                .setSubject(user.getId().toString())
-                .setIssuedAt(new Date())
-                .setExpiration(Date.from(Instant.now().plus(2L, ChronoUnit.HOURS)))//1 hour
-                .signWith(key)
+                .setSubject(userId.toString())
+                .setIssuedAt(Date.from(now))
+                .setExpiration(Date.from(now.plus(properties.tokenLifetime())))
+                .signWith(signingKey.key())
                 .compact();
     }
 
@@ -55,6 +86,43 @@ public class JwtService {
         return extractExpiration(token) == null;
     }
 
+    /**
+     * Re-reads the keystore, adding new entries, and drops retired keys. The configured key list is the one
+     * bound at startup. On failure the current keys stay in use.
+     */
+    @Scheduled(fixedDelayString = "${app.jwt.reload-interval:PT1M}", initialDelayString = "${app.jwt.reload-interval:PT1M}")
+    public void reloadKeys() {
+        if (keyRing.isEphemeral()) {
+            return;
+        }
+        try {
+            JwtKeyRing reloaded = JwtKeyRing.load(properties, Instant.now());
+            if (reloaded != null) {
+                if (!reloaded.keyIds().equals(keyRing.keyIds())) {
+                    logger.info("JWT signing keys changed to {}", reloaded.keyIds());
+                }
+                keyRing = reloaded;
+            }
+        } catch (GeneralSecurityException | IOException | RuntimeException e) {
+            logger.error("Could not reload JWT signing keys, keeping {}", keyRing.keyIds(), e);
+        }
+    }
+
+    private JwtKeyRing loadKeyRing() {
+        try {
+            JwtKeyRing loaded = JwtKeyRing.load(properties, Instant.now());
+            if (loaded != null) {
+                logger.info("Loaded JWT signing keys {}", loaded.keyIds());
+                return loaded;
+            }
+        } catch (GeneralSecurityException | IOException e) {
+            throw new IllegalStateException("Could not load JWT signing keys", e);
+        }
+
+        logger.warn("No JWT signing keys configured; tokens are only accepted by this instance until it restarts");
+        return JwtKeyRing.ephemeral();
+    }
+
     private Date extractExpiration(String token) {
         try {
             return extractClaim(token, Claims::getExpiration);
@@ -65,10 +133,11 @@ public class JwtService {
 
     private Claims extractAllClaims(String token) {
         try {
-            return Jwts
-                    .parserBuilder()
-                    .setSigningKey(key)
-                    .build()
+            JwtParser parser = keyRing.parser(keyId(token));
+            if (parser == null) {
+                throw new MalformedJwtException("Unknown signing key");
+            }
+            return parser
                     .parseClaimsJws(token)
                     .getBody();
         } catch (MalformedJwtException e) {
@@ -76,4 +145,40 @@ public class JwtService {
             throw new CustomException("Not valid JWT token", ErrorCode.Failed);
         }
     }
-}
\ No newline at end of file
+
+    private static String keyId(String token) {
+        int headerEnd = token.indexOf('.');
+        if (headerEnd <= 0) {
+            throw new MalformedJwtException("Missing header");
+        }
+        try {
+            byte[] header = Base64.getUrlDecoder().decode(token.substring(0, headerEnd));
+            return HEADER_READER.readTree(header).path(JwsHeader.KEY_ID).asText(null);
+        } catch (IllegalArgumentException | IOException e) {
+            throw new MalformedJwtException("Unreadable header", e);
+        }
+    }
+
+    @Override
+    public void start() {
+        if (!running) {
+            if (keyRing.isEphemeral()) {
+                keyRing = JwtKeyRing.ephemeral();
+                logger.info("Signing key regenerated after restore");
+            } else {
+                reloadKeys();
+            }
+        }
+        running = true;
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+}
@@ -0,0 +1,116 @@
+package bg.tuvarna.devicebackend.config;
+
+import bg.tuvarna.devicebackend.controllers.exceptions.ErrorResponse;
+import bg.tuvarna.devicebackend.models.dtos.*;
+import bg.tuvarna.devicebackend.models.entities.Device;
+import bg.tuvarna.devicebackend.models.entities.Passport;
+import bg.tuvarna.devicebackend.models.entities.Renovation;
+import bg.tuvarna.devicebackend.models.entities.User;
+import bg.tuvarna.devicebackend.models.events.*;
+import bg.tuvarna.devicebackend.utils.CustomPage;
+import org.springframework.aot.hint.BindingReflectionHintsRegistrar;
+import org.springframework.aot.hint.MemberCategory;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.RuntimeHintsRegistrar;
+import org.springframework.aot.hint.TypeReference;
+
+import java.util.List;
+
+/**
+ * Reflection and resource hints for the GraalVM native image.
+ * Spring AOT covers the bean graph, but not the types that are only reached through
+ * Jackson/Gson binding or that jjwt loads by class name at runtime.
+ */
+public class NativeRuntimeHints implements RuntimeHintsRegistrar {
+    private static final List<Class<?>> ENTITIES = List.of(
+            Device.class,
+            Passport.class,
+            Renovation.class,
+            User.class
+    );
+
+    private static final List<Class<?>> BOUND_TYPES = List.of(
+            AuthResponseDTO.class,
+            AvailabilityVO.class,
+            ChangePasswordVO.class,
+            DeviceCreateVO.class,
+            DeviceUpdateVO.class,
+            DeviceVO.class,
+            FleetStatsVO.class,
+            PassportCreateVO.class,
+            PassportForSerialNumberVO.class,
+            PassportUpdateVO.class,
+            PassportVO.class,
+            RefreshTokenVO.class,
+            RenovationBatchItemVO.class,
+            RenovationBatchResultVO.class,
+            RenovationCreateVO.class,
+            RenovationListingVO.class,
+            RenovationStatsVO.class,
+            RenovationVO.class,
+            UserCreateVO.class,
+            UserListing.class,
+            UserLoginDTO.class,
+            UserUpdateVO.class,
+            UserVO.class,
+            CustomPage.class,
+            DeviceChangesVO.class,
+            SlowQueryVO.class,
+            SuggestionVO.class,
+            ArchivedDeviceVO.class,
+            ArchivedRenovationVO.class,
+            ErrorResponse.class,
+            DeviceRegisteredEvent.class,
+            DeviceUpdatedEvent.class,
+            DeviceDeletedEvent.class,
+            DeviceArchivedEvent.class,
+            RenovationAddedEvent.class,
+            RenovationsAddedEvent.class,
+            UserRegisteredEvent.class,
+            UserUpdatedEvent.class
+    );
+
+    private static final List<String> JJWT_TYPES = List.of(
+            "io.jsonwebtoken.impl.DefaultJwtBuilder",
+            "io.jsonwebtoken.impl.DefaultJwtParser",
+            "io.jsonwebtoken.impl.DefaultJwtParserBuilder",
+            "io.jsonwebtoken.impl.DefaultClaims",
+            "io.jsonwebtoken.impl.DefaultHeader",
+            "io.jsonwebtoken.impl.DefaultJwsHeader",
+            "io.jsonwebtoken.impl.compression.DefaultCompressionCodecResolver",
+            "io.jsonwebtoken.impl.io.RuntimeClasspathSerializerLocator",
+            "io.jsonwebtoken.impl.io.RuntimeClasspathDeserializerLocator",
+            "io.jsonwebtoken.jackson.io.JacksonSerializer",
+            "io.jsonwebtoken.jackson.io.JacksonDeserializer"
+    );
+
+    @Override
+    public void registerHints(RuntimeHints hints, ClassLoader classLoader) {
+        for (Class<?> entity : ENTITIES) {
+            hints.reflection().registerType(entity,
+                    MemberCategory.DECLARED_FIELDS,
+                    MemberCategory.INVOKE_DECLARED_CONSTRUCTORS,
+                    MemberCategory.INVOKE_PUBLIC_METHODS);
+        }
+
+        BindingReflectionHintsRegistrar bindingRegistrar = new BindingReflectionHintsRegistrar();
+        bindingRegistrar.registerReflectionHints(hints.reflection(), ENTITIES.toArray(new Class<?>[0]));
+        bindingRegistrar.registerReflectionHints(hints.reflection(), BOUND_TYPES.toArray(new Class<?>[0]));
+
+        // Gson reads the login body field by field, bypassing the Jackson binding hints.
+        hints.reflection().registerType(UserLoginDTO.class,
+                MemberCategory.DECLARED_FIELDS,
+                MemberCategory.INVOKE_DECLARED_CONSTRUCTORS);
+
+        for (String type : JJWT_TYPES) {
+            hints.reflection().registerType(TypeReference.of(type),
+                    MemberCategory.INVOKE_DECLARED_CONSTRUCTORS,
+                    MemberCategory.INVOKE_PUBLIC_METHODS);
+        }
+        hints.resources().registerPattern("META-INF/services/io.jsonwebtoken.*");
+
+        hints.resources().registerPattern("META-INF/resources/webjars/swagger-ui/*");
+
+        hints.resources().registerPattern("ehcache.xml");
+    }
+}
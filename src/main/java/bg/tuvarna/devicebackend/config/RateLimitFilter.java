@@ -0,0 +1,185 @@
+package bg.tuvarna.devicebackend.config;
+
+import bg.tuvarna.devicebackend.controllers.exceptions.CustomException;
+import bg.tuvarna.devicebackend.controllers.exceptions.ErrorCode;
+import bg.tuvarna.devicebackend.controllers.exceptions.ErrorResponse;
+import bg.tuvarna.devicebackend.utils.TokenBucketRateLimiter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletRequest;
+import jakarta.servlet.ServletRequestWrapper;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.NonNull;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.PathContainer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.web.util.matcher.IpAddressMatcher;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Throttles the public endpoints per client with the limits from {@link RateLimitProperties},
+ * before any database or BCrypt work happens. Every limited response carries
+ * {@code RateLimit-Limit}, {@code RateLimit-Remaining} and {@code RateLimit-Reset};
+ * rejected requests get {@code 429} with {@code Retry-After}.
+ */
+@Component
+public class RateLimitFilter extends OncePerRequestFilter {
+    private static final int STRIPES = 64;
+
+    private record LimitedRoute(String name, PathPattern pattern, long capacity, Duration period, Counter rejected) {
+    }
+
+    private final boolean enabled;
+    private final String keyHeader;
+    private final List<IpAddressMatcher> trustedProxies;
+    private final List<LimitedRoute> routes;
+    private final TokenBucketRateLimiter limiter;
+    private final ObjectMapper objectMapper;
+
+    public RateLimitFilter(RateLimitProperties properties, ObjectMapper objectMapper, MeterRegistry meterRegistry) {
+        this.enabled = properties.enabled();
+        this.keyHeader = properties.keyHeader();
+        this.trustedProxies = properties.trustedProxies().stream().map(IpAddressMatcher::new).toList();
+        this.objectMapper = objectMapper;
+        this.limiter = new TokenBucketRateLimiter(STRIPES, properties.maxBuckets(), System::nanoTime);
+        this.routes = properties.routes().entrySet().stream()
+                .map(route -> new LimitedRoute(
+                        route.getKey(),
+                        PathPatternParser.defaultInstance.parse(route.getValue().pattern()),
+                        route.getValue().capacity(),
+                        route.getValue().period(),
+                        Counter.builder("rate.limit.rejected").tag("route", route.getKey()).register(meterRegistry)
+                ))
+                .toList();
+
+        Gauge.builder("rate.limit.buckets", limiter, TokenBucketRateLimiter::size)
+                .description("Client buckets currently held in memory")
+                .register(meterRegistry);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(@NonNull HttpServletRequest request) {
+        return !enabled || routes.isEmpty();
+    }
+
+    @Override
+    protected void doFilterInternal(
+            @NonNull HttpServletRequest request,
+            @NonNull HttpServletResponse response,
+            @NonNull FilterChain filterChain
+    ) throws ServletException, IOException {
+        LimitedRoute route = findRoute(request);
+        if (route == null) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        TokenBucketRateLimiter.Decision decision = limiter.tryAcquire(
+                route.name() + '|' + clientKey(request), route.capacity(), route.period()
+        );
+
+        response.setHeader("RateLimit-Limit", String.valueOf(decision.limit()));
+        response.setHeader("RateLimit-Remaining", String.valueOf(decision.remaining()));
+        response.setHeader("RateLimit-Reset", String.valueOf(decision.resetSeconds()));
+
+        if (decision.allowed()) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        route.rejected().increment();
+        response.setHeader("Retry-After", String.valueOf(decision.retryAfterSeconds()));
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(), new ErrorResponse(
+                new CustomException("Too many requests", ErrorCode.RateLimited, String.valueOf(decision.retryAfterSeconds()))
+        ));
+    }
+
+    @Scheduled(fixedDelayString = "${app.rate-limit.sweep-interval:PT1M}", initialDelayString = "${app.rate-limit.sweep-interval:PT1M}")
+    public void evictIdleBuckets() {
+        limiter.evictIdle();
+    }
+
+    private LimitedRoute findRoute(HttpServletRequest request) {
+        PathContainer path = PathContainer.parsePath(request.getRequestURI().substring(request.getContextPath().length()));
+        for (LimitedRoute route : routes) {
+            if (route.pattern().matches(path)) {
+                return route;
+            }
+        }
+        return null;
+    }
+
+    private String clientKey(HttpServletRequest request) {
+        if (keyHeader != null) {
+            String key = request.getHeader(keyHeader);
+            if (key != null && !key.isBlank()) {
+                return "key:" + key;
+            }
+        }
+        return "ip:" + clientAddress(request);
+    }
+
+    /**
+     * The address of the connection, or, when that is a trusted proxy, the last {@code X-Forwarded-For} hop
+     * that is not one. The forwarded-header support of the framework has already replaced
+     * {@link HttpServletRequest#getRemoteAddr()} with whatever the client sent, so the original request is read.
+     */
+    private String clientAddress(HttpServletRequest request) {
+        ServletRequest original = request;
+        while (original instanceof ServletRequestWrapper wrapper) {
+            original = wrapper.getRequest();
+        }
+
+        String address = original.getRemoteAddr();
+        if (!isTrustedProxy(address) || !(original instanceof HttpServletRequest http)) {
+            return address;
+        }
+
+        List<String> hops = new ArrayList<>();
+        for (String header : Collections.list(http.getHeaders("X-Forwarded-For"))) {
+            for (String hop : header.split(",")) {
+                if (!hop.isBlank()) {
+                    hops.add(hop.strip());
+                }
+            }
+        }
+        for (int i = hops.size() - 1; i >= 0; i--) {
+            address = hops.get(i);
+            if (!isTrustedProxy(address)) {
+                break;
+            }
+        }
+        return address;
+    }
+
+    private boolean isTrustedProxy(String address) {
+        for (IpAddressMatcher proxy : trustedProxies) {
+            try {
+                if (proxy.matches(address)) {
+                    return true;
+                }
+            } catch (IllegalArgumentException e) {
+                // not an address, e.g. a spoofed hop
+                return false;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,39 @@
+package bg.tuvarna.devicebackend.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Per-route request limits for the public endpoints. Clients are keyed by {@code keyHeader}
+ * when the request carries it, otherwise by the address of the connection. {@code X-Forwarded-For} is only
+ * followed when the connection comes from one of the {@code trustedProxies} (CIDR blocks or addresses).
+ */
+@ConfigurationProperties(prefix = "app.rate-limit")
+public record RateLimitProperties(
+        boolean enabled,
+        String keyHeader,
+        int maxBuckets,
+        List<String> trustedProxies,
+        Map<String, Route> routes
+) {
+    public RateLimitProperties {
+        maxBuckets = maxBuckets > 0 ? maxBuckets : 200_000;
+        trustedProxies = trustedProxies != null ? trustedProxies : List.of();
+        routes = routes != null ? routes : Map.of();
+    }
+
+    /**
+     * @param pattern  path pattern, e.g. {@code /api/v1/devices/exists/**}
+     * @param capacity burst size, also the number of requests allowed per {@code period}
+     */
+    public record Route(String pattern, long capacity, Duration period) {
+        public Route {
+            if (capacity <= 0 || period == null || period.isNegative() || period.isZero()) {
+                throw new IllegalArgumentException("Rate limit routes need a positive capacity and period");
+            }
+        }
+    }
+}
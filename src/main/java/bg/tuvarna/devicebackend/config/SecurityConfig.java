@@ -1,8 +1,10 @@
 package bg.tuvarna.devicebackend.config;
 
 import bg.tuvarna.devicebackend.models.enums.UserRole;
+import jakarta.servlet.DispatcherType;
 import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.HttpStatus;
@@ -19,24 +21,29 @@ import java.util.List;
 
 @Configuration
 @EnableWebSecurity
+@EnableConfigurationProperties({RateLimitProperties.class, JwtProperties.class})
 @RequiredArgsConstructor
 public class SecurityConfig {
     private final JwtAuthenticationFilter jwtAuthFilter;
     private final ApplicationConfig applicationConfig;
     private final AuthenticationFilter authenticationFilter;
+    private final RateLimitFilter rateLimitFilter;
 
     @Bean
     public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
         http.csrf(AbstractHttpConfigurer::disable);
         http.cors(cors -> cors.configurationSource(SecurityConfig::getCorsConfiguration));
         http.authorizeHttpRequests(auth -> {
-            auth.requestMatchers("/api/v1/passports/getBySerialId/*", "/api/v1/users/login", "/api/v1/users/registration", "/swagger-ui", "/swagger", "/swagger-ui/**", "/swagger/**", "/login/**").permitAll();
+            // Async dispatches complete a response whose request was already authorized (event streams).
+            auth.dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll();
+            auth.requestMatchers("/api/v1/passports/getBySerialId/*", "/api/v1/users/login", "/api/v1/users/registration", "/api/v1/users/availability", "/api/v1/users/token/refresh", "/swagger-ui", "/swagger", "/swagger-ui/**", "/swagger/**", "/login/**", "/actuator/health").permitAll();
             auth.requestMatchers("/api/v1/devices/exists/", "/api/v1/devices/addAnonymousDevice", "/api/v1/devices/exists/*").permitAll();
             auth.requestMatchers("/api/v1/users/update", "/api/v1/devices/addDevice", "api/v1/users/getUser", "/api/v1/users/changePassword").hasAnyAuthority(UserRole.USER.toString(), UserRole.ADMIN.toString());
-            auth.requestMatchers("/api/v1/passports/**", "/api/v1/users", "/api/v1/users/*", "/api/v1/renovations", "/api/v1/devices", "/api/v1/devices/**").hasAuthority(UserRole.ADMIN.toString());
+            auth.requestMatchers("/api/v1/passports/**", "/api/v1/users", "/api/v1/users/*", "/api/v1/renovations", "/api/v1/renovations/**", "/api/v1/devices", "/api/v1/devices/**", "/api/v1/admin/**", "/api/v1/archive/**", "/api/v1/reports/**", "/api/v1/stats", "/actuator/**").hasAuthority(UserRole.ADMIN.toString());
             auth.anyRequest().authenticated();
         });
         http.authenticationManager(applicationConfig.authenticationManager());
+        http.addFilterBefore(rateLimitFilter, UsernamePasswordAuthenticationFilter.class);
         http.addFilterAt(authenticationFilter, UsernamePasswordAuthenticationFilter.class);
         http.addFilterBefore(jwtAuthFilter, UsernamePasswordAuthenticationFilter.class);
         http.exceptionHandling(e -> e
@@ -0,0 +1,46 @@
+package bg.tuvarna.devicebackend.config;
+
+import bg.tuvarna.devicebackend.services.diagnostics.RepositoryTimingInterceptor;
+import bg.tuvarna.devicebackend.services.diagnostics.SlowQueryLog;
+import bg.tuvarna.devicebackend.services.diagnostics.SqlCapture;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.repository.core.support.RepositoryFactoryBeanSupport;
+
+/**
+ * Wires slow-query capture: Hibernate reports prepared SQL to {@link SqlCapture}, and every Spring Data
+ * repository proxy gets a {@link RepositoryTimingInterceptor}.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "app.slow-queries", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class SlowQueryConfig {
+    @Bean
+    public HibernatePropertiesCustomizer sqlCaptureCustomizer() {
+        return properties -> properties.put(AvailableSettings.STATEMENT_INSPECTOR, new SqlCapture());
+    }
+
+    /**
+     * Static so the post-processor does not pull this configuration, or the log, into early initialization.
+     */
+    @Bean
+    public static BeanPostProcessor repositoryTimingPostProcessor(ObjectProvider<SlowQueryLog> slowQueryLog) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessBeforeInitialization(Object bean, String beanName) {
+                if (bean instanceof RepositoryFactoryBeanSupport<?, ?, ?> factoryBean) {
+                    factoryBean.addRepositoryFactoryCustomizer(factory -> factory.addRepositoryProxyPostProcessor(
+                            (proxyFactory, information) -> proxyFactory.addAdvice(
+                                    new RepositoryTimingInterceptor(information.getRepositoryInterface(), slowQueryLog)
+                            )
+                    ));
+                }
+                return bean;
+            }
+        };
+    }
+}
@@ -0,0 +1,41 @@
+package bg.tuvarna.devicebackend.config.datasource;
+
+import java.util.function.Supplier;
+
+/**
+ * Routing hint for reads that must see the latest committed state, such as uniqueness checks before a
+ * registration. Connections fetched inside {@link #call} come from the primary even in read-only
+ * transactions, without counting the caller as a recent writer. A connection the surrounding transaction
+ * already holds is kept, so the hint has to be taken before the transaction's first statement.
+ */
+public final class PrimaryReads {
+    private static final ThreadLocal<Boolean> REQUESTED = new ThreadLocal<>();
+
+    private PrimaryReads() {
+    }
+
+    public static <T> T call(Supplier<T> read) {
+        Boolean previous = REQUESTED.get();
+        REQUESTED.set(Boolean.TRUE);
+        try {
+            return read.get();
+        } finally {
+            if (previous == null) {
+                REQUESTED.remove();
+            } else {
+                REQUESTED.set(previous);
+            }
+        }
+    }
+
+    public static void run(Runnable read) {
+        call(() -> {
+            read.run();
+            return null;
+        });
+    }
+
+    static boolean requested() {
+        return REQUESTED.get() != null;
+    }
+}
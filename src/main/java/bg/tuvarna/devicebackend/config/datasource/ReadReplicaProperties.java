@@ -0,0 +1,25 @@
+package bg.tuvarna.devicebackend.config.datasource;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Read replicas used for {@code @Transactional(readOnly = true)} work.
+ * The primary is configured through the regular {@code spring.datasource.*} properties.
+ */
+@ConfigurationProperties(prefix = "app.datasource.routing")
+public record ReadReplicaProperties(
+        boolean enabled,
+        List<Replica> replicas,
+        Duration stickyWindow
+) {
+    public ReadReplicaProperties {
+        replicas = replicas != null ? replicas : List.of();
+        stickyWindow = stickyWindow != null ? stickyWindow : Duration.ofSeconds(5);
+    }
+
+    public record Replica(String url, String username, String password) {
+    }
+}
@@ -0,0 +1,79 @@
+package bg.tuvarna.devicebackend.config.datasource;
+
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Remembers which clients wrote recently so their reads can stay on the primary until the replicas
+ * have caught up. Clients are identified by their principal, or by remote address when anonymous.
+ */
+public class ReadYourWritesTracker {
+    private static final int MAX_TRACKED_CLIENTS = 100_000;
+
+    private final long windowNanos;
+    private final Map<String, Long> lastWrites = new ConcurrentHashMap<>();
+
+    public ReadYourWritesTracker(Duration window) {
+        this.windowNanos = window.toNanos();
+    }
+
+    public void recordWrite() {
+        if (windowNanos <= 0) {
+            return;
+        }
+
+        String client = currentClient();
+        if (client == null) {
+            return;
+        }
+
+        if (lastWrites.size() >= MAX_TRACKED_CLIENTS) {
+            evictExpired();
+        }
+        lastWrites.put(client, System.nanoTime());
+    }
+
+    public boolean wroteRecently() {
+        if (windowNanos <= 0) {
+            return false;
+        }
+
+        String client = currentClient();
+        if (client == null) {
+            return false;
+        }
+
+        Long lastWrite = lastWrites.get(client);
+        if (lastWrite == null) {
+            return false;
+        }
+        if (System.nanoTime() - lastWrite > windowNanos) {
+            lastWrites.remove(client, lastWrite);
+            return false;
+        }
+        return true;
+    }
+
+    private void evictExpired() {
+        long now = System.nanoTime();
+        lastWrites.values().removeIf(lastWrite -> now - lastWrite > windowNanos);
+    }
+
+    private static String currentClient() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.isAuthenticated() && authentication.getName() != null) {
+            return "user:" + authentication.getName();
+        }
+
+        if (RequestContextHolder.getRequestAttributes() instanceof ServletRequestAttributes attributes) {
+            return "addr:" + attributes.getRequest().getRemoteAddr();
+        }
+        return null;
+    }
+}
@@ -0,0 +1,63 @@
+package bg.tuvarna.devicebackend.config.datasource;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Sends connections of read-only transactions to the replicas (round robin) and everything else
+ * to the primary. Has to sit behind a {@code LazyConnectionDataSourceProxy} so the transaction's
+ * read-only flag is known by the time the physical connection is fetched.
+ * <p>
+ * Connections of read-write transactions are watched by {@link WriteTracking}, so only a committed
+ * data-changing statement makes the client's reads stick to the primary. {@link PrimaryReads} sends a
+ * read to the primary without that side effect.
+ */
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource {
+    public static final String PRIMARY = "primary";
+    public static final String REPLICA_PREFIX = "replica-";
+
+    private final int replicaCount;
+    private final ReadYourWritesTracker readYourWritesTracker;
+    private final AtomicInteger next = new AtomicInteger();
+
+    public ReplicaRoutingDataSource(int replicaCount, ReadYourWritesTracker readYourWritesTracker) {
+        this.replicaCount = replicaCount;
+        this.readYourWritesTracker = readYourWritesTracker;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return watched(super.getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return watched(super.getConnection(username, password));
+    }
+
+    private Connection watched(Connection connection) {
+        WriteTracking tracking = WriteTracking.current(readYourWritesTracker);
+        return tracking != null ? tracking.watch(connection) : connection;
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+            return PRIMARY;
+        }
+
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            return PRIMARY;
+        }
+
+        if (replicaCount == 0 || PrimaryReads.requested() || readYourWritesTracker.wroteRecently()) {
+            return PRIMARY;
+        }
+
+        return REPLICA_PREFIX + Math.floorMod(next.getAndIncrement(), replicaCount);
+    }
+}
@@ -0,0 +1,133 @@
+package bg.tuvarna.devicebackend.config.datasource;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Notes whether a read-write transaction actually issued a data-changing statement, and tells the
+ * {@link ReadYourWritesTracker} only once it has committed. Transactions that merely read, or roll back,
+ * leave the client's reads on the replicas.
+ */
+final class WriteTracking implements TransactionSynchronization {
+    private static final Set<String> WRITE_KEYWORDS = Set.of("insert", "update", "delete", "merge", "upsert");
+
+    private final ReadYourWritesTracker tracker;
+    private volatile boolean wrote;
+
+    private WriteTracking(ReadYourWritesTracker tracker) {
+        this.tracker = tracker;
+    }
+
+    /**
+     * The tracking of the current read-write transaction, registered on first use; {@code null} outside one.
+     */
+    static WriteTracking current(ReadYourWritesTracker tracker) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()
+                || TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            return null;
+        }
+
+        WriteTracking tracking = (WriteTracking) TransactionSynchronizationManager.getResource(tracker);
+        if (tracking == null) {
+            tracking = new WriteTracking(tracker);
+            TransactionSynchronizationManager.bindResource(tracker, tracking);
+            TransactionSynchronizationManager.registerSynchronization(tracking);
+        }
+        return tracking;
+    }
+
+    @Override
+    public void afterCommit() {
+        if (wrote) {
+            tracker.recordWrite();
+        }
+    }
+
+    @Override
+    public void afterCompletion(int status) {
+        TransactionSynchronizationManager.unbindResourceIfPossible(tracker);
+    }
+
+    /**
+     * Wraps {@code connection} so that preparing or executing a data-changing statement marks the transaction.
+     */
+    Connection watch(Connection connection) {
+        return (Connection) Proxy.newProxyInstance(
+                WriteTracking.class.getClassLoader(),
+                new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "equals":
+                            return proxy == args[0];
+                        case "hashCode":
+                            return System.identityHashCode(proxy);
+                        case "prepareStatement", "prepareCall":
+                            inspect(args);
+                            break;
+                        default:
+                            break;
+                    }
+
+                    Object result = invoke(method, connection, args);
+                    return result instanceof Statement statement && method.getName().equals("createStatement")
+                            ? watch(statement)
+                            : result;
+                }
+        );
+    }
+
+    private Statement watch(Statement statement) {
+        return (Statement) Proxy.newProxyInstance(
+                WriteTracking.class.getClassLoader(),
+                new Class<?>[]{Statement.class},
+                (proxy, method, args) -> {
+                    if (method.getName().startsWith("execute") || method.getName().equals("addBatch")) {
+                        inspect(args);
+                    }
+                    return invoke(method, statement, args);
+                }
+        );
+    }
+
+    private void inspect(Object[] args) {
+        if (!wrote && args != null && args.length > 0 && args[0] instanceof String sql && isWrite(sql)) {
+            wrote = true;
+        }
+    }
+
+    static boolean isWrite(String sql) {
+        int start = 0;
+        while (start < sql.length()) {
+            if (Character.isWhitespace(sql.charAt(start))) {
+                start++;
+            } else if (sql.startsWith("/*", start)) {
+                int end = sql.indexOf("*/", start + 2);
+                start = end < 0 ? sql.length() : end + 2;
+            } else {
+                break;
+            }
+        }
+
+        int end = start;
+        while (end < sql.length() && Character.isLetter(sql.charAt(end))) {
+            end++;
+        }
+        return WRITE_KEYWORDS.contains(sql.substring(start, end).toLowerCase(Locale.ROOT));
+    }
+
+    private static Object invoke(Method method, Object target, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+}
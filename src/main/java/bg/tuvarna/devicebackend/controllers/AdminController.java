@@ -0,0 +1,83 @@
+package bg.tuvarna.devicebackend.controllers;
+
+import bg.tuvarna.devicebackend.models.dtos.SlowQueryVO;
+import bg.tuvarna.devicebackend.models.dtos.SuggestionVO;
+import bg.tuvarna.devicebackend.models.enums.SlowConsumerPolicy;
+import bg.tuvarna.devicebackend.services.AdminSuggestService;
+import bg.tuvarna.devicebackend.services.diagnostics.SlowQueryLog;
+import bg.tuvarna.devicebackend.services.events.AdminEventStream;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import lombok.AllArgsConstructor;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/v1/admin")
+@AllArgsConstructor
+public class AdminController {
+    private final AdminEventStream adminEventStream;
+    private final SlowQueryLog slowQueryLog;
+    private final AdminSuggestService adminSuggestService;
+
+    @Operation(
+            summary = "Stream fleet changes.",
+            description = "Server-sent events for device registrations, updates, deletions, renovations and user changes. "
+                    + "The event name is the change type and the data is its JSON payload. A resync event means "
+                    + "events were missed and listings should be reloaded."
+    )
+    @GetMapping(value = "/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @SecurityRequirement(name = "bearerAuth")
+    public SseEmitter events(
+            @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId,
+            @Parameter(description = "drop-oldest, coalesce or disconnect when the client falls behind")
+            @RequestParam(defaultValue = "drop-oldest") String overflow
+    ) {
+        return adminEventStream.subscribe(lastEventId, SlowConsumerPolicy.fromParam(overflow));
+    }
+
+    @Operation(
+            summary = "Suggests users and devices.",
+            description = "Users whose email, phone or name, and devices whose serial number, start with q "
+                    + "(case-insensitive; any word of the name matches). At most one suggestion per user or device, "
+                    + "shortest match first."
+    )
+    @GetMapping("/suggest")
+    @SecurityRequirement(name = "bearerAuth")
+    public ResponseEntity<List<SuggestionVO>> suggest(
+            @RequestParam String q,
+            @Parameter(description = "at most 50")
+            @RequestParam(defaultValue = "10") int limit
+    ) {
+        return ResponseEntity.ok(adminSuggestService.suggest(q, limit));
+    }
+
+    @Operation(
+            summary = "Returns slow repository calls.",
+            description = "Most recent repository calls over the slow-query threshold, newest first, with their SQL, "
+                    + "redacted arguments and, on PostgreSQL, a generic plan."
+    )
+    @GetMapping("/slow-queries")
+    @SecurityRequirement(name = "bearerAuth")
+    public ResponseEntity<List<SlowQueryVO>> getSlowQueries() {
+        return ResponseEntity.ok(slowQueryLog.recent());
+    }
+
+    @Operation(summary = "Clears the slow-query log.")
+    @DeleteMapping("/slow-queries")
+    @SecurityRequirement(name = "bearerAuth")
+    public ResponseEntity<Void> clearSlowQueries() {
+        slowQueryLog.clear();
+        return ResponseEntity.ok().build();
+    }
+}
@@ -0,0 +1,56 @@
+package bg.tuvarna.devicebackend.controllers;
+
+import bg.tuvarna.devicebackend.controllers.exceptions.ErrorResponse;
+import bg.tuvarna.devicebackend.models.dtos.ArchivedDeviceVO;
+import bg.tuvarna.devicebackend.services.ArchiveService;
+import bg.tuvarna.devicebackend.utils.CustomPage;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import lombok.AllArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/v1/archive")
+@AllArgsConstructor
+public class ArchiveController {
+    private final ArchiveService archiveService;
+
+    @Operation(
+            summary = "Returns archived devices.",
+            description = "Read-only view of devices moved to the archive, optionally for one owner."
+    )
+    @GetMapping("/devices")
+    @SecurityRequirement(name = "bearerAuth")
+    public ResponseEntity<CustomPage<ArchivedDeviceVO>> getDevices(
+            @RequestParam(required = false) Long userId,
+            @RequestParam(defaultValue = "1") int page,
+            @RequestParam(defaultValue = "10") int size
+    ) {
+        return ResponseEntity.ok(archiveService.getDevices(userId, page, size));
+    }
+
+    @Operation(
+            summary = "Returns an archived device.",
+            description = "Archived device with its renovations."
+    )
+    @ApiResponses(value = {
+            @ApiResponse(
+                    responseCode = "400",
+                    description = "Device is not archived.",
+                    content = @Content(
+                            mediaType = "application/json",
+                            schema = @Schema(implementation = ErrorResponse.class)
+                    )
+            )
+    })
+    @GetMapping("/devices/{serialNumber}")
+    @SecurityRequirement(name = "bearerAuth")
+    public ResponseEntity<ArchivedDeviceVO> getDevice(@PathVariable String serialNumber) {
+        return ResponseEntity.ok(archiveService.findDevice(serialNumber));
+    }
+}
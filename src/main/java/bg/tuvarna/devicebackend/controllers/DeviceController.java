@@ -1,14 +1,20 @@
 package bg.tuvarna.devicebackend.controllers;
 
 import bg.tuvarna.devicebackend.controllers.exceptions.ErrorResponse;
+import bg.tuvarna.devicebackend.models.dtos.DeviceChangesVO;
 import bg.tuvarna.devicebackend.models.dtos.DeviceCreateVO;
 import bg.tuvarna.devicebackend.models.dtos.DeviceUpdateVO;
 import bg.tuvarna.devicebackend.models.dtos.DeviceVO;
 import bg.tuvarna.devicebackend.models.entities.Device;
 import bg.tuvarna.devicebackend.models.entities.User;
+import bg.tuvarna.devicebackend.models.enums.TotalCountMode;
+import bg.tuvarna.devicebackend.services.ChangeFeedService;
+import bg.tuvarna.devicebackend.services.CoalescingLookupService;
 import bg.tuvarna.devicebackend.services.DeviceService;
 import bg.tuvarna.devicebackend.utils.CustomPage;
+import bg.tuvarna.devicebackend.utils.ETags;
 import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
@@ -16,9 +22,11 @@ import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import jakarta.validation.Valid;
 import lombok.AllArgsConstructor;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
 @RestController
@@ -26,15 +34,29 @@ import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 @AllArgsConstructor
 public class DeviceController {
     private final DeviceService deviceService;
+    private final CoalescingLookupService coalescingLookupService;
+    private final ChangeFeedService changeFeedService;
 
     @Operation(
             description = "Return device by id for logged in user.",
             summary = "Return device by id"
     )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Device with its ETag."),
+            @ApiResponse(responseCode = "304", description = "Device unchanged since the If-None-Match ETag.")
+    })
     @GetMapping("/{id}")
     @SecurityRequirement(name = "bearerAuth")
-    public DeviceVO findDevice(@PathVariable String id) {
-        return new DeviceVO(deviceService.findDevice(id));
+    public ResponseEntity<DeviceVO> findDevice(@PathVariable String id, WebRequest request) {
+        String etag = deviceService.findETag(id);
+        if (etag != null && request.checkNotModified(etag)) {
+            return null;
+        }
+
+        Device device = deviceService.findDevice(id);
+        return ResponseEntity.ok()
+                .eTag(ETags.device(device))
+                .body(new DeviceVO(device));
     }
 
     @Operation(
@@ -54,7 +76,7 @@ public class DeviceController {
     })
     @GetMapping("/exists/{id}")
     public ResponseEntity<DeviceVO> isDeviceExists(@PathVariable String id) {
-        return ResponseEntity.ok(new DeviceVO(deviceService.isDeviceExists(id)));
+        return ResponseEntity.ok(coalescingLookupService.isDeviceExists(id));
     }
 
     @Operation(
@@ -100,9 +122,37 @@ public class DeviceController {
     public ResponseEntity<CustomPage<Device>> getDevices(
             @RequestParam(required = false) String searchBy,
             @RequestParam(defaultValue = "1") int page,
-            @RequestParam(defaultValue = "10") int size
+            @RequestParam(defaultValue = "10") int size,
+            @Parameter(description = "false skips the total, exact counts it, estimate approximates it")
+            @RequestParam(defaultValue = "exact") String withTotal
+    ) {
+        return ResponseEntity.ok(deviceService.getDevices(searchBy, page, size, TotalCountMode.fromParam(withTotal)));
+    }
+
+    @Operation(
+            summary = "Returns device changes.",
+            description = "Devices and passports changed and devices deleted since the token. "
+                    + "Start without since, then pass nextToken until hasMore is false."
+    )
+    @ApiResponses(
+            value = {
+                    @ApiResponse(
+                            responseCode = "400",
+                            description = "Invalid or expired token.",
+                            content = @Content(
+                                    mediaType = "application/json",
+                                    schema = @Schema(implementation = ErrorResponse.class)
+                            )
+                    )
+            }
+    )
+    @GetMapping("/changes")
+    @SecurityRequirement(name = "bearerAuth")
+    public ResponseEntity<DeviceChangesVO> getChanges(
+            @RequestParam(required = false) String since,
+            @RequestParam(defaultValue = "500") int limit
     ) {
-        return ResponseEntity.ok(deviceService.getDevices(searchBy, page, size));
+        return ResponseEntity.ok(changeFeedService.changesSince(since, limit));
     }
 
     @Operation(
@@ -157,6 +207,14 @@ public class DeviceController {
                                     mediaType = "application/json",
                                     schema = @Schema(implementation = ErrorResponse.class)
                             )
+                    ),
+                    @ApiResponse(
+                            responseCode = "412",
+                            description = "Device changed since the If-Match ETag.",
+                            content = @Content(
+                                    mediaType = "application/json",
+                                    schema = @Schema(implementation = ErrorResponse.class)
+                            )
                     )
             }
     )
@@ -164,9 +222,13 @@ public class DeviceController {
     @SecurityRequirement(name = "bearerAuth")
     public ResponseEntity<DeviceVO> updateDevice(
             @PathVariable String serialNumber,
-            @RequestBody @Valid DeviceUpdateVO device
+            @RequestBody @Valid DeviceUpdateVO device,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch
     ) {
-        return ResponseEntity.ok(new DeviceVO(deviceService.updateDevice(serialNumber, device)));
+        Device updated = deviceService.updateDevice(serialNumber, device, ifMatch);
+        return ResponseEntity.ok()
+                .eTag(ETags.device(updated))
+                .body(new DeviceVO(updated));
     }
 
     @Operation(
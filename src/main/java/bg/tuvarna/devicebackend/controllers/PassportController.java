@@ -2,6 +2,7 @@ package bg.tuvarna.devicebackend.controllers;
 
 import bg.tuvarna.devicebackend.models.dtos.*;
 import bg.tuvarna.devicebackend.models.entities.Passport;
+import bg.tuvarna.devicebackend.services.CoalescingLookupService;
 import bg.tuvarna.devicebackend.services.PassportService;
 import bg.tuvarna.devicebackend.utils.CustomPage;
 import io.swagger.v3.oas.annotations.Operation;
@@ -21,6 +22,7 @@ import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 @AllArgsConstructor
 public class PassportController {
     private final PassportService passportService;
+    private final CoalescingLookupService coalescingLookupService;
 
     @Operation(
             description = "Create passport",
@@ -107,6 +109,6 @@ public class PassportController {
     )
     @GetMapping("/getBySerialId/{serialId}")
     public ResponseEntity<PassportForSerialNumberVO> getPassportForSerialId(@PathVariable String serialId) {
-        return ResponseEntity.ok(new PassportForSerialNumberVO(passportService.findPassportBySerialId(serialId)));
+        return ResponseEntity.ok(coalescingLookupService.findPassportBySerialId(serialId));
     }
 }
\ No newline at end of file
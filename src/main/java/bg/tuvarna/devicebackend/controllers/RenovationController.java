@@ -1,9 +1,13 @@
 package bg.tuvarna.devicebackend.controllers;
 
+import bg.tuvarna.devicebackend.controllers.exceptions.ErrorResponse;
+import bg.tuvarna.devicebackend.models.dtos.RenovationBatchResultVO;
 import bg.tuvarna.devicebackend.models.dtos.RenovationCreateVO;
+import bg.tuvarna.devicebackend.models.dtos.RenovationListingVO;
 import bg.tuvarna.devicebackend.models.dtos.RenovationVO;
 import bg.tuvarna.devicebackend.models.entities.Renovation;
 import bg.tuvarna.devicebackend.services.RenovationService;
+import bg.tuvarna.devicebackend.utils.CustomPage;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
@@ -12,19 +16,50 @@ import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import jakarta.validation.Valid;
 import lombok.AllArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
-import org.springframework.web.bind.annotation.PostMapping;
-import org.springframework.web.bind.annotation.RequestBody;
-import org.springframework.web.bind.annotation.RequestMapping;
-import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.bind.annotation.*;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
+import java.time.LocalDate;
+import java.util.List;
+
 @RestController
 @RequestMapping("/api/v1/renovations")
 @AllArgsConstructor
 public class RenovationController {
     private final RenovationService renovationService;
 
+    @Operation(
+            description = "Renovations dated between from and to (inclusive, to defaults to today), newest first. " +
+                    "Pages are not counted: totalItems is -1 until the last page is reached.",
+            summary = "Returns renovations in a date range"
+    )
+    @ApiResponses(
+            value = {
+                    @ApiResponse(
+                            responseCode = "400",
+                            description = "from is after to.",
+                            content = @Content(
+                                    mediaType = "application/json",
+                                    schema = @Schema(implementation = ErrorResponse.class)
+                            )
+                    )
+            }
+    )
+    @GetMapping()
+    @SecurityRequirement(name = "bearerAuth")
+    public ResponseEntity<CustomPage<RenovationListingVO>> getRenovations(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) Long passportId,
+            @RequestParam(defaultValue = "1") int page,
+            @RequestParam(defaultValue = "10") int size
+    ) {
+        LocalDate until = to != null ? to : LocalDate.now();
+        return ResponseEntity.ok(renovationService.getRenovations(from, until, passportId, page, size));
+    }
+
     @Operation(
             description = "Add renovation for device",
             summary = "Add renovation for device"
@@ -55,4 +90,27 @@ public class RenovationController {
                 )
                 .body(new RenovationVO(saved));
     }
+
+    @Operation(
+            description = "Add renovations for many devices at once. Every item gets its own outcome; " +
+                    "invalid items and unregistered devices do not fail the rest of the batch.",
+            summary = "Add renovations in bulk"
+    )
+    @ApiResponses(
+            value = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "Batch processed.",
+                            content = @Content(
+                                    mediaType = "application/json",
+                                    schema = @Schema(implementation = RenovationBatchResultVO.class)
+                            )
+                    )
+            }
+    )
+    @PostMapping("/batch")
+    @SecurityRequirement(name = "bearerAuth")
+    public ResponseEntity<RenovationBatchResultVO> saveRenovations(@RequestBody List<RenovationCreateVO> items) {
+        return ResponseEntity.ok(renovationService.saveBatch(items));
+    }
 }
\ No newline at end of file
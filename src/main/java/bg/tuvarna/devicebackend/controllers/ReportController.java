@@ -0,0 +1,55 @@
+package bg.tuvarna.devicebackend.controllers;
+
+import bg.tuvarna.devicebackend.controllers.exceptions.ErrorResponse;
+import bg.tuvarna.devicebackend.models.dtos.RenovationStatsVO;
+import bg.tuvarna.devicebackend.services.RenovationStatsService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import lombok.AllArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.YearMonth;
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/v1/reports")
+@AllArgsConstructor
+public class ReportController {
+    private final RenovationStatsService renovationStatsService;
+
+    @Operation(
+            summary = "Returns renovations per model per month.",
+            description = "Months are yyyy-MM and inclusive; to defaults to the current month and from to 11 months " +
+                    "before it. failureRate is renovations per currently registered device of the model."
+    )
+    @ApiResponses(value = {
+            @ApiResponse(
+                    responseCode = "400",
+                    description = "from is after to, or the range is longer than 120 months.",
+                    content = @Content(
+                            mediaType = "application/json",
+                            schema = @Schema(implementation = ErrorResponse.class)
+                    )
+            )
+    })
+    @GetMapping("/renovations")
+    @SecurityRequirement(name = "bearerAuth")
+    public ResponseEntity<List<RenovationStatsVO>> getRenovations(
+            @RequestParam(required = false) @DateTimeFormat(pattern = "yyyy-MM") YearMonth from,
+            @RequestParam(required = false) @DateTimeFormat(pattern = "yyyy-MM") YearMonth to,
+            @RequestParam(required = false) String model
+    ) {
+        YearMonth until = to != null ? to : YearMonth.now();
+        YearMonth since = from != null ? from : until.minusMonths(11);
+        return ResponseEntity.ok(renovationStatsService.getReport(since, until, model));
+    }
+}
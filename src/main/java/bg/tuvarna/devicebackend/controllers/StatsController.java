@@ -0,0 +1,29 @@
+package bg.tuvarna.devicebackend.controllers;
+
+import bg.tuvarna.devicebackend.models.dtos.FleetStatsVO;
+import bg.tuvarna.devicebackend.services.FleetStatsService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import lombok.AllArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/api/v1/stats")
+@AllArgsConstructor
+public class StatsController {
+    private final FleetStatsService fleetStatsService;
+
+    @Operation(
+            summary = "Returns fleet statistics.",
+            description = "Device, warranty, user and passport counts, served from counters maintained on write. " +
+                    "Writes made by other instances can take up to app.stats.refresh-interval to show."
+    )
+    @GetMapping
+    @SecurityRequirement(name = "bearerAuth")
+    public ResponseEntity<FleetStatsVO> getStats() {
+        return ResponseEntity.ok(fleetStatsService.getStats());
+    }
+}
@@ -3,9 +3,13 @@ package bg.tuvarna.devicebackend.controllers;
 import bg.tuvarna.devicebackend.controllers.exceptions.ErrorResponse;
 import bg.tuvarna.devicebackend.models.dtos.*;
 import bg.tuvarna.devicebackend.models.entities.User;
+import bg.tuvarna.devicebackend.models.enums.TotalCountMode;
+import bg.tuvarna.devicebackend.services.RefreshTokenService;
 import bg.tuvarna.devicebackend.services.UserService;
 import bg.tuvarna.devicebackend.utils.CustomPage;
+import bg.tuvarna.devicebackend.utils.ETags;
 import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
@@ -13,15 +17,18 @@ import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import jakarta.validation.Valid;
 import lombok.AllArgsConstructor;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 @RestController
 @RequestMapping("/api/v1/users")
 @AllArgsConstructor
 public class UserController {
     private final UserService userService;
+    private final RefreshTokenService refreshTokenService;
 
     @Operation(
             summary = "Register user.",
@@ -49,6 +56,20 @@ public class UserController {
         return ResponseEntity.ok().build();
     }
 
+    @Operation(
+            summary = "Checks whether an email and phone are free.",
+            description = "For validating the registration form while typing. Pass either or both; a value left out " +
+                    "comes back as null. Answered from memory, so a value registered moments ago on another " +
+                    "instance can still show as available until registration rejects it."
+    )
+    @GetMapping("/availability")
+    public ResponseEntity<AvailabilityVO> availability(
+            @RequestParam(required = false) String email,
+            @RequestParam(required = false) String phone
+    ) {
+        return ResponseEntity.ok(userService.checkAvailability(email, phone));
+    }
+
     @Operation(summary = "Login user.",
             description = "User can log in with email/phone and password. " +
                     "If user is already logged in, it will return the token and user details."
@@ -71,6 +92,47 @@ public class UserController {
         return ResponseEntity.ok().build();
     }
 
+    @Operation(
+            summary = "Renews the access token.",
+            description = "Exchanges the refresh token from login (or the previous refresh) for a new access token " +
+                    "and a new refresh token; the presented one cannot be used again. Reusing it revokes every " +
+                    "token renewed from the same login."
+    )
+    @ApiResponses(value = {
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "New access and refresh token, without user details.",
+                    content = @Content(
+                            mediaType = "application/json",
+                            schema = @Schema(implementation = AuthResponseDTO.class)
+                    )
+            ),
+            @ApiResponse(
+                    responseCode = "400",
+                    description = "Unknown, expired, revoked or already used refresh token.",
+                    content = @Content(
+                            mediaType = "application/json",
+                            schema = @Schema(implementation = ErrorResponse.class)
+                    )
+            )
+    })
+    @PostMapping("/token/refresh")
+    public ResponseEntity<AuthResponseDTO> refreshToken(@RequestBody @Valid RefreshTokenVO refreshTokenVO) {
+        return ResponseEntity.ok(refreshTokenService.refresh(refreshTokenVO.refreshToken()));
+    }
+
+    @Operation(
+            summary = "Revokes all refresh tokens.",
+            description = "Signs the current user out on every device once their access tokens expire."
+    )
+    @PostMapping("/token/revoke")
+    @SecurityRequirement(name = "bearerAuth")
+    public ResponseEntity<Void> revokeTokens(@AuthenticationPrincipal User user) {
+        refreshTokenService.revokeAll(user.getId());
+
+        return ResponseEntity.ok().build();
+    }
+
     @Operation(
             summary = "Returns users.",
             description = "Returns users based on search."
@@ -80,24 +142,39 @@ public class UserController {
     public ResponseEntity<CustomPage<UserListing>> getUsers(
             @RequestParam(required = false) String searchBy,
             @RequestParam(defaultValue = "1") int page,
-            @RequestParam(defaultValue = "10") int size
+            @RequestParam(defaultValue = "10") int size,
+            @Parameter(description = "false skips the total, exact counts it, estimate approximates it")
+            @RequestParam(defaultValue = "exact") String withTotal
     ) {
-        return ResponseEntity.ok(userService.getUsers(searchBy, page, size));
+        return ResponseEntity.ok(userService.getUsers(searchBy, page, size, TotalCountMode.fromParam(withTotal)));
     }
 
     @Operation(
             summary = "Update user.",
             description = "Update user."
     )
+    @ApiResponses(value = {
+            @ApiResponse(
+                    responseCode = "412",
+                    description = "User changed since the If-Match ETag.",
+                    content = @Content(
+                            mediaType = "application/json",
+                            schema = @Schema(implementation = ErrorResponse.class)
+                    )
+            )
+    })
     @PutMapping("/{id}")
     @SecurityRequirement(name = "bearerAuth")
     public ResponseEntity<UserVO> updateUser(
             @PathVariable Long id,
-            @RequestBody @Valid UserUpdateVO userUpdateVO
+            @RequestBody @Valid UserUpdateVO userUpdateVO,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch
     ) {
-        User updatedUser = userService.updateUser(id, userUpdateVO);
+        User updatedUser = userService.updateUser(id, userUpdateVO, ifMatch);
 
-        return ResponseEntity.ok(new UserVO(updatedUser));
+        return ResponseEntity.ok()
+                .eTag(ETags.user(updatedUser))
+                .body(new UserVO(updatedUser));
     }
 
     @Operation(
@@ -133,7 +210,15 @@ public class UserController {
     )
     @GetMapping("/getUser")
     @SecurityRequirement(name = "bearerAuth")
-    public ResponseEntity<UserVO> getUser(@AuthenticationPrincipal User user) {
-        return ResponseEntity.ok(new UserVO(user));
+    public ResponseEntity<UserVO> getUser(@AuthenticationPrincipal User user, WebRequest request) {
+        // The principal is already loaded by the JWT filter, so the tag costs no query.
+        String etag = ETags.user(user);
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
+
+        return ResponseEntity.ok()
+                .eTag(etag)
+                .body(new UserVO(user));
     }
 }
\ No newline at end of file
@@ -1,5 +1,6 @@
 package bg.tuvarna.devicebackend.controllers.exceptions;
 
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.ObjectError;
@@ -27,6 +28,19 @@ public class CustomExceptionHandler {
         );
     }
 
+    @ExceptionHandler(PreconditionFailedException.class)
+    public ResponseEntity<ErrorResponse> handlePreconditionFailed(PreconditionFailedException ex) {
+        return new ResponseEntity<>(
+                new ErrorResponse(ex),
+                HttpStatus.PRECONDITION_FAILED
+        );
+    }
+
+    @ExceptionHandler(OptimisticLockingFailureException.class)
+    public ResponseEntity<ErrorResponse> handleOptimisticLockingFailure(OptimisticLockingFailureException ex) {
+        return handlePreconditionFailed(new PreconditionFailedException("Modified concurrently"));
+    }
+
     @ExceptionHandler(MethodArgumentNotValidException.class)
     public ResponseEntity<ErrorResponse> handleMethodArgumentNotValidException(MethodArgumentNotValidException ex) {
         List<String> list = new ArrayList<>();
@@ -12,7 +12,10 @@ public enum ErrorCode {
     WrongCredentials(2),
     NotRegistered(3),
     Failed(4),
-    Validation(5);
+    Validation(5),
+    RateLimited(6),
+    SyncTokenExpired(7),
+    PreconditionFailed(8);
 
     private final int code;
 
@@ -0,0 +1,11 @@
+package bg.tuvarna.devicebackend.controllers.exceptions;
+
+/**
+ * The resource changed since the client read it: its {@code If-Match} ETag is stale, or a concurrent
+ * update won the optimistic lock. Answered with 412 so the client re-reads before retrying.
+ */
+public class PreconditionFailedException extends CustomException {
+    public PreconditionFailedException(String message) {
+        super(message, ErrorCode.PreconditionFailed);
+    }
+}
@@ -0,0 +1,17 @@
+package bg.tuvarna.devicebackend.models.dtos;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.List;
+
+public record ArchivedDeviceVO(
+        String serialNumber,
+        LocalDate purchaseDate,
+        LocalDate warrantyExpirationDate,
+        String comment,
+        Long userId,
+        Long passportId,
+        Instant archivedAt,
+        List<ArchivedRenovationVO> renovations
+) {
+}
@@ -0,0 +1,10 @@
+package bg.tuvarna.devicebackend.models.dtos;
+
+import java.time.LocalDate;
+
+public record ArchivedRenovationVO(
+        Long id,
+        String description,
+        LocalDate renovationDate
+) {
+}
@@ -1,5 +1,6 @@
 package bg.tuvarna.devicebackend.models.dtos;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -9,6 +10,8 @@ import lombok.NoArgsConstructor;
 @NoArgsConstructor
 public class AuthResponseDTO {
     private String token;
+    private String refreshToken;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
     private UserVO user;
 }
 
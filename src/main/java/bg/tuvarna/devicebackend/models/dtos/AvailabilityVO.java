@@ -0,0 +1,10 @@
+package bg.tuvarna.devicebackend.models.dtos;
+
+/**
+ * Null for a value that was not asked about.
+ */
+public record AvailabilityVO(
+        Boolean emailAvailable,
+        Boolean phoneAvailable
+) {
+}
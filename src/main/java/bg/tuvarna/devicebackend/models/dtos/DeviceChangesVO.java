@@ -0,0 +1,20 @@
+package bg.tuvarna.devicebackend.models.dtos;
+
+import bg.tuvarna.devicebackend.models.entities.Device;
+import bg.tuvarna.devicebackend.models.entities.Passport;
+
+import java.util.List;
+
+/**
+ * One page of the device change feed. Apply {@code devices} and {@code passports} as upserts and
+ * {@code deleted} (serial numbers) and {@code deletedPassports} (ids) as removals, then ask again with {@code since=nextToken} while {@code hasMore}.
+ */
+public record DeviceChangesVO(
+        List<Device> devices,
+        List<Passport> passports,
+        List<String> deleted,
+        List<Long> deletedPassports,
+        String nextToken,
+        boolean hasMore
+) {
+}
@@ -0,0 +1,20 @@
+package bg.tuvarna.devicebackend.models.dtos;
+
+import java.time.LocalDate;
+import java.util.Map;
+
+/**
+ * @param warrantyAsOf day the active/expired split refers to; a warranty ending before it is expired
+ */
+public record FleetStatsVO(
+        long devices,
+        long registeredDevices,
+        long anonymousDevices,
+        long activeWarranties,
+        long expiredWarranties,
+        LocalDate warrantyAsOf,
+        long users,
+        long passports,
+        Map<Long, Long> devicesPerPassport
+) {
+}
@@ -0,0 +1,13 @@
+package bg.tuvarna.devicebackend.models.dtos;
+
+import bg.tuvarna.devicebackend.models.enums.BatchItemStatus;
+
+import java.util.List;
+
+public record RenovationBatchItemVO(
+        int index,
+        String deviceSerialNumber,
+        BatchItemStatus status,
+        List<String> errors
+) {
+}
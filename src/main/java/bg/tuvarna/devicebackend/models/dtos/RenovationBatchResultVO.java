@@ -0,0 +1,10 @@
+package bg.tuvarna.devicebackend.models.dtos;
+
+import java.util.List;
+
+public record RenovationBatchResultVO(
+        int created,
+        int rejected,
+        List<RenovationBatchItemVO> items
+) {
+}
@@ -0,0 +1,12 @@
+package bg.tuvarna.devicebackend.models.dtos;
+
+import java.time.LocalDate;
+
+public record RenovationListingVO(
+        Long id,
+        String description,
+        LocalDate renovationDate,
+        String deviceSerialNumber,
+        Long passportId
+) {
+}
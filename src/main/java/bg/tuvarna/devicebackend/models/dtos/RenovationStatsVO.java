@@ -0,0 +1,16 @@
+package bg.tuvarna.devicebackend.models.dtos;
+
+import java.time.YearMonth;
+
+/**
+ * @param failureRate renovations in the month per currently registered device of the model,
+ *                    or null when none is registered
+ */
+public record RenovationStatsVO(
+        String model,
+        YearMonth month,
+        long renovations,
+        long registeredDevices,
+        Double failureRate
+) {
+}
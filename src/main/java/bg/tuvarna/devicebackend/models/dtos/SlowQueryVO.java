@@ -0,0 +1,19 @@
+package bg.tuvarna.devicebackend.models.dtos;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * @param parameters repository method arguments with text redacted
+ * @param plan       PostgreSQL generic plan of the first select, or null when not (yet) explained
+ */
+public record SlowQueryVO(
+        Instant capturedAt,
+        String repository,
+        String method,
+        long elapsedMillis,
+        List<String> parameters,
+        List<String> sql,
+        String plan
+) {
+}
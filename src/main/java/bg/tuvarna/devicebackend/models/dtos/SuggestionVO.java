@@ -0,0 +1,18 @@
+package bg.tuvarna.devicebackend.models.dtos;
+
+import bg.tuvarna.devicebackend.models.enums.SuggestionType;
+
+/**
+ * @param id    user id or device serial number
+ * @param field field that matched: email, phone, fullName or serialNumber
+ * @param value value of the matched field
+ * @param label user's full name or the device serial number
+ */
+public record SuggestionVO(
+        SuggestionType type,
+        String id,
+        String field,
+        String value,
+        String label
+) {
+}
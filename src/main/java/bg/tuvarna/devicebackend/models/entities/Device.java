@@ -5,6 +5,7 @@ import jakarta.persistence.*;
 import lombok.Getter;
 import lombok.Setter;
 
+import java.time.Instant;
 import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.List;
@@ -21,6 +22,14 @@ public class Device {
     private LocalDate warrantyExpirationDate;
     private String comment;
 
+    @Version
+    @JsonIgnore
+    private long version;
+
+    @JsonIgnore
+    private Long changeSeq;
+    private Instant updatedAt;
+
     @ManyToOne
     @JoinColumn(name = "user_id")
     @JsonIgnore
@@ -1,9 +1,16 @@
 package bg.tuvarna.devicebackend.models.entities;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+
+import java.time.Instant;
 
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "passports")
 @Table(name = "passports", schema = "public")
 @Getter
 @Setter
@@ -21,4 +28,12 @@ public class Passport {
     private int fromSerialNumber;
     private int toSerialNumber;
     private int warrantyMonths;
+
+    @Version
+    @JsonIgnore
+    private long version;
+
+    @JsonIgnore
+    private Long changeSeq;
+    private Instant updatedAt;
 }
\ No newline at end of file
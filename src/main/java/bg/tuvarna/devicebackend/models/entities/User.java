@@ -2,6 +2,8 @@ package bg.tuvarna.devicebackend.models.entities;
 
 import bg.tuvarna.devicebackend.models.dtos.UserCreateVO;
 import bg.tuvarna.devicebackend.models.enums.UserRole;
+import bg.tuvarna.devicebackend.utils.Contacts;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import lombok.*;
 import org.springframework.security.core.GrantedAuthority;
@@ -27,9 +29,15 @@ public class User implements UserDetails {
     private String address;
     private String phone;
     private String email;
+    @JsonIgnore
+    private String emailNormalized;
+    @JsonIgnore
+    private String phoneNormalized;
     private String password;
     @Enumerated(EnumType.STRING)
     private UserRole role;
+    @Version
+    private long version;
 
     @OneToMany(mappedBy = "user", orphanRemoval = true, cascade = CascadeType.ALL, fetch = FetchType.EAGER)
     private List<Device> devices;
@@ -42,6 +50,13 @@ public class User implements UserDetails {
         this.role = UserRole.USER;
     }
 
+    @PrePersist
+    @PreUpdate
+    void normalizeContacts() {
+        emailNormalized = Contacts.normalizeEmail(email);
+        phoneNormalized = Contacts.normalizePhone(phone);
+    }
+
     @Override
     public Collection<? extends GrantedAuthority> getAuthorities() {
         return List.of(new SimpleGrantedAuthority(role.name()));
@@ -0,0 +1,5 @@
+package bg.tuvarna.devicebackend.models.enums;
+
+public enum BatchItemStatus {
+    CREATED, INVALID, NOT_REGISTERED
+}
@@ -0,0 +1,38 @@
+package bg.tuvarna.devicebackend.models.enums;
+
+import bg.tuvarna.devicebackend.controllers.exceptions.CustomException;
+import bg.tuvarna.devicebackend.controllers.exceptions.ErrorCode;
+
+/**
+ * What an admin event stream does when a subscriber's buffer is full, chosen with the {@code overflow}
+ * request parameter.
+ */
+public enum SlowConsumerPolicy {
+    /**
+     * Discard the oldest buffered event; the client sees a gap in event ids.
+     */
+    DROP_OLDEST("drop-oldest"),
+    /**
+     * Keep only the latest buffered event per aggregate, then drop the oldest if still full.
+     */
+    COALESCE("coalesce"),
+    /**
+     * Close the stream; the client reconnects with {@code Last-Event-ID} and is replayed from history.
+     */
+    DISCONNECT("disconnect");
+
+    private final String param;
+
+    SlowConsumerPolicy(String param) {
+        this.param = param;
+    }
+
+    public static SlowConsumerPolicy fromParam(String param) {
+        for (SlowConsumerPolicy policy : values()) {
+            if (policy.param.equalsIgnoreCase(param)) {
+                return policy;
+            }
+        }
+        throw new CustomException("Invalid overflow", ErrorCode.Validation, "drop-oldest", "coalesce", "disconnect");
+    }
+}
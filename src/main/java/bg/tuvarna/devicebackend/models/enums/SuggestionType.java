@@ -0,0 +1,6 @@
+package bg.tuvarna.devicebackend.models.enums;
+
+public enum SuggestionType {
+    USER,
+    DEVICE
+}
@@ -0,0 +1,34 @@
+package bg.tuvarna.devicebackend.models.enums;
+
+import bg.tuvarna.devicebackend.controllers.exceptions.CustomException;
+import bg.tuvarna.devicebackend.controllers.exceptions.ErrorCode;
+
+/**
+ * How a listing fills {@code CustomPage.totalItems}, chosen with the {@code withTotal} request parameter.
+ */
+public enum TotalCountMode {
+    /**
+     * No count query; {@code totalItems} and {@code totalPages} are -1 unless the last page was reached.
+     */
+    NONE("false"),
+    EXACT("exact"),
+    /**
+     * Planner statistics or a periodically refreshed cached count.
+     */
+    ESTIMATE("estimate");
+
+    private final String param;
+
+    TotalCountMode(String param) {
+        this.param = param;
+    }
+
+    public static TotalCountMode fromParam(String param) {
+        for (TotalCountMode mode : values()) {
+            if (mode.param.equalsIgnoreCase(param)) {
+                return mode;
+            }
+        }
+        throw new CustomException("Invalid withTotal", ErrorCode.Validation, "false", "exact", "estimate");
+    }
+}
@@ -0,0 +1,10 @@
+package bg.tuvarna.devicebackend.models.events;
+
+import java.time.LocalDate;
+
+public record DeviceArchivedEvent(String serialNumber, LocalDate warrantyExpirationDate) implements DomainEvent {
+    @Override
+    public String aggregateId() {
+        return serialNumber;
+    }
+}
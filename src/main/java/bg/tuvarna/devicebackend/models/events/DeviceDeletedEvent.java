@@ -0,0 +1,8 @@
+package bg.tuvarna.devicebackend.models.events;
+
+public record DeviceDeletedEvent(String serialNumber) implements DomainEvent {
+    @Override
+    public String aggregateId() {
+        return serialNumber;
+    }
+}
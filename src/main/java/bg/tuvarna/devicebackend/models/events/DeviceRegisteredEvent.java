@@ -0,0 +1,16 @@
+package bg.tuvarna.devicebackend.models.events;
+
+import java.time.LocalDate;
+
+public record DeviceRegisteredEvent(
+        String serialNumber,
+        Long userId,
+        Long passportId,
+        LocalDate purchaseDate,
+        LocalDate warrantyExpirationDate
+) implements DomainEvent {
+    @Override
+    public String aggregateId() {
+        return serialNumber;
+    }
+}
@@ -0,0 +1,14 @@
+package bg.tuvarna.devicebackend.models.events;
+
+import java.time.LocalDate;
+
+public record DeviceUpdatedEvent(
+        String serialNumber,
+        LocalDate purchaseDate,
+        LocalDate warrantyExpirationDate
+) implements DomainEvent {
+    @Override
+    public String aggregateId() {
+        return serialNumber;
+    }
+}
@@ -0,0 +1,13 @@
+package bg.tuvarna.devicebackend.models.events;
+
+/**
+ * Change of a device, renovation or user that downstream systems are told about through the outbox.
+ * Events are published with {@code ApplicationEventPublisher} inside the transaction that made the change.
+ */
+public interface DomainEvent {
+    String aggregateId();
+
+    default String type() {
+        return getClass().getSimpleName().replaceFirst("Event$", "");
+    }
+}
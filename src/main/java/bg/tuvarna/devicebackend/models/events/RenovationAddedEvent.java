@@ -0,0 +1,13 @@
+package bg.tuvarna.devicebackend.models.events;
+
+import java.time.LocalDate;
+
+public record RenovationAddedEvent(
+        String deviceSerialNumber,
+        LocalDate renovationDate
+) implements DomainEvent {
+    @Override
+    public String aggregateId() {
+        return deviceSerialNumber;
+    }
+}
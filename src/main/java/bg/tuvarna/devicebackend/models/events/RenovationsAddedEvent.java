@@ -0,0 +1,20 @@
+package bg.tuvarna.devicebackend.models.events;
+
+import java.time.LocalDate;
+
+/**
+ * Renovations saved by one batch request. Only a summary is carried; the devices that got renovations
+ * show up in the device change feed.
+ */
+public record RenovationsAddedEvent(
+        String batchId,
+        int renovations,
+        int devices,
+        LocalDate firstRenovationDate,
+        LocalDate lastRenovationDate
+) implements DomainEvent {
+    @Override
+    public String aggregateId() {
+        return batchId;
+    }
+}
@@ -0,0 +1,13 @@
+package bg.tuvarna.devicebackend.models.events;
+
+public record UserUpdatedEvent(
+        Long userId,
+        String fullName,
+        String email,
+        String phone
+) implements DomainEvent {
+    @Override
+    public String aggregateId() {
+        return String.valueOf(userId);
+    }
+}
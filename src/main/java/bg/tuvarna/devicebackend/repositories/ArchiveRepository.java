@@ -0,0 +1,154 @@
+package bg.tuvarna.devicebackend.repositories;
+
+import bg.tuvarna.devicebackend.models.dtos.ArchivedDeviceVO;
+import bg.tuvarna.devicebackend.models.dtos.ArchivedRenovationVO;
+import lombok.AllArgsConstructor;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.*;
+
+@Repository
+@AllArgsConstructor
+public class ArchiveRepository {
+    public record Candidate(String serialNumber, LocalDate warrantyExpirationDate) {
+    }
+
+    private static final String DEVICE_COLUMNS =
+            "serial_number, purchase_date, warranty_expiration_date, comment, user_id, passport_id, archived_at";
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    /**
+     * Locks the next devices whose warranty expired before {@code cutoff}, oldest first, for the rest of
+     * the transaction so concurrent writes cannot be lost between the copy and the delete. Rows are locked in
+     * serial number order, like every other multi-device write.
+     */
+    public List<Candidate> lockArchivable(LocalDate cutoff, int limit) {
+        return jdbcTemplate.query(
+                "select serial_number, warranty_expiration_date from devices " +
+                        "where warranty_expiration_date < :cutoff and serial_number in (" +
+                        "select serial_number from devices where warranty_expiration_date < :cutoff " +
+                        "order by warranty_expiration_date, serial_number limit :limit) " +
+                        "order by serial_number for update",
+                new MapSqlParameterSource("cutoff", Date.valueOf(cutoff)).addValue("limit", limit),
+                (rs, rowNum) -> new Candidate(rs.getString(1), rs.getDate(2).toLocalDate())
+        );
+    }
+
+    /**
+     * Copies the devices and their renovations into the archive tables and deletes them from the hot ones.
+     *
+     * @return number of renovations moved
+     */
+    public int moveToArchive(Collection<String> serialNumbers, Instant archivedAt) {
+        MapSqlParameterSource params = new MapSqlParameterSource("serialNumbers", serialNumbers)
+                .addValue("archivedAt", Timestamp.from(archivedAt));
+
+        jdbcTemplate.update(
+                "insert into devices_archive (" + DEVICE_COLUMNS + ", updated_at) " +
+                        "select serial_number, purchase_date, warranty_expiration_date, comment, user_id, passport_id, " +
+                        ":archivedAt, updated_at from devices where serial_number in (:serialNumbers)",
+                params
+        );
+        int renovations = jdbcTemplate.update(
+                "insert into renovations_archive (id, description, renovation_date, device_serial_number, archived_at) " +
+                        "select id, description, renovation_date, device_serial_number, :archivedAt " +
+                        "from renovations where device_serial_number in (:serialNumbers)",
+                params
+        );
+        jdbcTemplate.update("delete from renovations where device_serial_number in (:serialNumbers)", params);
+        jdbcTemplate.update("delete from devices where serial_number in (:serialNumbers)", params);
+        return renovations;
+    }
+
+    public Optional<ArchivedDeviceVO> findBySerialNumber(String serialNumber) {
+        List<ArchivedDeviceVO> devices = findDevices(
+                "select " + DEVICE_COLUMNS + " from devices_archive where serial_number = :serialNumber",
+                new MapSqlParameterSource("serialNumber", serialNumber)
+        );
+        return devices.stream().findFirst();
+    }
+
+    public boolean existsBySerialNumber(String serialNumber) {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                "select exists (select 1 from devices_archive where serial_number = :serialNumber)",
+                new MapSqlParameterSource("serialNumber", serialNumber),
+                Boolean.class
+        ));
+    }
+
+    /**
+     * @param userId owner filter, or null for all archived devices
+     */
+    public List<ArchivedDeviceVO> findPage(Long userId, int offset, int limit) {
+        return findDevices(
+                "select " + DEVICE_COLUMNS + " from devices_archive" + ownerFilter(userId) +
+                        " order by serial_number limit :limit offset :offset",
+                new MapSqlParameterSource("userId", userId).addValue("limit", limit).addValue("offset", offset)
+        );
+    }
+
+    public long count(Long userId) {
+        Long count = jdbcTemplate.queryForObject(
+                "select count(*) from devices_archive" + ownerFilter(userId),
+                new MapSqlParameterSource("userId", userId),
+                Long.class
+        );
+        return count != null ? count : 0;
+    }
+
+    private List<ArchivedDeviceVO> findDevices(String sql, MapSqlParameterSource params) {
+        List<ArchivedDeviceVO> devices = jdbcTemplate.query(sql, params, (rs, rowNum) -> toDevice(rs, List.of()));
+        if (devices.isEmpty()) {
+            return devices;
+        }
+
+        Map<String, List<ArchivedRenovationVO>> renovations = new HashMap<>();
+        jdbcTemplate.query(
+                "select id, description, renovation_date, device_serial_number from renovations_archive " +
+                        "where device_serial_number in (:serialNumbers) order by renovation_date, id",
+                new MapSqlParameterSource("serialNumbers", devices.stream().map(ArchivedDeviceVO::serialNumber).toList()),
+                (RowCallbackHandler) rs -> renovations
+                        .computeIfAbsent(rs.getString(4), serial -> new ArrayList<>())
+                        .add(new ArchivedRenovationVO(rs.getLong(1), rs.getString(2), toLocalDate(rs.getDate(3))))
+        );
+
+        return devices.stream()
+                .map(device -> new ArchivedDeviceVO(
+                        device.serialNumber(), device.purchaseDate(), device.warrantyExpirationDate(), device.comment(),
+                        device.userId(), device.passportId(), device.archivedAt(),
+                        renovations.getOrDefault(device.serialNumber(), List.of())
+                ))
+                .toList();
+    }
+
+    private static String ownerFilter(Long userId) {
+        return userId != null ? " where user_id = :userId" : "";
+    }
+
+    private static ArchivedDeviceVO toDevice(ResultSet rs, List<ArchivedRenovationVO> renovations) throws SQLException {
+        return new ArchivedDeviceVO(
+                rs.getString("serial_number"),
+                toLocalDate(rs.getDate("purchase_date")),
+                toLocalDate(rs.getDate("warranty_expiration_date")),
+                rs.getString("comment"),
+                rs.getObject("user_id", Long.class),
+                rs.getObject("passport_id", Long.class),
+                rs.getTimestamp("archived_at").toInstant(),
+                renovations
+        );
+    }
+
+    private static LocalDate toLocalDate(Date date) {
+        return date != null ? date.toLocalDate() : null;
+    }
+}
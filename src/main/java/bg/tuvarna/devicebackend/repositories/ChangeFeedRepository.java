@@ -0,0 +1,170 @@
+package bg.tuvarna.devicebackend.repositories;
+
+import bg.tuvarna.devicebackend.config.DatabaseDialect;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public class ChangeFeedRepository {
+    public enum Kind { DEVICE, PASSPORT, DELETED, PASSPORT_DELETED }
+
+    public record ChangeRef(Kind kind, String key, long seq) {
+    }
+
+    private static final long SEQUENCER_LOCK_ID = 0x6368616e6765L;
+    private static final String[][] FEED_TABLES = {
+            {"devices", "serial_number"},
+            {"passports", "id"},
+            {"device_tombstones", "serial_number"},
+            {"passport_tombstones", "passport_id"}
+    };
+
+    private final JdbcTemplate jdbcTemplate;
+    private final DatabaseDialect dialect;
+
+    public ChangeFeedRepository(JdbcTemplate jdbcTemplate, DatabaseDialect dialect) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.dialect = dialect;
+    }
+
+    /**
+     * Takes the sequencer lock for the current transaction, so that only one run numbers rows at a time
+     * across all instances. PostgreSQL uses a transaction-scoped advisory lock and skips the run if it is
+     * held; H2 (single node) waits for the purge watermark row instead.
+     *
+     * @return {@code false} when another run holds the lock
+     */
+    public boolean tryLockSequencer() {
+        if (dialect.isPostgres()) {
+            return Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                    "select pg_try_advisory_xact_lock(?)", Boolean.class, SEQUENCER_LOCK_ID
+            ));
+        }
+        jdbcTemplate.queryForObject("select purged_through from change_sequence where id = 1 for update", Long.class);
+        return true;
+    }
+
+    /**
+     * Gives pending rows (those with a null {@code change_seq}) of every feed table the next sequence values.
+     *
+     * @return the number of rows numbered, at most {@code limit} per table
+     */
+    public int sequencePending(int limit) {
+        String next = dialect.isPostgres() ? "nextval('change_seq_values')" : "next value for change_seq_values";
+        int sequenced = 0;
+        for (String[] table : FEED_TABLES) {
+            sequenced += jdbcTemplate.update(
+                    "update " + table[0] + " set change_seq = " + next + " where " + table[1] + " in (" +
+                            "select " + table[1] + " from " + table[0] + " where change_seq is null limit ?)",
+                    limit
+            );
+        }
+        return sequenced;
+    }
+
+    /**
+     * Highest sequence value given to a device so far, 0 when none is.
+     */
+    public long lastDeviceSeq() {
+        Long last = jdbcTemplate.queryForObject("select max(change_seq) from devices", Long.class);
+        return last != null ? last : 0;
+    }
+
+    public long purgedThrough() {
+        Long purged = jdbcTemplate.queryForObject("select purged_through from change_sequence where id = 1", Long.class);
+        return purged != null ? purged : 0;
+    }
+
+    public List<ChangeRef> findChangedSince(long since, int limit) {
+        return jdbcTemplate.query(
+                "select kind, change_key, change_seq from (" +
+                        "select 'DEVICE' as kind, serial_number as change_key, change_seq from devices where change_seq > ? " +
+                        "union all " +
+                        "select 'PASSPORT', cast(id as varchar(255)), change_seq from passports where change_seq > ? " +
+                        "union all " +
+                        "select 'DELETED', serial_number, change_seq from device_tombstones where change_seq > ? " +
+                        "union all " +
+                        "select 'PASSPORT_DELETED', cast(passport_id as varchar(255)), change_seq from passport_tombstones where change_seq > ?" +
+                        ") changes order by change_seq limit ?",
+                (rs, rowNum) -> new ChangeRef(
+                        Kind.valueOf(rs.getString("kind")),
+                        rs.getString("change_key"),
+                        rs.getLong("change_seq")
+                ),
+                since, since, since, since, limit
+        );
+    }
+
+    /**
+     * Marks devices changed outside JPA, e.g. by batched renovation inserts, for the next sequencer run.
+     */
+    public void touchDevices(Collection<String> serialNumbers, Instant updatedAt) {
+        List<String> keys = List.copyOf(serialNumbers);
+        jdbcTemplate.batchUpdate(
+                "update devices set change_seq = null, updated_at = ?, version = version + 1 where serial_number = ?",
+                keys,
+                keys.size(),
+                (ps, serialNumber) -> {
+                    ps.setTimestamp(1, Timestamp.from(updatedAt));
+                    ps.setString(2, serialNumber);
+                }
+        );
+    }
+
+    public void insertTombstones(Collection<String> serialNumbers, Instant deletedAt) {
+        List<String> keys = List.copyOf(serialNumbers);
+        jdbcTemplate.batchUpdate(
+                "delete from device_tombstones where serial_number = ?",
+                keys,
+                keys.size(),
+                (ps, serialNumber) -> ps.setString(1, serialNumber)
+        );
+        jdbcTemplate.batchUpdate(
+                "insert into device_tombstones (serial_number, change_seq, deleted_at) values (?, null, ?)",
+                keys,
+                keys.size(),
+                (ps, serialNumber) -> {
+                    ps.setString(1, serialNumber);
+                    ps.setTimestamp(2, Timestamp.from(deletedAt));
+                }
+        );
+    }
+
+    public void insertPassportTombstone(long passportId, Instant deletedAt) {
+        jdbcTemplate.update("delete from passport_tombstones where passport_id = ?", passportId);
+        jdbcTemplate.update(
+                "insert into passport_tombstones (passport_id, change_seq, deleted_at) values (?, null, ?)",
+                passportId, Timestamp.from(deletedAt)
+        );
+    }
+
+    /**
+     * Deletes tombstones older than {@code cutoff} and remembers the highest removed sequence value,
+     * below which a token can no longer be resumed.
+     */
+    public int purgeTombstones(Instant cutoff) {
+        Timestamp before = Timestamp.from(cutoff);
+        Long maxSeq = jdbcTemplate.queryForObject(
+                "select max(change_seq) from (" +
+                        "select change_seq from device_tombstones where deleted_at < ? " +
+                        "union all " +
+                        "select change_seq from passport_tombstones where deleted_at < ?" +
+                        ") purged",
+                Long.class, before, before
+        );
+        if (maxSeq == null) {
+            return 0;
+        }
+
+        jdbcTemplate.update(
+                "update change_sequence set purged_through = ? where id = 1 and purged_through < ?", maxSeq, maxSeq
+        );
+        return jdbcTemplate.update("delete from device_tombstones where change_seq <= ?", maxSeq)
+                + jdbcTemplate.update("delete from passport_tombstones where change_seq <= ?", maxSeq);
+    }
+}
@@ -1,14 +1,20 @@
 package bg.tuvarna.devicebackend.repositories;
 
 import bg.tuvarna.devicebackend.models.entities.Device;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
 @Repository
 public interface DeviceRepository extends JpaRepository<Device, String> {
     @Transactional
@@ -16,7 +22,7 @@ public interface DeviceRepository extends JpaRepository<Device, String> {
     @Query("delete from Device d where d.serialNumber = ?1")
     void deleteBySerialNumber(String serialNumber);
 
-    @Query("select distinct d from Device d " +
+    String SEARCH = "from Device d " +
             "left join d.user u " +
             "left join d.passport p " +
             "where (?1 is null OR ( ?1 is not null AND (lower(d.serialNumber) LIKE concat('%',lower(?1),'%') OR " +
@@ -25,11 +31,47 @@ public interface DeviceRepository extends JpaRepository<Device, String> {
             "lower(u.email) LIKE concat('%',lower(?1),'%') OR " +
             "lower(u.phone) LIKE concat('%',lower(?1),'%') OR " +
             "lower(p.name) LIKE concat('%',lower(?1),'%') OR " +
-            "lower(p.model) LIKE concat('%',lower(?1),'%'))))")
-    Page<Device> findAll(String searchBy, Pageable pageable);
+            "lower(p.model) LIKE concat('%',lower(?1),'%'))))";
 
-    @Query("select distinct d from Device d " +
+    String ALL = "from Device d " +
             "left join d.user u " +
-            "left join d.passport p ")
+            "left join d.passport p ";
+
+    @Query("select distinct d " + SEARCH)
+    Page<Device> findAll(String searchBy, Pageable pageable);
+
+    @Query("select distinct d " + SEARCH)
+    Slice<Device> searchSlice(String searchBy, Pageable pageable);
+
+    @Query("select count(distinct d) " + SEARCH)
+    long countSearch(String searchBy);
+
+    @Query("select distinct d " + ALL)
     Page<Device> getAllDevices(Pageable pageable);
+
+    @Query("select distinct d " + ALL)
+    Slice<Device> getAllDevicesSlice(Pageable pageable);
+
+    @Query("select distinct d from Device d left join fetch d.renovations left join fetch d.passport where d.serialNumber in ?1")
+    List<Device> findWithRenovationsBySerialNumberIn(Collection<String> serialNumbers);
+
+    /**
+     * Same format as {@code ETags.device(Device)}, read without loading the device graph.
+     */
+    @Query("select concat(cast(d.version as String), '.', cast(coalesce(p.version, 0) as String), '.', " +
+            "cast(coalesce(u.version, 0) as String)) " +
+            "from Device d left join d.passport p left join d.user u where d.serialNumber = ?1")
+    Optional<String> findVersionTag(String serialNumber);
+
+    /**
+     * Locks the device row until the calling transaction ends, before any aggregate row is touched.
+     */
+    @Query(value = "select serial_number from devices where serial_number = ?1 for update", nativeQuery = true)
+    Optional<String> lockBySerialNumber(String serialNumber);
+
+    @Query("select d.serialNumber from Device d where d.serialNumber in ?1")
+    List<String> findExistingSerialNumbers(Collection<String> serialNumbers);
+
+    @Query("select d.serialNumber from Device d where d.serialNumber > ?1 order by d.serialNumber")
+    List<String> findSerialNumbersAfter(String serialNumber, Limit limit);
 }
\ No newline at end of file
@@ -0,0 +1,192 @@
+package bg.tuvarna.devicebackend.repositories;
+
+import bg.tuvarna.devicebackend.config.DatabaseDialect;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.*;
+
+/**
+ * Reads and writes {@code fleet_counters}. Increments are upserts, so concurrent writers never lose one.
+ */
+@Repository
+public class FleetCounterRepository {
+    public static final String DEVICES = "devices.total";
+    public static final String REGISTERED_DEVICES = "devices.registered";
+    public static final String ANONYMOUS_DEVICES = "devices.anonymous";
+    public static final String ACTIVE_WARRANTIES = "devices.warranty.active";
+    public static final String EXPIRED_WARRANTIES = "devices.warranty.expired";
+    public static final String PASSPORT_DEVICES_PREFIX = "devices.passport.";
+    public static final String USERS = "users.total";
+    public static final String PASSPORTS = "passports.total";
+    public static final String WARRANTY_AS_OF = "warranty.as-of";
+
+    public record DeviceFacts(boolean registered, Long passportId, LocalDate warrantyExpirationDate) {
+    }
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final DatabaseDialect dialect;
+
+    public FleetCounterRepository(NamedParameterJdbcTemplate jdbcTemplate, DatabaseDialect dialect) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.dialect = dialect;
+    }
+
+    public void add(Map<String, Long> deltas) {
+        String sql = dialect.isPostgres()
+                ? "insert into fleet_counters (name, amount) values (:name, :delta) " +
+                "on conflict (name) do update set amount = fleet_counters.amount + excluded.amount"
+                : "merge into fleet_counters t " +
+                "using (select cast(:name as varchar(100)) as name, cast(:delta as bigint) as delta) s " +
+                "on t.name = s.name " +
+                "when matched then update set amount = t.amount + s.delta " +
+                "when not matched then insert (name, amount) values (s.name, s.delta)";
+
+        // key order, so that two writers touching the same counters cannot deadlock
+        jdbcTemplate.batchUpdate(sql, new TreeMap<>(deltas).entrySet().stream()
+                .map(entry -> new MapSqlParameterSource()
+                        .addValue("name", entry.getKey())
+                        .addValue("delta", entry.getValue()))
+                .toArray(MapSqlParameterSource[]::new));
+    }
+
+    public void set(String name, long amount) {
+        if (jdbcTemplate.update(
+                "update fleet_counters set amount = :amount where name = :name",
+                Map.of("name", name, "amount", amount)
+        ) == 0) {
+            jdbcTemplate.update(
+                    "insert into fleet_counters (name, amount) values (:name, :amount)",
+                    Map.of("name", name, "amount", amount)
+            );
+        }
+    }
+
+    public void delete(String name) {
+        jdbcTemplate.update("delete from fleet_counters where name = :name", Map.of("name", name));
+    }
+
+    public Map<String, Long> findAll() {
+        Map<String, Long> counters = new HashMap<>();
+        jdbcTemplate.getJdbcTemplate().query("select name, amount from fleet_counters", rs -> {
+            counters.put(rs.getString(1), rs.getLong(2));
+        });
+        return counters;
+    }
+
+    /**
+     * Reads and locks one counter until the calling transaction ends.
+     *
+     * @return the value, or null when the counter does not exist
+     */
+    public Long lock(String name) {
+        List<Long> values = jdbcTemplate.queryForList(
+                "select amount from fleet_counters where name = :name for update",
+                Map.of("name", name),
+                Long.class
+        );
+        return values.isEmpty() ? null : values.getFirst();
+    }
+
+    /**
+     * Reads one counter and keeps it from being changed, but not from being read or share-locked by other
+     * transactions, until the calling transaction ends. H2 has no shared row locks; it reads without one.
+     *
+     * @return the value, or null when the counter does not exist
+     */
+    public Long lockShared(String name) {
+        List<Long> values = jdbcTemplate.queryForList(
+                "select amount from fleet_counters where name = :name" + (dialect.isPostgres() ? " for share" : ""),
+                Map.of("name", name),
+                Long.class
+        );
+        return values.isEmpty() ? null : values.getFirst();
+    }
+
+    public List<DeviceFacts> findDeviceFacts(Collection<String> serialNumbers) {
+        return jdbcTemplate.query(
+                "select user_id, passport_id, warranty_expiration_date from devices where serial_number in (:serialNumbers)",
+                Map.of("serialNumbers", serialNumbers),
+                (rs, rowNum) -> {
+                    rs.getLong("user_id");
+                    boolean registered = !rs.wasNull();
+                    long passportId = rs.getLong("passport_id");
+                    Long passport = rs.wasNull() ? null : passportId;
+                    Date warranty = rs.getDate("warranty_expiration_date");
+                    return new DeviceFacts(registered, passport, warranty != null ? warranty.toLocalDate() : null);
+                }
+        );
+    }
+
+    /**
+     * Devices whose warranty ends within {@code [from, until)}, read through the warranty date index.
+     */
+    public long countWarrantiesEnding(LocalDate from, LocalDate until) {
+        Long count = jdbcTemplate.queryForObject(
+                "select count(*) from devices where warranty_expiration_date >= :from and warranty_expiration_date < :until",
+                Map.of("from", Date.valueOf(from), "until", Date.valueOf(until)),
+                Long.class
+        );
+        return count != null ? count : 0;
+    }
+
+    /**
+     * Exact counts of everything in the table, with the warranty split as of {@code asOf}. Full scans.
+     */
+    public Map<String, Long> compute(LocalDate asOf) {
+        Map<String, Long> counters = new HashMap<>();
+        jdbcTemplate.query(
+                "select count(*) as total, count(user_id) as registered, " +
+                        "coalesce(sum(case when warranty_expiration_date >= :asOf then 1 else 0 end), 0) as active, " +
+                        "coalesce(sum(case when warranty_expiration_date < :asOf then 1 else 0 end), 0) as expired " +
+                        "from devices",
+                Map.of("asOf", Date.valueOf(asOf)),
+                rs -> {
+                    counters.put(DEVICES, rs.getLong("total"));
+                    counters.put(REGISTERED_DEVICES, rs.getLong("registered"));
+                    counters.put(ANONYMOUS_DEVICES, rs.getLong("total") - rs.getLong("registered"));
+                    counters.put(ACTIVE_WARRANTIES, rs.getLong("active"));
+                    counters.put(EXPIRED_WARRANTIES, rs.getLong("expired"));
+                }
+        );
+        jdbcTemplate.getJdbcTemplate().query(
+                "select passport_id, count(*) from devices where passport_id is not null group by passport_id",
+                rs -> {
+                    counters.put(PASSPORT_DEVICES_PREFIX + rs.getLong(1), rs.getLong(2));
+                }
+        );
+        counters.put(USERS, jdbcTemplate.getJdbcTemplate().queryForObject(
+                "select count(*) from users where role <> 'ADMIN'", Long.class));
+        counters.put(PASSPORTS, jdbcTemplate.getJdbcTemplate().queryForObject(
+                "select count(*) from passports", Long.class));
+        return counters;
+    }
+
+    /**
+     * Deletes those of the given counters that are zero; counters a writer has since moved are kept.
+     */
+    public void deleteIfZero(Collection<String> names) {
+        if (!names.isEmpty()) {
+            jdbcTemplate.update(
+                    "delete from fleet_counters where name in (:names) and amount = 0",
+                    Map.of("names", names)
+            );
+        }
+    }
+
+    /**
+     * Stores a counter unless a concurrent writer already created it.
+     */
+    public void insertIfAbsent(String name, long amount) {
+        String sql = dialect.isPostgres()
+                ? "insert into fleet_counters (name, amount) values (:name, :amount) on conflict (name) do nothing"
+                : "merge into fleet_counters t " +
+                "using (select cast(:name as varchar(100)) as name, cast(:amount as bigint) as amount) s " +
+                "on t.name = s.name " +
+                "when not matched then insert (name, amount) values (s.name, s.amount)";
+        jdbcTemplate.update(sql, Map.of("name", name, "amount", amount));
+    }
+}
@@ -0,0 +1,57 @@
+package bg.tuvarna.devicebackend.repositories;
+
+import bg.tuvarna.devicebackend.services.outbox.OutboxMessage;
+import lombok.AllArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.util.List;
+
+@Repository
+@AllArgsConstructor
+public class OutboxRepository {
+    private final JdbcTemplate jdbcTemplate;
+
+    public void insertAll(List<OutboxMessage> messages) {
+        jdbcTemplate.batchUpdate(
+                "insert into outbox_events (event_type, aggregate_id, payload, created_at) values (?, ?, ?, ?)",
+                messages,
+                messages.size(),
+                (ps, message) -> {
+                    ps.setString(1, message.type());
+                    ps.setString(2, message.aggregateId());
+                    ps.setString(3, message.payload());
+                    ps.setTimestamp(4, Timestamp.from(message.createdAt()));
+                }
+        );
+    }
+
+    public List<OutboxMessage> findOldest(int limit) {
+        return jdbcTemplate.query(
+                "select id, event_type, aggregate_id, created_at, payload from outbox_events order by id limit ?",
+                (rs, rowNum) -> new OutboxMessage(
+                        rs.getLong("id"),
+                        rs.getString("event_type"),
+                        rs.getString("aggregate_id"),
+                        rs.getTimestamp("created_at").toInstant(),
+                        rs.getString("payload")
+                ),
+                limit
+        );
+    }
+
+    public void deleteAll(List<OutboxMessage> messages) {
+        jdbcTemplate.batchUpdate(
+                "delete from outbox_events where id = ?",
+                messages,
+                messages.size(),
+                (ps, message) -> ps.setLong(1, message.id())
+        );
+    }
+
+    public long count() {
+        Long count = jdbcTemplate.queryForObject("select count(*) from outbox_events", Long.class);
+        return count != null ? count : 0;
+    }
+}
@@ -0,0 +1,83 @@
+package bg.tuvarna.devicebackend.repositories;
+
+import lombok.AllArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Reads and writes {@code refresh_tokens}. Tokens are only ever looked up by their hash, through its unique index.
+ */
+@Repository
+@AllArgsConstructor
+public class RefreshTokenRepository {
+    private final JdbcTemplate jdbcTemplate;
+
+    public record StoredToken(long id, long userId, String familyId, Instant expiresAt, Instant usedAt,
+                              Instant revokedAt) {
+    }
+
+    public void insert(String tokenHash, long userId, String familyId, Instant expiresAt) {
+        jdbcTemplate.update(
+                "insert into refresh_tokens (token_hash, user_id, family_id, expires_at) values (?, ?, ?, ?)",
+                tokenHash, userId, familyId, Timestamp.from(expiresAt)
+        );
+    }
+
+    public Optional<StoredToken> findByHash(String tokenHash) {
+        List<StoredToken> tokens = jdbcTemplate.query(
+                "select id, user_id, family_id, expires_at, used_at, revoked_at from refresh_tokens where token_hash = ?",
+                (rs, rowNum) -> new StoredToken(
+                        rs.getLong("id"),
+                        rs.getLong("user_id"),
+                        rs.getString("family_id"),
+                        rs.getTimestamp("expires_at").toInstant(),
+                        instant(rs, "used_at"),
+                        instant(rs, "revoked_at")
+                ),
+                tokenHash
+        );
+        return tokens.stream().findFirst();
+    }
+
+    /**
+     * Marks a token as rotated, unless it already was or has been revoked.
+     *
+     * @return {@code false} when another request used or revoked the token first
+     */
+    public boolean markUsed(long id, Instant now) {
+        return jdbcTemplate.update(
+                "update refresh_tokens set used_at = ? where id = ? and used_at is null and revoked_at is null",
+                Timestamp.from(now), id
+        ) == 1;
+    }
+
+    public int revokeFamily(String familyId, Instant now) {
+        return jdbcTemplate.update(
+                "update refresh_tokens set revoked_at = ? where family_id = ? and revoked_at is null",
+                Timestamp.from(now), familyId
+        );
+    }
+
+    public int revokeAllForUser(long userId, Instant now) {
+        return jdbcTemplate.update(
+                "update refresh_tokens set revoked_at = ? where user_id = ? and revoked_at is null",
+                Timestamp.from(now), userId
+        );
+    }
+
+    public int deleteExpired(Instant now) {
+        return jdbcTemplate.update("delete from refresh_tokens where expires_at < ?", Timestamp.from(now));
+    }
+
+    private static Instant instant(ResultSet rs, String column) throws SQLException {
+        Timestamp timestamp = rs.getTimestamp(column);
+        return timestamp != null ? timestamp.toInstant() : null;
+    }
+}
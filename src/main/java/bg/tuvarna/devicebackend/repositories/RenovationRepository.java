@@ -1,9 +1,32 @@
 package bg.tuvarna.devicebackend.repositories;
 
+import bg.tuvarna.devicebackend.models.dtos.RenovationListingVO;
 import bg.tuvarna.devicebackend.models.entities.Renovation;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDate;
+
 @Repository
-public interface RenovationRepository extends JpaRepository<Renovation, Long> {
-}
\ No newline at end of file
+public interface RenovationRepository extends JpaRepository<Renovation, Long>, RenovationRepositoryCustom {
+    /**
+     * The bounds are plain predicates on {@code renovation_date}, so PostgreSQL prunes every monthly
+     * partition outside {@code [?1, ?2)}. {@code d.passport.id} is read from the device's join column.
+     */
+    String RANGE = "select new bg.tuvarna.devicebackend.models.dtos.RenovationListingVO(" +
+            "r.id, r.description, r.renovationDate, d.serialNumber, d.passport.id) " +
+            "from Renovation r " +
+            "join r.device d " +
+            "where r.renovationDate >= ?1 and r.renovationDate < ?2 ";
+
+    String NEWEST_FIRST = "order by r.renovationDate desc, r.id desc";
+
+    @Query(RANGE + NEWEST_FIRST)
+    Slice<RenovationListingVO> findInRange(LocalDate from, LocalDate until, Pageable pageable);
+
+    @Query(RANGE + "and d.passport.id = ?3 " + NEWEST_FIRST)
+    Slice<RenovationListingVO> findInRangeForPassport(LocalDate from, LocalDate until, Long passportId, Pageable pageable);
+}
@@ -0,0 +1,13 @@
+package bg.tuvarna.devicebackend.repositories;
+
+import bg.tuvarna.devicebackend.models.entities.Renovation;
+
+import java.util.List;
+
+public interface RenovationRepositoryCustom {
+    /**
+     * Inserts the renovations with JDBC batches instead of one persist per row.
+     * Generated ids are not read back and the entities are not attached to the persistence context.
+     */
+    void batchInsert(List<Renovation> renovations);
+}
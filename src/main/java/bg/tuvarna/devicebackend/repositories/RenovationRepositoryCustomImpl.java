@@ -0,0 +1,33 @@
+package bg.tuvarna.devicebackend.repositories;
+
+import bg.tuvarna.devicebackend.models.entities.Renovation;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Date;
+import java.util.List;
+
+public class RenovationRepositoryCustomImpl implements RenovationRepositoryCustom {
+    private static final String INSERT_SQL =
+            "insert into renovations (description, renovation_date, device_serial_number) values (?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int batchSize;
+
+    public RenovationRepositoryCustomImpl(
+            JdbcTemplate jdbcTemplate,
+            @Value("${app.renovations.batch.jdbc-batch-size:5000}") int batchSize
+    ) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.batchSize = batchSize;
+    }
+
+    @Override
+    public void batchInsert(List<Renovation> renovations) {
+        jdbcTemplate.batchUpdate(INSERT_SQL, renovations, batchSize, (ps, renovation) -> {
+            ps.setString(1, renovation.getDescription());
+            ps.setDate(2, renovation.getRenovationDate() != null ? Date.valueOf(renovation.getRenovationDate()) : null);
+            ps.setString(3, renovation.getDevice().getSerialNumber());
+        });
+    }
+}
@@ -0,0 +1,219 @@
+package bg.tuvarna.devicebackend.repositories;
+
+import bg.tuvarna.devicebackend.config.DatabaseDialect;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.*;
+
+/**
+ * Reads and writes the {@code renovation_monthly_stats} and {@code model_device_counts} aggregates.
+ * Increments are upserts, so concurrent writers for the same model and month never lose an update.
+ * Rows are upserted in key order so that two writers touching the same rows cannot deadlock.
+ */
+@Repository
+public class RenovationStatsRepository {
+    public record MonthKey(String model, LocalDate monthStart) {
+    }
+
+    public record Row(String model, LocalDate monthStart, long renovations, long devices) {
+    }
+
+    private static final String RENOVATIONS_BY_MONTH =
+            "select p.model, extract(year from r.renovation_date) as y, extract(month from r.renovation_date) as m, count(*) as n " +
+                    "from %s r " +
+                    "join %s d on d.serial_number = r.device_serial_number " +
+                    "join passports p on p.id = d.passport_id " +
+                    "where r.renovation_date is not null " +
+                    "group by p.model, extract(year from r.renovation_date), extract(month from r.renovation_date)";
+
+    private static final Comparator<MonthKey> MONTH_KEY_ORDER =
+            Comparator.comparing(MonthKey::model).thenComparing(MonthKey::monthStart);
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final DatabaseDialect dialect;
+
+    public RenovationStatsRepository(NamedParameterJdbcTemplate jdbcTemplate, DatabaseDialect dialect) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.dialect = dialect;
+    }
+
+    /**
+     * Passport model of each device that has one, by serial number.
+     */
+    public Map<String, String> findModels(Collection<String> serialNumbers) {
+        Map<String, String> models = new HashMap<>();
+        jdbcTemplate.query(
+                "select d.serial_number, p.model from devices d join passports p on p.id = d.passport_id " +
+                        "where d.serial_number in (:serialNumbers)",
+                Map.of("serialNumbers", serialNumbers),
+                rs -> {
+                    models.put(rs.getString(1), rs.getString(2));
+                }
+        );
+        return models;
+    }
+
+    public Map<String, Long> countDevicesByModel(Collection<String> serialNumbers) {
+        Map<String, Long> counts = new HashMap<>();
+        jdbcTemplate.query(
+                "select p.model, count(*) from devices d join passports p on p.id = d.passport_id " +
+                        "where d.serial_number in (:serialNumbers) group by p.model",
+                Map.of("serialNumbers", serialNumbers),
+                rs -> {
+                    counts.put(rs.getString(1), rs.getLong(2));
+                }
+        );
+        return counts;
+    }
+
+    public void addRenovations(Map<MonthKey, Long> deltas) {
+        String sql = dialect.isPostgres()
+                ? "insert into renovation_monthly_stats (model, month_start, renovations) values (:model, :monthStart, :delta) " +
+                "on conflict (model, month_start) do update " +
+                "set renovations = renovation_monthly_stats.renovations + excluded.renovations"
+                : "merge into renovation_monthly_stats t " +
+                "using (select cast(:model as varchar(255)) as model, cast(:monthStart as date) as month_start, " +
+                "cast(:delta as bigint) as delta) s " +
+                "on t.model = s.model and t.month_start = s.month_start " +
+                "when matched then update set renovations = t.renovations + s.delta " +
+                "when not matched then insert (model, month_start, renovations) values (s.model, s.month_start, s.delta)";
+
+        jdbcTemplate.batchUpdate(sql, deltas.entrySet().stream()
+                .sorted(Map.Entry.comparingByKey(MONTH_KEY_ORDER))
+                .map(entry -> new MapSqlParameterSource()
+                        .addValue("model", entry.getKey().model())
+                        .addValue("monthStart", Date.valueOf(entry.getKey().monthStart()))
+                        .addValue("delta", entry.getValue()))
+                .toArray(MapSqlParameterSource[]::new));
+    }
+
+    public void addDevices(Map<String, Long> deltas) {
+        String sql = dialect.isPostgres()
+                ? "insert into model_device_counts (model, devices) values (:model, :delta) " +
+                "on conflict (model) do update set devices = model_device_counts.devices + excluded.devices"
+                : "merge into model_device_counts t " +
+                "using (select cast(:model as varchar(255)) as model, cast(:delta as bigint) as delta) s " +
+                "on t.model = s.model " +
+                "when matched then update set devices = t.devices + s.delta " +
+                "when not matched then insert (model, devices) values (s.model, s.delta)";
+
+        jdbcTemplate.batchUpdate(sql, new TreeMap<>(deltas).entrySet().stream()
+                .map(entry -> new MapSqlParameterSource()
+                        .addValue("model", entry.getKey())
+                        .addValue("delta", entry.getValue()))
+                .toArray(MapSqlParameterSource[]::new));
+    }
+
+    /**
+     * Stats rows with {@code from <= month_start < until}, joined with the current device count of the model.
+     */
+    public List<Row> findReport(LocalDate from, LocalDate until, String model) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("from", Date.valueOf(from))
+                .addValue("until", Date.valueOf(until));
+        String modelFilter = "";
+        if (model != null) {
+            modelFilter = "and s.model = :model ";
+            params.addValue("model", model);
+        }
+
+        return jdbcTemplate.query(
+                "select s.model, s.month_start, s.renovations, coalesce(c.devices, 0) as devices " +
+                        "from renovation_monthly_stats s " +
+                        "left join model_device_counts c on c.model = s.model " +
+                        "where s.month_start >= :from and s.month_start < :until " + modelFilter +
+                        "order by s.month_start, s.model",
+                params,
+                (rs, rowNum) -> new Row(
+                        rs.getString("model"),
+                        rs.getDate("month_start").toLocalDate(),
+                        rs.getLong("renovations"),
+                        rs.getLong("devices")
+                )
+        );
+    }
+
+    public boolean isEmpty() {
+        return Boolean.TRUE.equals(jdbcTemplate.getJdbcTemplate().queryForObject(
+                "select not exists (select 1 from renovation_monthly_stats) and not exists (select 1 from model_device_counts)",
+                Boolean.class
+        ));
+    }
+
+    /**
+     * Exact renovation counts from the hot and archive tables.
+     */
+    public Map<MonthKey, Long> computeRenovationCounts() {
+        Map<MonthKey, Long> counts = new HashMap<>();
+        for (String sql : List.of(
+                RENOVATIONS_BY_MONTH.formatted("renovations", "devices"),
+                RENOVATIONS_BY_MONTH.formatted("renovations_archive", "devices_archive")
+        )) {
+            jdbcTemplate.getJdbcTemplate().query(sql, rs -> {
+                MonthKey key = new MonthKey(rs.getString("model"), LocalDate.of(rs.getInt("y"), rs.getInt("m"), 1));
+                counts.merge(key, rs.getLong("n"), Long::sum);
+            });
+        }
+        return counts;
+    }
+
+    public Map<String, Long> computeDeviceCounts() {
+        Map<String, Long> counts = new HashMap<>();
+        jdbcTemplate.getJdbcTemplate().query(
+                "select p.model, count(*) from devices d join passports p on p.id = d.passport_id group by p.model",
+                rs -> {
+                    counts.put(rs.getString(1), rs.getLong(2));
+                }
+        );
+        return counts;
+    }
+
+    public Map<MonthKey, Long> findRenovationCounts() {
+        Map<MonthKey, Long> counts = new HashMap<>();
+        jdbcTemplate.getJdbcTemplate().query(
+                "select model, month_start, renovations from renovation_monthly_stats",
+                rs -> {
+                    counts.put(new MonthKey(rs.getString(1), rs.getDate(2).toLocalDate()), rs.getLong(3));
+                }
+        );
+        return counts;
+    }
+
+    public Map<String, Long> findDeviceCounts() {
+        Map<String, Long> counts = new HashMap<>();
+        jdbcTemplate.getJdbcTemplate().query(
+                "select model, devices from model_device_counts",
+                rs -> {
+                    counts.put(rs.getString(1), rs.getLong(2));
+                }
+        );
+        return counts;
+    }
+
+    /**
+     * Deletes the given rows if they are down to zero; a concurrent increment keeps its row.
+     */
+    public void deleteEmptyRenovationCounts(Collection<MonthKey> keys) {
+        jdbcTemplate.batchUpdate(
+                "delete from renovation_monthly_stats where model = :model and month_start = :monthStart and renovations = 0",
+                keys.stream()
+                        .map(key -> new MapSqlParameterSource()
+                                .addValue("model", key.model())
+                                .addValue("monthStart", Date.valueOf(key.monthStart())))
+                        .toArray(MapSqlParameterSource[]::new)
+        );
+    }
+
+    public void deleteEmptyDeviceCounts(Collection<String> models) {
+        jdbcTemplate.batchUpdate(
+                "delete from model_device_counts where model = :model and devices = 0",
+                models.stream()
+                        .map(model -> new MapSqlParameterSource().addValue("model", model))
+                        .toArray(MapSqlParameterSource[]::new)
+        );
+    }
+}
@@ -1,12 +1,15 @@
 package bg.tuvarna.devicebackend.repositories;
 
 import bg.tuvarna.devicebackend.models.entities.User;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -18,7 +21,22 @@ public interface UserRepository extends JpaRepository<User, Long> {
 
     User getByPhone(String phone);
 
-    @Query("select distinct u from User u " +
+    boolean existsByEmailNormalized(String emailNormalized);
+
+    boolean existsByPhoneNormalized(String phoneNormalized);
+
+    interface Contact {
+        Long getId();
+
+        String getEmail();
+
+        String getPhone();
+    }
+
+    @Query("select u.id as id, u.email as email, u.phone as phone from User u where u.id > ?1 order by u.id")
+    List<Contact> findContactsAfter(Long id, Limit limit);
+
+    String SEARCH = "from User u " +
             "left join u.devices d " +
             "left join d.passport p " +
             "where u.role!='ADMIN' AND (?1 is null OR ( ?1 is not null AND lower(u.fullName) LIKE concat('%',lower(?1),'%') OR " +
@@ -27,12 +45,36 @@ public interface UserRepository extends JpaRepository<User, Long> {
             "lower(u.phone) LIKE concat('%',lower(?1),'%') OR " +
             "lower(p.name) LIKE concat('%',lower(?1),'%') OR " +
             "lower(p.model) LIKE concat('%',lower(?1),'%') OR " +
-            "lower(d.serialNumber) LIKE concat('%',lower(?1),'%')))")
-    Page<User> searchBy(String searchBy, Pageable pageable);
+            "lower(d.serialNumber) LIKE concat('%',lower(?1),'%')))";
 
-    @Query("select distinct u from User u " +
+    String ALL = "from User u " +
             "left join u.devices d " +
             "left join d.passport p " +
-            "where u.role!='ADMIN'")
+            "where u.role!='ADMIN'";
+
+    @Query("select distinct u " + SEARCH)
+    Page<User> searchBy(String searchBy, Pageable pageable);
+
+    @Query("select distinct u " + SEARCH)
+    Slice<User> searchSlice(String searchBy, Pageable pageable);
+
+    @Query("select count(distinct u) " + SEARCH)
+    long countSearch(String searchBy);
+
+    @Query("select distinct u " + ALL)
     Page<User> getAllUsers(Pageable pageable);
+
+    @Query("select distinct u " + ALL)
+    Slice<User> getAllUsersSlice(Pageable pageable);
+
+    @Query("select count(u) from User u where u.role != 'ADMIN'")
+    long countNonAdmins();
+
+    interface Suggestible extends Contact {
+        String getFullName();
+    }
+
+    @Query("select u.id as id, u.fullName as fullName, u.email as email, u.phone as phone from User u " +
+            "where u.role != 'ADMIN' and u.id > ?1 order by u.id")
+    List<Suggestible> findSuggestiblesAfter(Long id, Limit limit);
 }
\ No newline at end of file
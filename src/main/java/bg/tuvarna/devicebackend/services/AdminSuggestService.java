@@ -0,0 +1,201 @@
+package bg.tuvarna.devicebackend.services;
+
+import bg.tuvarna.devicebackend.models.dtos.SuggestionVO;
+import bg.tuvarna.devicebackend.models.enums.SuggestionType;
+import bg.tuvarna.devicebackend.models.events.*;
+import bg.tuvarna.devicebackend.repositories.DeviceRepository;
+import bg.tuvarna.devicebackend.repositories.UserRepository;
+import bg.tuvarna.devicebackend.repositories.UserRepository.Suggestible;
+import bg.tuvarna.devicebackend.utils.PrefixIndex;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Typeahead over user emails, phones and names and device serial numbers, answered from a resident
+ * {@link PrefixIndex} instead of the {@code %LIKE%} search. Committed registrations, updates, deletions
+ * and archiving are applied as they happen; a periodic rebuild picks up changes made on other instances.
+ * Entries are capped at {@code app.admin.suggest.max-entries}.
+ */
+@Service
+public class AdminSuggestService {
+    public static final int MAX_LIMIT = 50;
+
+    private static final Logger logger = LoggerFactory.getLogger(AdminSuggestService.class);
+    private static final int PAGE_SIZE = 10_000;
+
+    private final UserRepository userRepository;
+    private final DeviceRepository deviceRepository;
+    private final int maxEntries;
+    private final int maxTermLength;
+
+    private volatile PrefixIndex<SuggestionVO> current;
+    private volatile PrefixIndex<SuggestionVO> building;
+    private final Object writeLock = new Object();
+
+    private final Counter rejected;
+
+    public AdminSuggestService(
+            UserRepository userRepository,
+            DeviceRepository deviceRepository,
+            MeterRegistry meterRegistry,
+            @Value("${app.admin.suggest.max-entries:1000000}") int maxEntries,
+            @Value("${app.admin.suggest.max-term-length:64}") int maxTermLength
+    ) {
+        this.userRepository = userRepository;
+        this.deviceRepository = deviceRepository;
+        this.maxEntries = maxEntries;
+        this.maxTermLength = maxTermLength;
+        this.current = new PrefixIndex<>(maxEntries, maxTermLength);
+
+        rejected = Counter.builder("admin.suggest.rejected")
+                .description("Terms not indexed because the index was full")
+                .register(meterRegistry);
+        Gauge.builder("admin.suggest.entries", this, s -> s.current.size()).register(meterRegistry);
+    }
+
+    public List<SuggestionVO> suggest(String query, int limit) {
+        return current.search(query, Math.min(Math.max(limit, 0), MAX_LIMIT));
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onUserRegistered(UserRegisteredEvent event) {
+        apply(index -> putUser(index, event.userId(), event.fullName(), event.email(), event.phone()));
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onUserUpdated(UserUpdatedEvent event) {
+        apply(index -> putUser(index, event.userId(), event.fullName(), event.email(), event.phone()));
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onDeviceRegistered(DeviceRegisteredEvent event) {
+        apply(index -> putDevice(index, event.serialNumber()));
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onDeviceDeleted(DeviceDeletedEvent event) {
+        apply(index -> index.remove(deviceOwner(event.serialNumber())));
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onDeviceArchived(DeviceArchivedEvent event) {
+        apply(index -> index.remove(deviceOwner(event.serialNumber())));
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        rebuild();
+    }
+
+    /**
+     * Loads a fresh index page by page, reading only the indexed columns rather than whole users, and swaps it in. Changes committed while it loads are applied to
+     * both indexes.
+     */
+    @Scheduled(
+            fixedDelayString = "${app.admin.suggest.rebuild-interval:PT30M}",
+            initialDelayString = "${app.admin.suggest.rebuild-interval:PT30M}"
+    )
+    public synchronized void rebuild() {
+        long start = System.nanoTime();
+        PrefixIndex<SuggestionVO> next = new PrefixIndex<>(maxEntries, maxTermLength);
+        building = next;
+
+        Long afterId = 0L;
+        List<Suggestible> users;
+        do {
+            users = userRepository.findSuggestiblesAfter(afterId, Limit.of(PAGE_SIZE));
+            synchronized (writeLock) {
+                for (Suggestible user : users) {
+                    putUser(next, user.getId(), user.getFullName(), user.getEmail(), user.getPhone());
+                }
+            }
+            if (!users.isEmpty()) {
+                afterId = users.getLast().getId();
+            }
+        } while (users.size() == PAGE_SIZE);
+
+        String afterSerial = "";
+        List<String> serialNumbers;
+        do {
+            serialNumbers = deviceRepository.findSerialNumbersAfter(afterSerial, Limit.of(PAGE_SIZE));
+            synchronized (writeLock) {
+                for (String serialNumber : serialNumbers) {
+                    putDevice(next, serialNumber);
+                }
+            }
+            if (!serialNumbers.isEmpty()) {
+                afterSerial = serialNumbers.getLast();
+            }
+        } while (serialNumbers.size() == PAGE_SIZE);
+
+        synchronized (writeLock) {
+            current = next;
+            building = null;
+        }
+
+        logger.info("Admin suggest index rebuilt with {} terms in {} ms",
+                next.size(), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private void apply(Consumer<PrefixIndex<SuggestionVO>> change) {
+        synchronized (writeLock) {
+            change.accept(current);
+            PrefixIndex<SuggestionVO> next = building;
+            if (next != null) {
+                change.accept(next);
+            }
+        }
+    }
+
+    private void putUser(PrefixIndex<SuggestionVO> index, Long id, String fullName, String email, String phone) {
+        String userId = String.valueOf(id);
+        Map<String, SuggestionVO> terms = new LinkedHashMap<>();
+        if (fullName != null) {
+            SuggestionVO byName = new SuggestionVO(SuggestionType.USER, userId, "fullName", fullName, fullName);
+            terms.put(fullName, byName);
+            for (String token : fullName.trim().split("\\s+")) {
+                terms.putIfAbsent(token, byName);
+            }
+        }
+        if (email != null) {
+            terms.put(email, new SuggestionVO(SuggestionType.USER, userId, "email", email, fullName));
+        }
+        if (phone != null) {
+            SuggestionVO byPhone = new SuggestionVO(SuggestionType.USER, userId, "phone", phone, fullName);
+            terms.put(phone, byPhone);
+            terms.putIfAbsent(phone.replaceAll("[^0-9+]", ""), byPhone);
+        }
+        record(index.put("u" + userId, terms));
+    }
+
+    private void putDevice(PrefixIndex<SuggestionVO> index, String serialNumber) {
+        record(index.put(deviceOwner(serialNumber), Map.of(
+                serialNumber, new SuggestionVO(SuggestionType.DEVICE, serialNumber, "serialNumber", serialNumber, serialNumber)
+        )));
+    }
+
+    private void record(int rejectedTerms) {
+        if (rejectedTerms > 0) {
+            rejected.increment(rejectedTerms);
+        }
+    }
+
+    private static String deviceOwner(String serialNumber) {
+        return "d" + serialNumber;
+    }
+}
@@ -0,0 +1,150 @@
+package bg.tuvarna.devicebackend.services;
+
+import bg.tuvarna.devicebackend.controllers.exceptions.CustomException;
+import bg.tuvarna.devicebackend.controllers.exceptions.ErrorCode;
+import bg.tuvarna.devicebackend.models.dtos.ArchivedDeviceVO;
+import bg.tuvarna.devicebackend.models.events.DeviceArchivedEvent;
+import bg.tuvarna.devicebackend.repositories.ArchiveRepository;
+import bg.tuvarna.devicebackend.repositories.ArchiveRepository.Candidate;
+import bg.tuvarna.devicebackend.utils.CustomPage;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.Period;
+import java.util.List;
+
+/**
+ * Moves devices whose warranty expired more than {@code app.archive.min-expired-age} ago, with their
+ * renovations, from the hot tables into {@code devices_archive}/{@code renovations_archive}. Each chunk is
+ * its own transaction, so a run never holds locks on more than {@code app.archive.chunk-size} devices.
+ * Archived devices leave a change-feed tombstone and publish {@link DeviceArchivedEvent}.
+ */
+@Service
+public class ArchiveService {
+    private static final Logger logger = LoggerFactory.getLogger(ArchiveService.class);
+
+    private final ArchiveRepository archiveRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ChangeFeedService changeFeedService;
+    private final RenovationStatsService renovationStatsService;
+    private final FleetStatsService fleetStatsService;
+    private final DeviceSerialFilter deviceSerialFilter;
+    private final ApplicationEventPublisher eventPublisher;
+    private final boolean enabled;
+    private final Period minExpiredAge;
+    private final int chunkSize;
+    private final int maxChunksPerRun;
+
+    private final Counter archivedDevices;
+    private final Counter archivedRenovations;
+
+    public ArchiveService(
+            ArchiveRepository archiveRepository,
+            TransactionTemplate transactionTemplate,
+            ChangeFeedService changeFeedService,
+            RenovationStatsService renovationStatsService,
+            FleetStatsService fleetStatsService,
+            DeviceSerialFilter deviceSerialFilter,
+            ApplicationEventPublisher eventPublisher,
+            MeterRegistry meterRegistry,
+            @Value("${app.archive.enabled:false}") boolean enabled,
+            @Value("${app.archive.min-expired-age:P3Y}") Period minExpiredAge,
+            @Value("${app.archive.chunk-size:500}") int chunkSize,
+            @Value("${app.archive.max-chunks-per-run:200}") int maxChunksPerRun
+    ) {
+        this.archiveRepository = archiveRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.changeFeedService = changeFeedService;
+        this.renovationStatsService = renovationStatsService;
+        this.fleetStatsService = fleetStatsService;
+        this.deviceSerialFilter = deviceSerialFilter;
+        this.eventPublisher = eventPublisher;
+        this.enabled = enabled;
+        this.minExpiredAge = minExpiredAge;
+        this.chunkSize = chunkSize;
+        this.maxChunksPerRun = maxChunksPerRun;
+
+        archivedDevices = Counter.builder("archive.devices").register(meterRegistry);
+        archivedRenovations = Counter.builder("archive.renovations").register(meterRegistry);
+    }
+
+    @Scheduled(cron = "${app.archive.cron:0 30 3 * * *}")
+    public void scheduledRun() {
+        if (enabled) {
+            archiveStaleDevices();
+        }
+    }
+
+    /**
+     * @return number of devices archived
+     */
+    public int archiveStaleDevices() {
+        LocalDate cutoff = LocalDate.now().minus(minExpiredAge);
+        int total = 0;
+
+        for (int chunk = 0; chunk < maxChunksPerRun; chunk++) {
+            Integer archived = transactionTemplate.execute(status -> archiveChunk(cutoff));
+            total += archived != null ? archived : 0;
+            if (archived == null || archived < chunkSize) {
+                break;
+            }
+        }
+
+        if (total > 0) {
+            logger.info("Archived {} devices with warranty expired before {}", total, cutoff);
+        }
+        return total;
+    }
+
+    @Transactional(readOnly = true)
+    public ArchivedDeviceVO findDevice(String serialNumber) {
+        return archiveRepository.findBySerialNumber(serialNumber)
+                .orElseThrow(() -> new CustomException("Archived device not found", ErrorCode.EntityNotFound));
+    }
+
+    @Transactional(readOnly = true)
+    public CustomPage<ArchivedDeviceVO> getDevices(Long userId, int page, int size) {
+        long total = archiveRepository.count(userId);
+
+        CustomPage<ArchivedDeviceVO> customPage = new CustomPage<>();
+        customPage.setCurrentPage(page);
+        customPage.setSize(size);
+        customPage.setTotalItems(total);
+        customPage.setTotalPages((int) ((total + size - 1) / size));
+        customPage.setItems(archiveRepository.findPage(userId, (page - 1) * size, size));
+        customPage.setHasNext((long) page * size < total);
+        return customPage;
+    }
+
+    private int archiveChunk(LocalDate cutoff) {
+        List<Candidate> candidates = archiveRepository.lockArchivable(cutoff, chunkSize);
+        if (candidates.isEmpty()) {
+            return 0;
+        }
+
+        List<String> serialNumbers = candidates.stream().map(Candidate::serialNumber).toList();
+        renovationStatsService.devicesRemoved(serialNumbers);
+        fleetStatsService.devicesRemoved(serialNumbers);
+        int renovations = archiveRepository.moveToArchive(serialNumbers, Instant.now());
+        changeFeedService.recordDeletions(serialNumbers);
+
+        for (Candidate candidate : candidates) {
+            deviceSerialFilter.recordRemoval();
+            eventPublisher.publishEvent(new DeviceArchivedEvent(candidate.serialNumber(), candidate.warrantyExpirationDate()));
+        }
+
+        archivedDevices.increment(candidates.size());
+        archivedRenovations.increment(renovations);
+        return candidates.size();
+    }
+}
@@ -0,0 +1,183 @@
+package bg.tuvarna.devicebackend.services;
+
+import bg.tuvarna.devicebackend.controllers.exceptions.CustomException;
+import bg.tuvarna.devicebackend.controllers.exceptions.ErrorCode;
+import bg.tuvarna.devicebackend.models.dtos.DeviceChangesVO;
+import bg.tuvarna.devicebackend.models.entities.Device;
+import bg.tuvarna.devicebackend.models.entities.Passport;
+import bg.tuvarna.devicebackend.repositories.ChangeFeedRepository;
+import bg.tuvarna.devicebackend.repositories.ChangeFeedRepository.ChangeRef;
+import bg.tuvarna.devicebackend.repositories.DeviceRepository;
+import bg.tuvarna.devicebackend.repositories.PassportRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Keeps the change sequence behind {@code GET /api/v1/devices/changes}. Writers only mark a changed device or
+ * passport as pending (null {@code change_seq}) and leave a tombstone for deleted ones, so no write path waits
+ * on a shared counter. The sequencer job then numbers pending rows from a database sequence; its runs are
+ * serialized and each commits at once, so readers only ever see committed values in order, and a token (the
+ * highest value read) never skips a row that commits later. Readers page through everything above the value
+ * in their token, so a sync costs as much as the churn since the last one.
+ */
+@Service
+public class ChangeFeedService {
+    private static final Logger logger = LoggerFactory.getLogger(ChangeFeedService.class);
+
+    public static final int MAX_LIMIT = 1000;
+
+    private final ChangeFeedRepository changeFeedRepository;
+    private final DeviceRepository deviceRepository;
+    private final PassportRepository passportRepository;
+    private final Duration tombstoneRetention;
+    private final int sequenceBatchSize;
+
+    public ChangeFeedService(
+            ChangeFeedRepository changeFeedRepository,
+            DeviceRepository deviceRepository,
+            PassportRepository passportRepository,
+            @Value("${app.change-feed.tombstone-retention:P90D}") Duration tombstoneRetention,
+            @Value("${app.change-feed.sequence-batch-size:10000}") int sequenceBatchSize
+    ) {
+        this.changeFeedRepository = changeFeedRepository;
+        this.deviceRepository = deviceRepository;
+        this.passportRepository = passportRepository;
+        this.tombstoneRetention = tombstoneRetention;
+        this.sequenceBatchSize = sequenceBatchSize;
+    }
+
+    /**
+     * Marks a device as changed; it enters the feed with the next sequencer run after the writer commits.
+     */
+    public void stamp(Device device) {
+        device.setChangeSeq(null);
+        device.setUpdatedAt(Instant.now());
+    }
+
+    public void stamp(Passport passport) {
+        passport.setChangeSeq(null);
+        passport.setUpdatedAt(Instant.now());
+    }
+
+    /**
+     * Marks devices whose rows are not managed by JPA in the current transaction.
+     */
+    public void touchDevices(Collection<String> serialNumbers) {
+        Set<String> distinct = new TreeSet<>(serialNumbers);
+        if (!distinct.isEmpty()) {
+            changeFeedRepository.touchDevices(distinct, Instant.now());
+        }
+    }
+
+    public void recordDeletion(String serialNumber) {
+        recordDeletions(List.of(serialNumber));
+    }
+
+    public void recordDeletions(Collection<String> serialNumbers) {
+        Set<String> distinct = new TreeSet<>(serialNumbers);
+        if (!distinct.isEmpty()) {
+            changeFeedRepository.insertTombstones(distinct, Instant.now());
+        }
+    }
+
+    public void recordPassportDeletion(long passportId) {
+        changeFeedRepository.insertPassportTombstone(passportId, Instant.now());
+    }
+
+    /**
+     * Numbers the rows written since the last run. Changes reach readers with this delay.
+     */
+    @Transactional
+    @Scheduled(fixedDelayString = "${app.change-feed.sequence-interval:PT1S}", initialDelayString = "${app.change-feed.sequence-interval:PT1S}")
+    public int sequencePending() {
+        if (!changeFeedRepository.tryLockSequencer()) {
+            return 0;
+        }
+        return changeFeedRepository.sequencePending(sequenceBatchSize);
+    }
+
+    /**
+     * @param token {@code nextToken} of the previous page, or null for a full sync
+     */
+    @Transactional(readOnly = true)
+    public DeviceChangesVO changesSince(String token, int limit) {
+        if (limit < 1 || limit > MAX_LIMIT) {
+            throw new CustomException("Invalid limit", ErrorCode.Validation, "1", String.valueOf(MAX_LIMIT));
+        }
+
+        long since = parseToken(token);
+        if (since > 0 && since < changeFeedRepository.purgedThrough()) {
+            throw new CustomException("Change token expired, sync again without since", ErrorCode.SyncTokenExpired);
+        }
+
+        List<ChangeRef> changes = changeFeedRepository.findChangedSince(since, limit + 1);
+        boolean hasMore = changes.size() > limit;
+        if (hasMore) {
+            changes = changes.subList(0, limit);
+        }
+
+        List<String> serialNumbers = new ArrayList<>();
+        List<Long> passportIds = new ArrayList<>();
+        List<String> deleted = new ArrayList<>();
+        List<Long> deletedPassports = new ArrayList<>();
+        for (ChangeRef change : changes) {
+            switch (change.kind()) {
+                case DEVICE -> serialNumbers.add(change.key());
+                case PASSPORT -> passportIds.add(Long.valueOf(change.key()));
+                case DELETED -> deleted.add(change.key());
+                case PASSPORT_DELETED -> deletedPassports.add(Long.valueOf(change.key()));
+            }
+        }
+
+        Map<String, Device> devices = serialNumbers.isEmpty()
+                ? Map.of()
+                : deviceRepository.findWithRenovationsBySerialNumberIn(serialNumbers).stream()
+                        .collect(Collectors.toMap(Device::getSerialNumber, Function.identity()));
+        List<Passport> passports = passportIds.isEmpty() ? List.of() : passportRepository.findAllById(passportIds);
+
+        long next = changes.isEmpty() ? since : changes.getLast().seq();
+        return new DeviceChangesVO(
+                // a device deleted since the refs were read is skipped; its tombstone follows
+                serialNumbers.stream().map(devices::get).filter(Objects::nonNull).toList(),
+                passports,
+                deleted,
+                deletedPassports,
+                Long.toString(next),
+                hasMore
+        );
+    }
+
+    @Transactional
+    @Scheduled(fixedDelayString = "${app.change-feed.purge-interval:PT6H}", initialDelayString = "${app.change-feed.purge-interval:PT6H}")
+    public void purgeTombstones() {
+        int purged = changeFeedRepository.purgeTombstones(Instant.now().minus(tombstoneRetention));
+        if (purged > 0) {
+            logger.info("Purged {} tombstones older than {}", purged, tombstoneRetention);
+        }
+    }
+
+    private static long parseToken(String token) {
+        if (token == null || token.isBlank()) {
+            return 0;
+        }
+        try {
+            long since = Long.parseLong(token);
+            if (since >= 0) {
+                return since;
+            }
+        } catch (NumberFormatException ignored) {
+            // reported below
+        }
+        throw new CustomException("Invalid change token", ErrorCode.Validation);
+    }
+}
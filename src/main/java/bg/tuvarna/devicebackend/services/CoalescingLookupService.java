@@ -0,0 +1,52 @@
+package bg.tuvarna.devicebackend.services;
+
+import bg.tuvarna.devicebackend.models.dtos.DeviceVO;
+import bg.tuvarna.devicebackend.models.dtos.PassportForSerialNumberVO;
+import bg.tuvarna.devicebackend.utils.SingleFlight;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Service;
+
+/**
+ * Public lookups that are hit by many clients for the same serial at once. Identical concurrent
+ * lookups share one query; the shared result is the immutable VO, never the entity.
+ * <p>
+ * Coalescing ratio: {@code lookups.coalesced{result=shared}} over all {@code lookups.coalesced}.
+ */
+@Service
+public class CoalescingLookupService {
+    private final PassportService passportService;
+    private final DeviceService deviceService;
+
+    private final SingleFlight<String, PassportForSerialNumberVO> passportLookups = new SingleFlight<>();
+    private final SingleFlight<String, DeviceVO> deviceLookups = new SingleFlight<>();
+
+    public CoalescingLookupService(PassportService passportService, DeviceService deviceService, MeterRegistry meterRegistry) {
+        this.passportService = passportService;
+        this.deviceService = deviceService;
+
+        registerMetrics(meterRegistry, "passport_by_serial", passportLookups);
+        registerMetrics(meterRegistry, "device_exists", deviceLookups);
+    }
+
+    public PassportForSerialNumberVO findPassportBySerialId(String serialId) {
+        return passportLookups.execute(serialId,
+                () -> new PassportForSerialNumberVO(passportService.findPassportBySerialId(serialId)));
+    }
+
+    public DeviceVO isDeviceExists(String serialNumber) {
+        return deviceLookups.execute(serialNumber,
+                () -> new DeviceVO(deviceService.isDeviceExists(serialNumber)));
+    }
+
+    private static void registerMetrics(MeterRegistry meterRegistry, String lookup, SingleFlight<?, ?> singleFlight) {
+        FunctionCounter.builder("lookups.coalesced", singleFlight, SingleFlight::executions)
+                .tag("lookup", lookup)
+                .tag("result", "executed")
+                .register(meterRegistry);
+        FunctionCounter.builder("lookups.coalesced", singleFlight, SingleFlight::sharedResults)
+                .tag("lookup", lookup)
+                .tag("result", "shared")
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,212 @@
+package bg.tuvarna.devicebackend.services;
+
+import bg.tuvarna.devicebackend.repositories.ChangeFeedRepository;
+import bg.tuvarna.devicebackend.repositories.ChangeFeedRepository.ChangeRef;
+import bg.tuvarna.devicebackend.repositories.ChangeFeedRepository.Kind;
+import bg.tuvarna.devicebackend.repositories.DeviceRepository;
+import bg.tuvarna.devicebackend.utils.BloomFilter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Resident Bloom filter of registered serial numbers, used to answer "not registered" without a query.
+ * <p>
+ * Serials are added before the device row is written, so a rollback only costs a false positive.
+ * Deleted serials stay in the filter until the next periodic rebuild. The filter that was replaced by a
+ * rebuild is still consulted until the rebuild after it, which covers devices whose transaction
+ * committed after the rebuild had already read past them. Registrations made on other instances are
+ * picked up every {@code app.devices.exists-filter.sync-interval} by reading the devices that entered the
+ * change feed since the last sync, so a "not registered" answer lags other instances by that interval plus
+ * the change-feed sequencing delay, not by a rebuild.
+ */
+@Service
+public class DeviceSerialFilter {
+    private static final Logger logger = LoggerFactory.getLogger(DeviceSerialFilter.class);
+    private static final int PAGE_SIZE = 10_000;
+
+    private final DeviceRepository deviceRepository;
+    private final ChangeFeedRepository changeFeedRepository;
+    private final boolean enabled;
+    private final long expectedInsertions;
+    private final double falsePositiveRate;
+
+    private volatile BloomFilter current;
+    private volatile BloomFilter previous;
+    private volatile BloomFilter building;
+    private long syncedThrough;
+    private final AtomicLong removedSinceRebuild = new AtomicLong();
+
+    private final Counter negatives;
+    private final Counter positives;
+    private final Counter falsePositives;
+
+    public DeviceSerialFilter(
+            DeviceRepository deviceRepository,
+            ChangeFeedRepository changeFeedRepository,
+            MeterRegistry meterRegistry,
+            @Value("${app.devices.exists-filter.enabled:true}") boolean enabled,
+            @Value("${app.devices.exists-filter.expected-insertions:1000000}") long expectedInsertions,
+            @Value("${app.devices.exists-filter.false-positive-rate:0.01}") double falsePositiveRate
+    ) {
+        this.deviceRepository = deviceRepository;
+        this.changeFeedRepository = changeFeedRepository;
+        this.enabled = enabled;
+        this.expectedInsertions = expectedInsertions;
+        this.falsePositiveRate = falsePositiveRate;
+
+        negatives = lookups(meterRegistry, "negative");
+        positives = lookups(meterRegistry, "positive");
+        falsePositives = lookups(meterRegistry, "false_positive");
+
+        Gauge.builder("devices.exists.filter.expected.fpp", this, f -> f.current != null ? f.current.expectedFalsePositiveRate() : Double.NaN)
+                .description("False-positive probability implied by the bits currently set")
+                .register(meterRegistry);
+        Gauge.builder("devices.exists.filter.memory", this, DeviceSerialFilter::memoryBytes)
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder("devices.exists.filter.elements", this, f -> f.current != null ? f.current.approximateElementCount() : 0)
+                .register(meterRegistry);
+        Gauge.builder("devices.exists.filter.removed", removedSinceRebuild, AtomicLong::get)
+                .description("Serials deleted since the last rebuild that still read as present")
+                .register(meterRegistry);
+    }
+
+    /**
+     * @return false only when the serial is definitely not registered
+     */
+    public boolean mightContain(String serialNumber) {
+        BloomFilter filter = current;
+        if (filter == null) {
+            return true;
+        }
+
+        BloomFilter older = previous;
+        boolean result = filter.mightContain(serialNumber) || (older != null && older.mightContain(serialNumber));
+        (result ? positives : negatives).increment();
+        return result;
+    }
+
+    public void add(String serialNumber) {
+        BloomFilter filter = current;
+        if (filter != null) {
+            filter.put(serialNumber);
+        }
+
+        BloomFilter next = building;
+        if (next != null) {
+            next.put(serialNumber);
+        }
+    }
+
+    public void recordRemoval() {
+        removedSinceRebuild.incrementAndGet();
+    }
+
+    /**
+     * Called when the filter answered "maybe" and the database did not have the serial.
+     */
+    public void recordFalsePositive() {
+        if (current != null) {
+            falsePositives.increment();
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        rebuild();
+    }
+
+    @Scheduled(
+            fixedDelayString = "${app.devices.exists-filter.rebuild-interval:PT30M}",
+            initialDelayString = "${app.devices.exists-filter.rebuild-interval:PT30M}"
+    )
+    public synchronized void rebuild() {
+        if (!enabled) {
+            return;
+        }
+
+        long start = System.nanoTime();
+        long expected = current != null ? Math.max(expectedInsertions, current.approximateElementCount() * 2) : expectedInsertions;
+        BloomFilter next = new BloomFilter(expected, falsePositiveRate);
+        building = next;
+        removedSinceRebuild.set(0);
+        // devices sequenced from here on are picked up by the next sync
+        long sequencedBefore = changeFeedRepository.lastDeviceSeq();
+
+        long count = 0;
+        String after = "";
+        List<String> page;
+        do {
+            page = deviceRepository.findSerialNumbersAfter(after, Limit.of(PAGE_SIZE));
+            for (String serialNumber : page) {
+                next.put(serialNumber);
+            }
+            count += page.size();
+            if (!page.isEmpty()) {
+                after = page.getLast();
+            }
+        } while (page.size() == PAGE_SIZE);
+
+        previous = current;
+        current = next;
+        building = null;
+        syncedThrough = sequencedBefore;
+
+        logger.info("Device serial filter rebuilt with {} serials, {} bytes, in {} ms",
+                count, next.memoryBytes(), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * Adds the devices written on any instance since the last sync or rebuild.
+     */
+    @Scheduled(
+            fixedDelayString = "${app.devices.exists-filter.sync-interval:PT2S}",
+            initialDelayString = "${app.devices.exists-filter.sync-interval:PT2S}"
+    )
+    public synchronized void sync() {
+        if (current == null) {
+            return;
+        }
+
+        List<ChangeRef> page;
+        do {
+            page = changeFeedRepository.findChangedSince(syncedThrough, PAGE_SIZE);
+            for (ChangeRef change : page) {
+                if (change.kind() == Kind.DEVICE) {
+                    add(change.key());
+                }
+            }
+            if (!page.isEmpty()) {
+                syncedThrough = page.getLast().seq();
+            }
+        } while (page.size() == PAGE_SIZE);
+    }
+
+    private long memoryBytes() {
+        long bytes = 0;
+        for (BloomFilter filter : new BloomFilter[]{current, previous, building}) {
+            if (filter != null) {
+                bytes += filter.memoryBytes();
+            }
+        }
+        return bytes;
+    }
+
+    private static Counter lookups(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("devices.exists.filter.lookups")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+}
@@ -1,55 +1,104 @@
 package bg.tuvarna.devicebackend.services;
 
+import bg.tuvarna.devicebackend.config.datasource.PrimaryReads;
 import bg.tuvarna.devicebackend.controllers.exceptions.CustomException;
 import bg.tuvarna.devicebackend.controllers.exceptions.ErrorCode;
+import bg.tuvarna.devicebackend.controllers.exceptions.PreconditionFailedException;
 import bg.tuvarna.devicebackend.models.dtos.DeviceCreateVO;
 import bg.tuvarna.devicebackend.models.dtos.DeviceUpdateVO;
 import bg.tuvarna.devicebackend.models.entities.Device;
 import bg.tuvarna.devicebackend.models.entities.Passport;
 import bg.tuvarna.devicebackend.models.entities.User;
+import bg.tuvarna.devicebackend.models.enums.TotalCountMode;
+import bg.tuvarna.devicebackend.models.events.DeviceDeletedEvent;
+import bg.tuvarna.devicebackend.models.events.DeviceRegisteredEvent;
+import bg.tuvarna.devicebackend.models.events.DeviceUpdatedEvent;
+import bg.tuvarna.devicebackend.repositories.ArchiveRepository;
 import bg.tuvarna.devicebackend.repositories.DeviceRepository;
 import bg.tuvarna.devicebackend.utils.CustomPage;
-import jakarta.transaction.Transactional;
+import bg.tuvarna.devicebackend.utils.ETags;
 import lombok.AllArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDate;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 
+/**
+ * Device write paths take row locks in one order, so two of them can never wait on each other: first the
+ * device rows (flushed or locked up front, in serial number order when there are several), then the
+ * renovation stats rows, then the fleet counters ({@code warranty.as-of}, share-locked, before the others),
+ * each in key order. The change feed takes no shared lock.
+ */
 @Service
 @AllArgsConstructor
 public class DeviceService {
     private final DeviceRepository deviceRepository;
+    private final ArchiveRepository archiveRepository;
     private final PassportService passportService;
+    private final DeviceSerialFilter deviceSerialFilter;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ListingCountEstimator listingCountEstimator;
+    private final ChangeFeedService changeFeedService;
+    private final RenovationStatsService renovationStatsService;
+    private final FleetStatsService fleetStatsService;
 
+    @Transactional
     public Device registerDevice(String serialId, LocalDate purchaseDate, User user) {
-        try {
-            Passport passport = passportService.findPassportBySerialId(serialId);
+        Passport passport = findPassport(serialId);
 
-            Device device = new Device();
-            device.setSerialNumber(serialId);
-            device.setPassport(passport);
-            device.setUser(user);
-            device.setPurchaseDate(purchaseDate);
-            device.setWarrantyExpirationDate(purchaseDate.plusMonths(passport.getWarrantyMonths()).plusMonths(12));
+        Device device = new Device();
+        device.setSerialNumber(serialId);
+        device.setPassport(passport);
+        device.setUser(user);
+        device.setPurchaseDate(purchaseDate);
+        device.setWarrantyExpirationDate(purchaseDate.plusMonths(passport.getWarrantyMonths()).plusMonths(12));
 
-            return deviceRepository.save(device);
-        } catch (RuntimeException e) {
-            throw new CustomException("Invalid serial number", ErrorCode.Failed);
-        }
+        deviceSerialFilter.add(serialId);
+        changeFeedService.stamp(device);
+        Device saved = deviceRepository.save(device);
+        deviceRepository.flush();
+        renovationStatsService.deviceRegistered(device);
+        fleetStatsService.deviceAdded(device);
+        eventPublisher.publishEvent(registered(device));
+        return saved;
     }
 
+    /**
+     * Reads the primary, so a device registered a moment ago is found even while the replicas lag.
+     */
+    @Transactional(readOnly = true)
     public Device findDevice(String id) {
-        return deviceRepository.findById(id).orElse(null);
+        return PrimaryReads.call(() -> deviceRepository.findById(id).orElse(null));
     }
 
+    @Transactional(readOnly = true)
     public Device isDeviceExists(String id) {
-        if (!deviceRepository.existsById(id))
+        if (!deviceSerialFilter.mightContain(id))
             throw new CustomException("Device not registered", ErrorCode.NotRegistered);
-        return findDevice(id);
+
+        Device device = deviceRepository.findById(id).orElse(null);
+        if (device == null) {
+            deviceSerialFilter.recordFalsePositive();
+            throw new CustomException("Device not registered", ErrorCode.NotRegistered);
+        }
+        return device;
+    }
+
+    public Set<String> findRegisteredSerialNumbers(Collection<String> serialNumbers) {
+        return new HashSet<>(deviceRepository.findExistingSerialNumbers(serialNumbers));
     }
 
+    @Transactional
     public Device registerNewDevice(DeviceCreateVO deviceCreateVO, User user) {
         alreadyExist(deviceCreateVO.deviceSerialNumber());
 
@@ -60,14 +109,45 @@ public class DeviceService {
         return registerDevice(deviceCreateVO.deviceSerialNumber(), deviceCreateVO.purchaseDate(), user);
     }
 
+    /**
+     * Archived serial numbers count as registered: the archive is keyed by serial number, so a device
+     * registered again could never be archived. Checked on the primary.
+     */
+    @Transactional(readOnly = true)
     public void alreadyExist(String serialNumber) {
-        if (findDevice(serialNumber) != null)
-            throw new CustomException("Device already registered", ErrorCode.AlreadyExists);
+        PrimaryReads.run(() -> {
+            if (deviceRepository.findById(serialNumber).isPresent())
+                throw new CustomException("Device already registered", ErrorCode.AlreadyExists);
+            if (archiveRepository.existsBySerialNumber(serialNumber))
+                throw new CustomException("Device already registered and archived", ErrorCode.AlreadyExists);
+        });
+    }
+
+    /**
+     * ETag of the device, or null when it does not exist.
+     */
+    @Transactional(readOnly = true)
+    public String findETag(String serialNumber) {
+        return deviceRepository.findVersionTag(serialNumber).map(ETags::device).orElse(null);
     }
 
+    @Transactional
     public Device updateDevice(String serialNumber, DeviceUpdateVO device) {
+        return updateDevice(serialNumber, device, null);
+    }
+
+    /**
+     * @param ifMatch {@code If-Match} header; the update is refused unless it matches the current ETag
+     */
+    @Transactional
+    public Device updateDevice(String serialNumber, DeviceUpdateVO device, String ifMatch) {
         Device deviceToUpdate = deviceRepository.findById(serialNumber).orElseThrow(() -> new CustomException("Device not found", ErrorCode.EntityNotFound));
 
+        if (ifMatch != null && !ETags.matches(ifMatch, ETags.device(deviceToUpdate))) {
+            throw new PreconditionFailedException("Device was modified");
+        }
+
+        LocalDate previousWarranty = deviceToUpdate.getWarrantyExpirationDate();
         deviceToUpdate.setPurchaseDate(device.purchaseDate());
 
         LocalDate warrantyDate = device.purchaseDate().plusMonths(deviceToUpdate.getPassport().getWarrantyMonths());
@@ -79,37 +159,75 @@ public class DeviceService {
 
         deviceToUpdate.setWarrantyExpirationDate(warrantyDate);
         deviceToUpdate.setComment(device.comment());
+        changeFeedService.stamp(deviceToUpdate);
 
-        return deviceRepository.save(deviceToUpdate);
+        Device saved = deviceRepository.save(deviceToUpdate);
+        deviceRepository.flush();
+        fleetStatsService.deviceUpdated(previousWarranty, deviceToUpdate);
+        eventPublisher.publishEvent(new DeviceUpdatedEvent(
+                deviceToUpdate.getSerialNumber(),
+                deviceToUpdate.getPurchaseDate(),
+                deviceToUpdate.getWarrantyExpirationDate()
+        ));
+        return saved;
     }
 
     @Transactional
     public void deleteDevice(String serialNumber) {
+        deviceRepository.lockBySerialNumber(serialNumber);
+        renovationStatsService.devicesRemoved(List.of(serialNumber));
+        fleetStatsService.devicesRemoved(List.of(serialNumber));
         try {
             deviceRepository.deleteBySerialNumber(serialNumber);
-        } catch (RuntimeException e) {
+        } catch (DataIntegrityViolationException e) {
             throw new CustomException("Cannot delete device: renovations exist", ErrorCode.Failed);
         }
+        deviceSerialFilter.recordRemoval();
+        eventPublisher.publishEvent(new DeviceDeletedEvent(serialNumber));
+        changeFeedService.recordDeletion(serialNumber);
     }
 
+    @Transactional
     public Device addAnonymousDevice(DeviceCreateVO device) {
         alreadyExist(device.deviceSerialNumber());
-        try {
-            Passport passport = passportService.findPassportBySerialId(device.deviceSerialNumber());
+        Passport passport = findPassport(device.deviceSerialNumber());
 
-            Device deviceToAdd = new Device();
-            deviceToAdd.setSerialNumber(device.deviceSerialNumber());
-            deviceToAdd.setPurchaseDate(device.purchaseDate());
-            deviceToAdd.setPassport(passport);
-            deviceToAdd.setWarrantyExpirationDate(device.purchaseDate().plusMonths(passport.getWarrantyMonths()));
+        Device deviceToAdd = new Device();
+        deviceToAdd.setSerialNumber(device.deviceSerialNumber());
+        deviceToAdd.setPurchaseDate(device.purchaseDate());
+        deviceToAdd.setPassport(passport);
+        deviceToAdd.setWarrantyExpirationDate(device.purchaseDate().plusMonths(passport.getWarrantyMonths()));
 
-            return deviceRepository.save(deviceToAdd);
-        } catch (RuntimeException e) {
-            throw new CustomException("Invalid serial number", ErrorCode.Failed);
-        }
+        deviceSerialFilter.add(device.deviceSerialNumber());
+        changeFeedService.stamp(deviceToAdd);
+        Device saved = deviceRepository.save(deviceToAdd);
+        deviceRepository.flush();
+        renovationStatsService.deviceRegistered(deviceToAdd);
+        fleetStatsService.deviceAdded(deviceToAdd);
+        eventPublisher.publishEvent(registered(deviceToAdd));
+        return saved;
     }
 
+    @Transactional(readOnly = true)
     public CustomPage<Device> getDevices(String searchBy, int page, int size) {
+        return getDevices(searchBy, page, size, TotalCountMode.EXACT);
+    }
+
+    @Transactional(readOnly = true)
+    public CustomPage<Device> getDevices(String searchBy, int page, int size, TotalCountMode withTotal) {
+        if (withTotal != TotalCountMode.EXACT) {
+            PageRequest pageRequest = PageRequest.of(page - 1, size);
+            Slice<Device> slice = searchBy == null
+                    ? deviceRepository.getAllDevicesSlice(pageRequest)
+                    : deviceRepository.searchSlice(searchBy, pageRequest);
+
+            Long estimate = withTotal == TotalCountMode.ESTIMATE && slice.hasNext()
+                    ? listingCountEstimator.estimate("devices", searchBy,
+                            () -> searchBy == null ? deviceRepository.count() : deviceRepository.countSearch(searchBy))
+                    : null;
+            return CustomPage.ofSlice(slice, estimate);
+        }
+
         Page<Device> devicePage;
         if (searchBy == null) {
             devicePage = deviceRepository.getAllDevices(PageRequest.of(page - 1, size));
@@ -123,7 +241,36 @@ public class DeviceService {
         customPage.setTotalPages(devicePage.getTotalPages());
         customPage.setCurrentPage(page);
         customPage.setSize(size);
+        customPage.setHasNext(devicePage.hasNext());
 
         return customPage;
     }
-}
\ No newline at end of file
+
+    /**
+     * Any failure to resolve the passport means the serial number is invalid; database errors are not masked.
+     */
+    private Passport findPassport(String serialNumber) {
+        Passport passport;
+        try {
+            passport = passportService.findPassportBySerialId(serialNumber);
+        } catch (DataAccessException e) {
+            throw e;
+        } catch (RuntimeException e) {
+            throw new CustomException("Invalid serial number", ErrorCode.Failed);
+        }
+        if (passport == null) {
+            throw new CustomException("Invalid serial number", ErrorCode.Failed);
+        }
+        return passport;
+    }
+
+    private static DeviceRegisteredEvent registered(Device device) {
+        return new DeviceRegisteredEvent(
+                device.getSerialNumber(),
+                device.getUser() != null ? device.getUser().getId() : null,
+                device.getPassport() != null ? device.getPassport().getId() : null,
+                device.getPurchaseDate(),
+                device.getWarrantyExpirationDate()
+        );
+    }
+}
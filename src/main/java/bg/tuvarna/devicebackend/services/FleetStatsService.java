@@ -0,0 +1,310 @@
+package bg.tuvarna.devicebackend.services;
+
+import bg.tuvarna.devicebackend.models.dtos.FleetStatsVO;
+import bg.tuvarna.devicebackend.models.entities.Device;
+import bg.tuvarna.devicebackend.repositories.FleetCounterRepository;
+import bg.tuvarna.devicebackend.repositories.FleetCounterRepository.DeviceFacts;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.*;
+
+import static bg.tuvarna.devicebackend.repositories.FleetCounterRepository.*;
+
+/**
+ * Fleet counters for the admin landing page. Every write path adds its deltas to {@code fleet_counters}
+ * in its own transaction, so the table never needs a {@code count(*)} to be read. Reads are served from an
+ * in-memory copy that is reloaded after a local write commits, or once it is older than
+ * {@code app.stats.refresh-interval} to pick up writes made by other instances.
+ * <p>
+ * Active/expired warranties are split at {@code warranty.as-of}; a daily roll moves the warranties that
+ * ended since then to expired. Device writers share-lock that row, so they never wait on each other but a
+ * write never races with a roll; only the roll locks it exclusively, for the duration of a short counter
+ * update. {@link #reconcile()} takes no lock at all: it adds the drift it found in a snapshot as increments.
+ * <p>
+ * Lock order: {@code warranty.as-of} is always taken before any other counter, after the device rows and
+ * the renovation stats rows of the write (see {@link DeviceService}).
+ */
+@Service
+public class FleetStatsService {
+    private static final Logger logger = LoggerFactory.getLogger(FleetStatsService.class);
+
+    private record Snapshot(FleetStatsVO stats, long loadedAt) {
+    }
+
+    private final FleetCounterRepository counterRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate snapshotTemplate;
+    private final long refreshNanos;
+    private volatile Snapshot snapshot;
+    private volatile boolean stale = true;
+
+    public FleetStatsService(
+            FleetCounterRepository counterRepository,
+            TransactionTemplate transactionTemplate,
+            @Value("${app.stats.refresh-interval:PT10S}") Duration refreshInterval
+    ) {
+        this.counterRepository = counterRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.snapshotTemplate = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        snapshotTemplate.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        snapshotTemplate.setReadOnly(true);
+        this.refreshNanos = refreshInterval.toNanos();
+    }
+
+    public void deviceAdded(Device device) {
+        Map<String, Long> deltas = new HashMap<>();
+        addDevice(deltas, facts(device), warrantyAsOf(), 1);
+        apply(deltas);
+    }
+
+    /**
+     * @param previousWarranty warranty expiration date before the update
+     */
+    public void deviceUpdated(LocalDate previousWarranty, Device device) {
+        if (Objects.equals(previousWarranty, device.getWarrantyExpirationDate())) {
+            return;
+        }
+
+        LocalDate asOf = warrantyAsOf();
+        Map<String, Long> deltas = new HashMap<>();
+        addWarranty(deltas, previousWarranty, asOf, -1);
+        addWarranty(deltas, device.getWarrantyExpirationDate(), asOf, 1);
+        apply(deltas);
+    }
+
+    /**
+     * Call before the devices are deleted or archived, while they can still be read.
+     */
+    public void devicesRemoved(Collection<String> serialNumbers) {
+        if (serialNumbers.isEmpty()) {
+            return;
+        }
+
+        LocalDate asOf = warrantyAsOf();
+        Map<String, Long> deltas = new HashMap<>();
+        for (DeviceFacts device : counterRepository.findDeviceFacts(serialNumbers)) {
+            addDevice(deltas, device, asOf, -1);
+        }
+        apply(deltas);
+    }
+
+    public void userRegistered() {
+        apply(Map.of(USERS, 1L));
+    }
+
+    public void passportCreated() {
+        apply(Map.of(PASSPORTS, 1L));
+    }
+
+    /**
+     * A passport can only be deleted once no device refers to it, so its device counter goes with it.
+     */
+    public void passportDeleted(Long id) {
+        counterRepository.delete(PASSPORT_DEVICES_PREFIX + id);
+        apply(Map.of(PASSPORTS, -1L));
+    }
+
+    public FleetStatsVO getStats() {
+        Snapshot current = snapshot;
+        if (stale || current == null || System.nanoTime() - current.loadedAt() > refreshNanos) {
+            current = reload();
+        }
+        return current.stats();
+    }
+
+    /**
+     * Fills the counters on the first start after they were introduced, and catches up on a missed roll.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (counterRepository.findAll().isEmpty()) {
+            reconcile();
+        } else {
+            rollWarranties();
+        }
+    }
+
+    /**
+     * Moves warranties that ended between {@code warranty.as-of} and today from active to expired.
+     *
+     * @return number of warranties moved
+     */
+    @Scheduled(cron = "${app.stats.roll-cron:0 5 0 * * *}")
+    public long rollWarranties() {
+        LocalDate today = LocalDate.now();
+        Long moved = transactionTemplate.execute(status -> {
+            Long asOf = counterRepository.lock(WARRANTY_AS_OF);
+            if (asOf == null || asOf >= today.toEpochDay()) {
+                return 0L;
+            }
+
+            long ended = counterRepository.countWarrantiesEnding(LocalDate.ofEpochDay(asOf), today);
+            counterRepository.add(Map.of(ACTIVE_WARRANTIES, -ended, EXPIRED_WARRANTIES, ended));
+            counterRepository.set(WARRANTY_AS_OF, today.toEpochDay());
+            return ended;
+        });
+
+        markStale();
+        if (moved != null && moved > 0) {
+            logger.info("Rolled {} warranties to expired as of {}", moved, today);
+        }
+        return moved != null ? moved : 0;
+    }
+
+    /**
+     * Recounts every counter from the raw tables and fixes the ones that differ, then rolls the warranty split
+     * to today. As in {@link RenovationStatsService#reconcile()}, the drift is computed in one read-only
+     * snapshot, with the split at the stored {@code warranty.as-of}, and added as increments: writers that
+     * commit in between keep their own increments, which a delete-and-reinsert would overwrite.
+     *
+     * @return number of counters corrected
+     */
+    @Scheduled(cron = "${app.stats.reconcile-cron:0 0 5 * * SUN}")
+    public int reconcile() {
+        Drift drift = snapshotTemplate.execute(status -> {
+            Map<String, Long> current = new HashMap<>(counterRepository.findAll());
+            Long asOf = current.remove(WARRANTY_AS_OF);
+            LocalDate splitAt = asOf != null ? LocalDate.ofEpochDay(asOf) : LocalDate.now();
+            Map<String, Long> exact = counterRepository.compute(splitAt);
+
+            Drift found = new Drift(asOf == null ? splitAt : null, new HashMap<>(), new ArrayList<>());
+            exact.forEach((name, count) -> {
+                long delta = count - current.getOrDefault(name, 0L);
+                if (delta != 0) {
+                    found.deltas().put(name, delta);
+                }
+            });
+            current.forEach((name, count) -> {
+                if (!exact.containsKey(name)) {
+                    found.stale().add(name);
+                    if (count != 0) {
+                        found.deltas().put(name, -count);
+                    }
+                }
+            });
+            return found;
+        });
+
+        if (drift != null && (drift.missingAsOf() != null || !drift.deltas().isEmpty() || !drift.stale().isEmpty())) {
+            transactionTemplate.executeWithoutResult(status -> {
+                if (drift.missingAsOf() != null) {
+                    counterRepository.insertIfAbsent(WARRANTY_AS_OF, drift.missingAsOf().toEpochDay());
+                }
+                if (!drift.deltas().isEmpty()) {
+                    counterRepository.add(drift.deltas());
+                }
+                counterRepository.deleteIfZero(drift.stale());
+            });
+            markStale();
+        }
+        rollWarranties();
+
+        int corrected = drift != null ? drift.deltas().size() : 0;
+        if (corrected > 0) {
+            logger.info("Corrected {} fleet counters", corrected);
+        }
+        return corrected;
+    }
+
+    /**
+     * @param missingAsOf split date to store when the counters had none
+     */
+    private record Drift(LocalDate missingAsOf, Map<String, Long> deltas, List<String> stale) {
+    }
+
+    private synchronized Snapshot reload() {
+        Snapshot current = snapshot;
+        if (!stale && current != null && System.nanoTime() - current.loadedAt() <= refreshNanos) {
+            return current;
+        }
+
+        stale = false;
+        Map<String, Long> counters = counterRepository.findAll();
+        Map<Long, Long> perPassport = new TreeMap<>();
+        counters.forEach((name, amount) -> {
+            if (name.startsWith(PASSPORT_DEVICES_PREFIX)) {
+                perPassport.put(Long.valueOf(name.substring(PASSPORT_DEVICES_PREFIX.length())), amount);
+            }
+        });
+        Long asOf = counters.get(WARRANTY_AS_OF);
+
+        current = new Snapshot(new FleetStatsVO(
+                counters.getOrDefault(DEVICES, 0L),
+                counters.getOrDefault(REGISTERED_DEVICES, 0L),
+                counters.getOrDefault(ANONYMOUS_DEVICES, 0L),
+                counters.getOrDefault(ACTIVE_WARRANTIES, 0L),
+                counters.getOrDefault(EXPIRED_WARRANTIES, 0L),
+                asOf != null ? LocalDate.ofEpochDay(asOf) : null,
+                counters.getOrDefault(USERS, 0L),
+                counters.getOrDefault(PASSPORTS, 0L),
+                perPassport
+        ), System.nanoTime());
+        snapshot = current;
+        return current;
+    }
+
+    private LocalDate warrantyAsOf() {
+        Long asOf = counterRepository.lockShared(WARRANTY_AS_OF);
+        return asOf != null ? LocalDate.ofEpochDay(asOf) : LocalDate.now();
+    }
+
+    private void apply(Map<String, Long> deltas) {
+        Map<String, Long> changed = new HashMap<>(deltas);
+        changed.values().removeIf(delta -> delta == 0);
+        if (!changed.isEmpty()) {
+            counterRepository.add(changed);
+        }
+        markStale();
+    }
+
+    /**
+     * Local writes are visible to the next read once they commit.
+     */
+    private void markStale() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    stale = true;
+                }
+            });
+        } else {
+            stale = true;
+        }
+    }
+
+    private static DeviceFacts facts(Device device) {
+        return new DeviceFacts(
+                device.getUser() != null,
+                device.getPassport() != null ? device.getPassport().getId() : null,
+                device.getWarrantyExpirationDate()
+        );
+    }
+
+    private static void addDevice(Map<String, Long> deltas, DeviceFacts device, LocalDate asOf, long sign) {
+        deltas.merge(DEVICES, sign, Long::sum);
+        deltas.merge(device.registered() ? REGISTERED_DEVICES : ANONYMOUS_DEVICES, sign, Long::sum);
+        if (device.passportId() != null) {
+            deltas.merge(PASSPORT_DEVICES_PREFIX + device.passportId(), sign, Long::sum);
+        }
+        addWarranty(deltas, device.warrantyExpirationDate(), asOf, sign);
+    }
+
+    private static void addWarranty(Map<String, Long> deltas, LocalDate warranty, LocalDate asOf, long sign) {
+        if (warranty != null) {
+            deltas.merge(warranty.isBefore(asOf) ? EXPIRED_WARRANTIES : ACTIVE_WARRANTIES, sign, Long::sum);
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package bg.tuvarna.devicebackend.services;
+
+import bg.tuvarna.devicebackend.config.DatabaseDialect;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+
+/**
+ * Approximate totals for {@code withTotal=estimate} listings. Unfiltered listings on PostgreSQL use the
+ * planner's row estimate ({@code pg_class.reltuples}); everything else uses an exact count that is
+ * computed once and reused until it is older than {@code app.listings.count-cache.ttl}.
+ */
+@Service
+public class ListingCountEstimator {
+    private static final int MAX_CACHED_COUNTS = 10_000;
+
+    private record CachedCount(long value, long expiresAt) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final DatabaseDialect dialect;
+    private final long ttlNanos;
+    private final Map<String, CachedCount> counts = new ConcurrentHashMap<>();
+
+    public ListingCountEstimator(
+            JdbcTemplate jdbcTemplate,
+            DatabaseDialect dialect,
+            @Value("${app.listings.count-cache.ttl:PT5M}") Duration ttl
+    ) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.dialect = dialect;
+        this.ttlNanos = ttl.toNanos();
+    }
+
+    /**
+     * @param table       table behind the listing, used for planner statistics when there is no search
+     * @param searchBy    search term of the listing, or null
+     * @param exactCount  count query to run on a cache miss
+     */
+    public long estimate(String table, String searchBy, LongSupplier exactCount) {
+        if (searchBy == null && dialect.isPostgres()) {
+            Long reltuples = plannerEstimate(table);
+            if (reltuples != null && reltuples >= 0) {
+                return reltuples;
+            }
+        }
+
+        String key = table + '|' + (searchBy == null ? "" : searchBy.toLowerCase());
+        long now = System.nanoTime();
+        CachedCount cached = counts.get(key);
+        if (cached != null && cached.expiresAt() - now > 0) {
+            return cached.value();
+        }
+
+        long value = exactCount.getAsLong();
+        if (counts.size() >= MAX_CACHED_COUNTS) {
+            counts.values().removeIf(count -> count.expiresAt() - now <= 0);
+            if (counts.size() >= MAX_CACHED_COUNTS) {
+                counts.clear();
+            }
+        }
+        counts.put(key, new CachedCount(value, now + ttlNanos));
+        return value;
+    }
+
+    private Long plannerEstimate(String table) {
+        List<Long> rows = jdbcTemplate.queryForList(
+                "select reltuples::bigint from pg_class where oid = to_regclass(?)", Long.class, table
+        );
+        return rows.isEmpty() ? null : rows.getFirst();
+    }
+}
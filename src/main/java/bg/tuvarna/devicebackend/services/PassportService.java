@@ -12,6 +12,7 @@ import lombok.AllArgsConstructor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 import java.util.Objects;
@@ -20,7 +21,10 @@ import java.util.Objects;
 @AllArgsConstructor
 public class PassportService {
     private final PassportRepository passportRepository;
+    private final ChangeFeedService changeFeedService;
+    private final FleetStatsService fleetStatsService;
 
+    @Transactional
     public Passport create(PassportCreateVO passportCreateVO) {
         List<Passport> passports = passportRepository.findByFromSerialNumberBetween(passportCreateVO.serialPrefix(), passportCreateVO.fromSerialNumber(), passportCreateVO.toSerialNumber());
         if (!passports.isEmpty()) {
@@ -28,10 +32,13 @@ public class PassportService {
         }
 
         Passport passport = PassportMapper.toEntity(passportCreateVO);
+        changeFeedService.stamp(passport);
+        fleetStatsService.passportCreated();
 
         return passportRepository.save(passport);
     }
 
+    @Transactional
     public Passport update(Long id, PassportUpdateVO passportUpdateVO) {
         Passport passport = findPassportById(id);
 
@@ -49,6 +56,7 @@ public class PassportService {
         }
 
         PassportMapper.updateEntity(passport, passportUpdateVO);
+        changeFeedService.stamp(passport);
 
         return passportRepository.save(passport);
     }
@@ -57,6 +65,7 @@ public class PassportService {
         return passportRepository.findById(id).orElse(null);
     }
 
+    @Transactional(readOnly = true)
     public Passport findPassportBySerialId(String serialId) {
         List<Passport> passports = getPassportsBySerialPrefix(serialId);
         
@@ -75,6 +84,7 @@ public class PassportService {
         throw new CustomException("Passport not found for serial number: " + serialId, ErrorCode.Failed);
     }
 
+    @Transactional(readOnly = true)
     public CustomPage<Passport> getPassports(int page, int size) {
         Page<Passport> passports = passportRepository.findAll(PageRequest.of(page - 1, size));
 
@@ -92,11 +102,19 @@ public class PassportService {
         return passportRepository.findByFromSerial(serialId);
     }
 
+    @Transactional
     public void delete(Long id) {
+        boolean exists = passportRepository.existsById(id);
         try {
             passportRepository.deleteById(id);
+            // surface a foreign key violation here rather than at commit
+            passportRepository.flush();
         } catch (RuntimeException e) {
             throw new CustomException("Can't delete passport", ErrorCode.Failed);
         }
+        if (exists) {
+            fleetStatsService.passportDeleted(id);
+            changeFeedService.recordPassportDeletion(id);
+        }
     }
 }
\ No newline at end of file
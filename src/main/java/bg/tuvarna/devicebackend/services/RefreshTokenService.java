@@ -0,0 +1,135 @@
+package bg.tuvarna.devicebackend.services;
+
+import bg.tuvarna.devicebackend.config.JwtService;
+import bg.tuvarna.devicebackend.controllers.exceptions.CustomException;
+import bg.tuvarna.devicebackend.controllers.exceptions.ErrorCode;
+import bg.tuvarna.devicebackend.models.dtos.AuthResponseDTO;
+import bg.tuvarna.devicebackend.repositories.RefreshTokenRepository;
+import bg.tuvarna.devicebackend.repositories.RefreshTokenRepository.StoredToken;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.UUID;
+
+/**
+ * Opaque refresh tokens, so clients renew access tokens with one indexed lookup instead of a password check.
+ * Only the SHA-256 hash of a token is stored. Every refresh rotates the token: the presented one is marked used
+ * and a new one of the same family (the chain started by one login) is returned. Presenting a used
+ * token again means it leaked, so the whole family is revoked.
+ */
+@Service
+public class RefreshTokenService {
+    private static final Logger logger = LoggerFactory.getLogger(RefreshTokenService.class);
+    private static final int TOKEN_BYTES = 32;
+
+    private final RefreshTokenRepository refreshTokenRepository;
+    private final JwtService jwtService;
+    private final Duration lifetime;
+    private final SecureRandom random = new SecureRandom();
+    private final Counter reuse;
+
+    public RefreshTokenService(
+            RefreshTokenRepository refreshTokenRepository,
+            JwtService jwtService,
+            MeterRegistry meterRegistry,
+            @Value("${app.jwt.refresh-token-lifetime:P30D}") Duration lifetime
+    ) {
+        this.refreshTokenRepository = refreshTokenRepository;
+        this.jwtService = jwtService;
+        this.lifetime = lifetime;
+
+        reuse = Counter.builder("auth.refresh.reuse")
+                .description("Refresh tokens presented again after rotation")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Starts a new token family for a login.
+     */
+    @Transactional
+    public String issue(Long userId) {
+        return issue(userId, UUID.randomUUID().toString(), Instant.now());
+    }
+
+    /**
+     * Exchanges a refresh token for a new access token and a new refresh token.
+     * Revocations made while rejecting a reused token are committed.
+     */
+    @Transactional(noRollbackFor = CustomException.class)
+    public AuthResponseDTO refresh(String refreshToken) {
+        Instant now = Instant.now();
+        StoredToken stored = refreshTokenRepository.findByHash(hash(refreshToken))
+                .orElseThrow(RefreshTokenService::invalid);
+
+        if (stored.revokedAt() != null || !stored.expiresAt().isAfter(now)) {
+            throw invalid();
+        }
+        if (stored.usedAt() != null || !refreshTokenRepository.markUsed(stored.id(), now)) {
+            revokeFamily(stored, now);
+            throw invalid();
+        }
+
+        String accessToken = jwtService.generateToken(new HashMap<>(), stored.userId());
+        String rotated = issue(stored.userId(), stored.familyId(), now);
+        return new AuthResponseDTO(accessToken, rotated, null);
+    }
+
+    /**
+     * Signs the user out everywhere: no refresh token issued so far can be used again.
+     */
+    @Transactional
+    public void revokeAll(Long userId) {
+        int revoked = refreshTokenRepository.revokeAllForUser(userId, Instant.now());
+        logger.info("Revoked {} refresh tokens of user {}", revoked, userId);
+    }
+
+    @Scheduled(cron = "${app.jwt.refresh-token-cleanup-cron:0 30 3 * * *}")
+    @Transactional
+    public void deleteExpired() {
+        int deleted = refreshTokenRepository.deleteExpired(Instant.now());
+        logger.info("Deleted {} expired refresh tokens", deleted);
+    }
+
+    private String issue(Long userId, String familyId, Instant now) {
+        byte[] bytes = new byte[TOKEN_BYTES];
+        random.nextBytes(bytes);
+        String token = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+
+        refreshTokenRepository.insert(hash(token), userId, familyId, now.plus(lifetime));
+        return token;
+    }
+
+    private void revokeFamily(StoredToken stored, Instant now) {
+        int revoked = refreshTokenRepository.revokeFamily(stored.familyId(), now);
+        reuse.increment();
+        logger.warn("Refresh token reused for user {}, revoked {} tokens of its family", stored.userId(), revoked);
+    }
+
+    private static CustomException invalid() {
+        return new CustomException("Invalid refresh token", ErrorCode.WrongCredentials);
+    }
+
+    private static String hash(String token) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package bg.tuvarna.devicebackend.services;
+
+import bg.tuvarna.devicebackend.config.DatabaseDialect;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Keeps monthly partitions of {@code renovations} ready from the current month to
+ * {@code app.renovations.partitions.months-ahead} months ahead. Does nothing unless the table is
+ * partitioned, which is only the case on PostgreSQL (see {@code db/vendor/postgresql}).
+ * <p>
+ * Rows already sitting in {@code renovations_default} for a new month are moved into the partition
+ * before it is attached, because PostgreSQL refuses to attach a range the default partition overlaps.
+ */
+@Component
+public class RenovationPartitionMaintainer {
+    private static final Logger logger = LoggerFactory.getLogger(RenovationPartitionMaintainer.class);
+    private static final DateTimeFormatter SUFFIX = DateTimeFormatter.ofPattern("yyyyMM");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final DatabaseDialect dialect;
+    private final TransactionTemplate transactionTemplate;
+    private final int monthsAhead;
+    private volatile Boolean partitioned;
+
+    public RenovationPartitionMaintainer(
+            JdbcTemplate jdbcTemplate,
+            DatabaseDialect dialect,
+            TransactionTemplate transactionTemplate,
+            @Value("${app.renovations.partitions.months-ahead:3}") int monthsAhead
+    ) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.dialect = dialect;
+        this.transactionTemplate = transactionTemplate;
+        this.monthsAhead = monthsAhead;
+    }
+
+    public static String partitionName(YearMonth month) {
+        return "renovations_p" + month.format(SUFFIX);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        ensurePartitions();
+    }
+
+    @Scheduled(cron = "${app.renovations.partitions.cron:0 15 0 * * *}")
+    public void scheduledRun() {
+        ensurePartitions();
+    }
+
+    /**
+     * @return names of the partitions created by this call
+     */
+    public synchronized List<String> ensurePartitions() {
+        if (!isPartitioned()) {
+            return List.of();
+        }
+
+        List<String> created = new ArrayList<>();
+        YearMonth current = YearMonth.now();
+        for (int i = 0; i <= monthsAhead; i++) {
+            YearMonth month = current.plusMonths(i);
+            String name = partitionName(month);
+            if (exists(name)) {
+                continue;
+            }
+
+            int moved = transactionTemplate.execute(status -> createPartition(name, month));
+            logger.info("Created renovation partition {} ({} rows moved from the default partition)", name, moved);
+            created.add(name);
+        }
+        return created;
+    }
+
+    private int createPartition(String name, YearMonth month) {
+        // Both bounds come from YearMonth, so inlining them into the DDL is safe.
+        LocalDate from = month.atDay(1);
+        LocalDate until = month.plusMonths(1).atDay(1);
+
+        jdbcTemplate.execute("create table " + name + " (like renovations including defaults)");
+        int moved = jdbcTemplate.update(
+                "with moved as (delete from renovations_default " +
+                        "where renovation_date >= ? and renovation_date < ? returning *) " +
+                        "insert into " + name + " select * from moved",
+                from, until
+        );
+        jdbcTemplate.execute("alter table renovations attach partition " + name +
+                " for values from ('" + from + "') to ('" + until + "')");
+        return moved;
+    }
+
+    private boolean exists(String table) {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                "select to_regclass(?) is not null", Boolean.class, table
+        ));
+    }
+
+    private boolean isPartitioned() {
+        Boolean result = partitioned;
+        if (result == null) {
+            try {
+                result = dialect.isPostgres() && Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                        "select exists (select 1 from pg_partitioned_table where partrelid = to_regclass('renovations'))",
+                        Boolean.class
+                ));
+            } catch (DataAccessException e) {
+                result = false;
+            }
+            partitioned = result;
+        }
+        return result;
+    }
+}
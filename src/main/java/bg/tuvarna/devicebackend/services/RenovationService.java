@@ -1,18 +1,42 @@
 package bg.tuvarna.devicebackend.services;
 
+import bg.tuvarna.devicebackend.controllers.exceptions.CustomException;
+import bg.tuvarna.devicebackend.controllers.exceptions.ErrorCode;
+import bg.tuvarna.devicebackend.models.dtos.RenovationBatchItemVO;
+import bg.tuvarna.devicebackend.models.dtos.RenovationBatchResultVO;
 import bg.tuvarna.devicebackend.models.dtos.RenovationCreateVO;
+import bg.tuvarna.devicebackend.models.dtos.RenovationListingVO;
 import bg.tuvarna.devicebackend.models.entities.Device;
 import bg.tuvarna.devicebackend.models.entities.Renovation;
+import bg.tuvarna.devicebackend.models.enums.BatchItemStatus;
+import bg.tuvarna.devicebackend.models.events.RenovationAddedEvent;
+import bg.tuvarna.devicebackend.models.events.RenovationsAddedEvent;
 import bg.tuvarna.devicebackend.repositories.RenovationRepository;
+import bg.tuvarna.devicebackend.utils.CustomPage;
+import bg.tuvarna.devicebackend.validators.RecordValidator;
 import lombok.AllArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.*;
 
 @Service
 @AllArgsConstructor
 public class RenovationService {
+    public static final int MAX_BATCH_SIZE = 10_000;
+    private static final RecordValidator<RenovationCreateVO> ITEM_RULES = RecordValidator.of(RenovationCreateVO.class);
+
     private final RenovationRepository renovationRepository;
     private final DeviceService deviceService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ChangeFeedService changeFeedService;
+    private final RenovationStatsService renovationStatsService;
 
+    @Transactional
     public Renovation save(RenovationCreateVO vo) {
         Device device = deviceService.isDeviceExists(vo.deviceSerialNumber());
 
@@ -21,6 +45,126 @@ public class RenovationService {
         renovation.setDescription(vo.description());
         renovation.setRenovationDate(vo.renovationDate());
 
-        return renovationRepository.save(renovation);
+        changeFeedService.stamp(device);
+        Renovation saved = renovationRepository.save(renovation);
+        // the device row is locked before the stats rows, as on every device write path
+        renovationRepository.flush();
+        renovationStatsService.renovationsAdded(List.of(saved));
+        eventPublisher.publishEvent(added(renovation));
+        return saved;
+    }
+
+    /**
+     * Saves a batch of renovations with one query for the serial numbers and JDBC batched inserts.
+     * Invalid items and items for unregistered devices are reported per item and do not fail the batch.
+     * The saved renovations are announced with a single {@link RenovationsAddedEvent}.
+     */
+    @Transactional
+    public RenovationBatchResultVO saveBatch(List<RenovationCreateVO> items) {
+        if (items.size() > MAX_BATCH_SIZE) {
+            throw new CustomException("Batch too large", ErrorCode.Validation, String.valueOf(MAX_BATCH_SIZE));
+        }
+
+        List<RenovationBatchItemVO> results = new ArrayList<>(items.size());
+        List<List<String>> errors = new ArrayList<>(items.size());
+        Set<String> serialNumbers = new HashSet<>();
+
+        for (RenovationCreateVO item : items) {
+            List<String> itemErrors = validate(item);
+            errors.add(itemErrors);
+            if (itemErrors.isEmpty()) {
+                serialNumbers.add(item.deviceSerialNumber());
+            }
+        }
+
+        Set<String> registered = serialNumbers.isEmpty()
+                ? Set.of()
+                : deviceService.findRegisteredSerialNumbers(serialNumbers);
+
+        List<Renovation> renovations = new ArrayList<>(items.size());
+        for (int i = 0; i < items.size(); i++) {
+            RenovationCreateVO item = items.get(i);
+            String serialNumber = item != null ? item.deviceSerialNumber() : null;
+            BatchItemStatus status;
+
+            if (!errors.get(i).isEmpty()) {
+                status = BatchItemStatus.INVALID;
+            } else if (!registered.contains(serialNumber)) {
+                status = BatchItemStatus.NOT_REGISTERED;
+            } else {
+                status = BatchItemStatus.CREATED;
+                renovations.add(toRenovation(item));
+            }
+
+            results.add(new RenovationBatchItemVO(i, serialNumber, status, errors.get(i)));
+        }
+
+        if (!renovations.isEmpty()) {
+            renovationRepository.batchInsert(renovations);
+            changeFeedService.touchDevices(renovations.stream().map(r -> r.getDevice().getSerialNumber()).toList());
+            renovationStatsService.renovationsAdded(renovations);
+            eventPublisher.publishEvent(batchAdded(renovations));
+        }
+
+        return new RenovationBatchResultVO(renovations.size(), items.size() - renovations.size(), results);
+    }
+
+    /**
+     * Renovations dated within {@code [from, to]}, newest first, optionally only for devices of one passport.
+     * Pages are read without a count query so that only the partitions covering the range are scanned.
+     */
+    @Transactional(readOnly = true)
+    public CustomPage<RenovationListingVO> getRenovations(LocalDate from, LocalDate to, Long passportId, int page, int size) {
+        if (from.isAfter(to)) {
+            throw new CustomException("Invalid date range", ErrorCode.Validation, from.toString(), to.toString());
+        }
+
+        PageRequest pageRequest = PageRequest.of(page - 1, size);
+        LocalDate until = to.plusDays(1);
+        Slice<RenovationListingVO> slice = passportId == null
+                ? renovationRepository.findInRange(from, until, pageRequest)
+                : renovationRepository.findInRangeForPassport(from, until, passportId, pageRequest);
+
+        return CustomPage.ofSlice(slice, null);
+    }
+
+    private List<String> validate(RenovationCreateVO item) {
+        if (item == null) {
+            return List.of("Renovation is required");
+        }
+
+        return ITEM_RULES.validate(item);
+    }
+
+    private static RenovationAddedEvent added(Renovation renovation) {
+        return new RenovationAddedEvent(renovation.getDevice().getSerialNumber(), renovation.getRenovationDate());
+    }
+
+    private static RenovationsAddedEvent batchAdded(List<Renovation> renovations) {
+        Set<String> devices = new HashSet<>();
+        LocalDate first = null;
+        LocalDate last = null;
+        for (Renovation renovation : renovations) {
+            devices.add(renovation.getDevice().getSerialNumber());
+            LocalDate date = renovation.getRenovationDate();
+            if (first == null || date.isBefore(first)) {
+                first = date;
+            }
+            if (last == null || date.isAfter(last)) {
+                last = date;
+            }
+        }
+        return new RenovationsAddedEvent(UUID.randomUUID().toString(), renovations.size(), devices.size(), first, last);
+    }
+
+    private static Renovation toRenovation(RenovationCreateVO item) {
+        Device device = new Device();
+        device.setSerialNumber(item.deviceSerialNumber());
+
+        Renovation renovation = new Renovation();
+        renovation.setDevice(device);
+        renovation.setDescription(item.description());
+        renovation.setRenovationDate(item.renovationDate());
+        return renovation;
     }
-}
\ No newline at end of file
+}
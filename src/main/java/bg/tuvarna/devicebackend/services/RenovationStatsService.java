@@ -0,0 +1,195 @@
+package bg.tuvarna.devicebackend.services;
+
+import bg.tuvarna.devicebackend.controllers.exceptions.CustomException;
+import bg.tuvarna.devicebackend.controllers.exceptions.ErrorCode;
+import bg.tuvarna.devicebackend.models.dtos.RenovationStatsVO;
+import bg.tuvarna.devicebackend.models.entities.Device;
+import bg.tuvarna.devicebackend.models.entities.Renovation;
+import bg.tuvarna.devicebackend.repositories.RenovationStatsRepository;
+import bg.tuvarna.devicebackend.repositories.RenovationStatsRepository.MonthKey;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+
+/**
+ * Renovations per passport model per month, and registered devices per model, kept as aggregates so the
+ * report never touches the raw tables. Writers add their deltas in the same transaction as the change,
+ * after locking the device rows they change (see {@link DeviceService} for the lock order);
+ * a nightly reconciliation recomputes both aggregates and corrects any drift, e.g. after a passport's
+ * model was renamed. Renovations of archived devices keep counting; archived devices do not.
+ */
+@Service
+public class RenovationStatsService {
+    public static final int MAX_REPORT_MONTHS = 120;
+
+    private static final Logger logger = LoggerFactory.getLogger(RenovationStatsService.class);
+
+    private final RenovationStatsRepository statsRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate snapshotTemplate;
+    private final Counter corrections;
+
+    public RenovationStatsService(
+            RenovationStatsRepository statsRepository,
+            TransactionTemplate transactionTemplate,
+            MeterRegistry meterRegistry
+    ) {
+        this.statsRepository = statsRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.snapshotTemplate = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        snapshotTemplate.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        snapshotTemplate.setReadOnly(true);
+        corrections = Counter.builder("reports.renovations.corrections").register(meterRegistry);
+    }
+
+    /**
+     * Call after the renovations are written. Only the device serial numbers are read from them.
+     */
+    public void renovationsAdded(Collection<Renovation> renovations) {
+        Set<String> serialNumbers = new HashSet<>();
+        for (Renovation renovation : renovations) {
+            serialNumbers.add(renovation.getDevice().getSerialNumber());
+        }
+        if (serialNumbers.isEmpty()) {
+            return;
+        }
+
+        Map<String, String> models = statsRepository.findModels(serialNumbers);
+        Map<MonthKey, Long> deltas = new HashMap<>();
+        for (Renovation renovation : renovations) {
+            String model = models.get(renovation.getDevice().getSerialNumber());
+            if (model != null && renovation.getRenovationDate() != null) {
+                deltas.merge(new MonthKey(model, renovation.getRenovationDate().withDayOfMonth(1)), 1L, Long::sum);
+            }
+        }
+
+        if (!deltas.isEmpty()) {
+            statsRepository.addRenovations(deltas);
+        }
+    }
+
+    public void deviceRegistered(Device device) {
+        if (device.getPassport() != null && device.getPassport().getModel() != null) {
+            statsRepository.addDevices(Map.of(device.getPassport().getModel(), 1L));
+        }
+    }
+
+    /**
+     * Call before the devices are deleted or archived, while their passports can still be resolved.
+     */
+    public void devicesRemoved(Collection<String> serialNumbers) {
+        if (serialNumbers.isEmpty()) {
+            return;
+        }
+
+        Map<String, Long> deltas = new HashMap<>();
+        statsRepository.countDevicesByModel(serialNumbers).forEach((model, count) -> deltas.put(model, -count));
+        if (!deltas.isEmpty()) {
+            statsRepository.addDevices(deltas);
+        }
+    }
+
+    @Transactional(readOnly = true)
+    public List<RenovationStatsVO> getReport(YearMonth from, YearMonth to, String model) {
+        if (from.isAfter(to) || ChronoUnit.MONTHS.between(from, to) >= MAX_REPORT_MONTHS) {
+            throw new CustomException("Invalid month range", ErrorCode.Validation, String.valueOf(MAX_REPORT_MONTHS));
+        }
+
+        return statsRepository.findReport(from.atDay(1), to.plusMonths(1).atDay(1), model).stream()
+                .map(row -> new RenovationStatsVO(
+                        row.model(),
+                        YearMonth.from(row.monthStart()),
+                        row.renovations(),
+                        row.devices(),
+                        row.devices() > 0 ? (double) row.renovations() / row.devices() : null
+                ))
+                .toList();
+    }
+
+    /**
+     * Fills the aggregates on the first start after they were introduced.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (statsRepository.isEmpty()) {
+            reconcile();
+        }
+    }
+
+    @Scheduled(cron = "${app.reports.reconcile-cron:0 0 4 * * *}")
+    public void scheduledReconcile() {
+        reconcile();
+    }
+
+    /**
+     * Recomputes both aggregates from the raw tables and fixes the rows that differ. The drift is computed in
+     * one read-only snapshot without blocking writers, then added as increments in a short transaction:
+     * writers keep the aggregates in step with the raw rows, so increments committed in between stay correct.
+     *
+     * @return number of rows corrected
+     */
+    public int reconcile() {
+        Drift drift = snapshotTemplate.execute(status -> {
+            Drift found = new Drift(new HashMap<>(), new ArrayList<>(), new HashMap<>(), new ArrayList<>());
+            diff(statsRepository.computeRenovationCounts(), statsRepository.findRenovationCounts(),
+                    found.renovations(), found.staleMonths());
+            diff(statsRepository.computeDeviceCounts(), statsRepository.findDeviceCounts(),
+                    found.devices(), found.staleModels());
+            return found;
+        });
+        if (drift == null || drift.size() == 0) {
+            return 0;
+        }
+
+        transactionTemplate.executeWithoutResult(status -> {
+            statsRepository.addRenovations(drift.renovations());
+            statsRepository.addDevices(drift.devices());
+            statsRepository.deleteEmptyRenovationCounts(drift.staleMonths());
+            statsRepository.deleteEmptyDeviceCounts(drift.staleModels());
+        });
+
+        int total = drift.size();
+        logger.info("Corrected {} renovation report rows", total);
+        corrections.increment(total);
+        return total;
+    }
+
+    private record Drift(Map<MonthKey, Long> renovations, List<MonthKey> staleMonths,
+                         Map<String, Long> devices, List<String> staleModels) {
+        int size() {
+            // stale keys are part of the deltas too
+            return renovations.size() + devices.size();
+        }
+    }
+
+    /**
+     * Collects {@code exact - current} per key; keys missing from {@code exact} are zeroed and marked stale.
+     */
+    private static <K> void diff(Map<K, Long> exact, Map<K, Long> current, Map<K, Long> deltas, List<K> stale) {
+        exact.forEach((key, count) -> {
+            long delta = count - current.getOrDefault(key, 0L);
+            if (delta != 0) {
+                deltas.put(key, delta);
+            }
+        });
+        current.forEach((key, count) -> {
+            if (!exact.containsKey(key)) {
+                deltas.put(key, -count);
+                stale.add(key);
+            }
+        });
+    }
+}
@@ -0,0 +1,152 @@
+package bg.tuvarna.devicebackend.services;
+
+import bg.tuvarna.devicebackend.models.events.UserRegisteredEvent;
+import bg.tuvarna.devicebackend.models.events.UserUpdatedEvent;
+import bg.tuvarna.devicebackend.repositories.UserRepository;
+import bg.tuvarna.devicebackend.repositories.UserRepository.Contact;
+import bg.tuvarna.devicebackend.utils.Contacts;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Resident sets of the normalized emails and phones in use, so availability checks need no query.
+ * Emails are compared case-insensitively and phones by their digits (and leading {@code +}).
+ * <p>
+ * Committed registrations and updates are applied as they happen. Users registered on other instances
+ * are only seen after the periodic rebuild, so a miss is not proof of availability: callers that must
+ * be right fall back to an existence query.
+ */
+@Service
+public class UserAvailabilityIndex {
+    private static final Logger logger = LoggerFactory.getLogger(UserAvailabilityIndex.class);
+    private static final int PAGE_SIZE = 10_000;
+
+    private record Entry(String email, String phone) {
+    }
+
+    private final UserRepository userRepository;
+
+    private volatile Index current = new Index();
+    private volatile Index building;
+    private volatile boolean loaded;
+    private final Object writeLock = new Object();
+
+    private static final class Index {
+        final Set<String> emails = ConcurrentHashMap.newKeySet();
+        final Set<String> phones = ConcurrentHashMap.newKeySet();
+        final Map<Long, Entry> byUser = new ConcurrentHashMap<>();
+
+        void put(Long userId, String email, String phone) {
+            Entry entry = new Entry(Contacts.normalizeEmail(email), Contacts.normalizePhone(phone));
+            Entry previous = userId != null ? byUser.put(userId, entry) : null;
+            if (previous != null) {
+                if (previous.email() != null && !previous.email().equals(entry.email())) {
+                    emails.remove(previous.email());
+                }
+                if (previous.phone() != null && !previous.phone().equals(entry.phone())) {
+                    phones.remove(previous.phone());
+                }
+            }
+            if (entry.email() != null) {
+                emails.add(entry.email());
+            }
+            if (entry.phone() != null) {
+                phones.add(entry.phone());
+            }
+        }
+    }
+
+    public UserAvailabilityIndex(UserRepository userRepository, MeterRegistry meterRegistry) {
+        this.userRepository = userRepository;
+
+        Gauge.builder("users.availability.entries", this, i -> i.current.byUser.size()).register(meterRegistry);
+    }
+
+    /**
+     * False until the first load has finished; until then every check has to go to the database.
+     */
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    public boolean containsEmail(String email) {
+        String normalized = Contacts.normalizeEmail(email);
+        return normalized != null && current.emails.contains(normalized);
+    }
+
+    public boolean containsPhone(String phone) {
+        String normalized = Contacts.normalizePhone(phone);
+        return normalized != null && current.phones.contains(normalized);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onUserRegistered(UserRegisteredEvent event) {
+        put(event.userId(), event.email(), event.phone());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onUserUpdated(UserUpdatedEvent event) {
+        put(event.userId(), event.email(), event.phone());
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        rebuild();
+    }
+
+    @Scheduled(
+            fixedDelayString = "${app.users.availability.rebuild-interval:PT10M}",
+            initialDelayString = "${app.users.availability.rebuild-interval:PT10M}"
+    )
+    public synchronized void rebuild() {
+        long start = System.nanoTime();
+        Index next = new Index();
+        building = next;
+
+        Long after = 0L;
+        List<Contact> page;
+        do {
+            page = userRepository.findContactsAfter(after, Limit.of(PAGE_SIZE));
+            synchronized (writeLock) {
+                for (Contact contact : page) {
+                    next.put(contact.getId(), contact.getEmail(), contact.getPhone());
+                }
+            }
+            if (!page.isEmpty()) {
+                after = page.getLast().getId();
+            }
+        } while (page.size() == PAGE_SIZE);
+
+        synchronized (writeLock) {
+            current = next;
+            building = null;
+        }
+        loaded = true;
+
+        logger.info("User availability index rebuilt with {} users in {} ms",
+                next.byUser.size(), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private void put(Long userId, String email, String phone) {
+        synchronized (writeLock) {
+            current.put(userId, email, phone);
+            Index next = building;
+            if (next != null) {
+                next.put(userId, email, phone);
+            }
+        }
+    }
+}
@@ -2,20 +2,33 @@ package bg.tuvarna.devicebackend.services;
 
 import bg.tuvarna.devicebackend.controllers.exceptions.CustomException;
 import bg.tuvarna.devicebackend.controllers.exceptions.ErrorCode;
+import bg.tuvarna.devicebackend.controllers.exceptions.PreconditionFailedException;
+import bg.tuvarna.devicebackend.models.dtos.AvailabilityVO;
 import bg.tuvarna.devicebackend.models.dtos.ChangePasswordVO;
 import bg.tuvarna.devicebackend.models.dtos.UserCreateVO;
 import bg.tuvarna.devicebackend.models.dtos.UserListing;
 import bg.tuvarna.devicebackend.models.dtos.UserUpdateVO;
 import bg.tuvarna.devicebackend.models.entities.User;
+import bg.tuvarna.devicebackend.models.enums.TotalCountMode;
 import bg.tuvarna.devicebackend.models.enums.UserRole;
+import bg.tuvarna.devicebackend.models.events.UserRegisteredEvent;
+import bg.tuvarna.devicebackend.models.events.UserUpdatedEvent;
 import bg.tuvarna.devicebackend.repositories.UserRepository;
+import bg.tuvarna.devicebackend.utils.Contacts;
 import bg.tuvarna.devicebackend.utils.CustomPage;
+import bg.tuvarna.devicebackend.utils.ETags;
 import lombok.AllArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Locale;
+import java.util.Objects;
 import java.util.stream.Collectors;
 
 @Service
@@ -24,7 +37,13 @@ public class UserService {
     private final UserRepository userRepository;
     private final PasswordEncoder passwordEncoder;
     private final DeviceService deviceService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ListingCountEstimator listingCountEstimator;
+    private final FleetStatsService fleetStatsService;
+    private final UserAvailabilityIndex userAvailabilityIndex;
+    private final RefreshTokenService refreshTokenService;
 
+    @Transactional
     public void register(UserCreateVO userCreateVO) {
         if (isEmailTaken(userCreateVO.email())) {
             throw new CustomException("Email already taken", ErrorCode.AlreadyExists);
@@ -33,10 +52,18 @@ public class UserService {
             throw new CustomException("Phone already taken", ErrorCode.AlreadyExists);
         }
 
-        User user = new User(userCreateVO);
+        User created = new User(userCreateVO);
 
-        user.setPassword(passwordEncoder.encode(userCreateVO.password()));
-        user = userRepository.saveAndFlush(user);
+        created.setPassword(passwordEncoder.encode(userCreateVO.password()));
+        User user;
+        try {
+            user = userRepository.saveAndFlush(created);
+        } catch (DataIntegrityViolationException e) {
+            throw contactTaken(e);
+        }
+        fleetStatsService.userRegistered();
+        // persist assigns the generated id to the instance passed in
+        eventPublisher.publishEvent(new UserRegisteredEvent(created.getId(), created.getFullName(), created.getEmail(), created.getPhone()));
 
         if (
                 userCreateVO.deviceSerialNumber() == null || userCreateVO.deviceSerialNumber().isBlank()
@@ -45,23 +72,31 @@ public class UserService {
             return;
         }
 
-        try {
-            deviceService.alreadyExist(userCreateVO.deviceSerialNumber());
-            deviceService.registerDevice(userCreateVO.deviceSerialNumber(), userCreateVO.purchaseDate(), user);
-        } catch (CustomException e) {
-            userRepository.delete(user);
-            throw e;
-        }
+        deviceService.alreadyExist(userCreateVO.deviceSerialNumber());
+        deviceService.registerDevice(userCreateVO.deviceSerialNumber(), userCreateVO.purchaseDate(), user);
     }
 
+    /**
+     * Answered from {@link UserAvailabilityIndex} when it knows the email, otherwise by an existence query.
+     */
     public boolean isEmailTaken(String email) {
-        User user = userRepository.getByEmail(email);
-        return user != null;
+        return userAvailabilityIndex.containsEmail(email) || existsByEmail(email);
     }
 
     public boolean isPhoneTaken(String phone) {
-        User user = userRepository.getByPhone(phone);
-        return user != null;
+        return userAvailabilityIndex.containsPhone(phone) || existsByPhone(phone);
+    }
+
+    /**
+     * Advisory check for the registration form, answered from memory once the index is loaded.
+     * A value left out is reported as null. Registration itself still checks the database.
+     */
+    public AvailabilityVO checkAvailability(String email, String phone) {
+        boolean fromIndex = userAvailabilityIndex.isLoaded();
+        return new AvailabilityVO(
+                email == null ? null : !(fromIndex ? userAvailabilityIndex.containsEmail(email) : existsByEmail(email)),
+                phone == null ? null : !(fromIndex ? userAvailabilityIndex.containsPhone(phone) : existsByPhone(phone))
+        );
     }
 
     public User getUserById(Long id) {
@@ -72,21 +107,49 @@ public class UserService {
         return userRepository.findByEmailOrPhone(username).orElseThrow(() -> new CustomException("User not found", ErrorCode.EntityNotFound));
     }
 
+    @Transactional(readOnly = true)
     public CustomPage<UserListing> getUsers(String searchBy, int page, int size) {
-        Page<User> userPage;
-        if (searchBy == null) {
-            userPage = userRepository.getAllUsers(PageRequest.of(page - 1, size));
+        return getUsers(searchBy, page, size, TotalCountMode.EXACT);
+    }
+
+    @Transactional(readOnly = true)
+    public CustomPage<UserListing> getUsers(String searchBy, int page, int size, TotalCountMode withTotal) {
+        PageRequest pageRequest = PageRequest.of(page - 1, size);
+        CustomPage<User> userPage;
+
+        if (withTotal == TotalCountMode.EXACT) {
+            Page<User> users = searchBy == null
+                    ? userRepository.getAllUsers(pageRequest)
+                    : userRepository.searchBy(searchBy, pageRequest);
+
+            userPage = new CustomPage<>();
+            userPage.setTotalPages(users.getTotalPages());
+            userPage.setCurrentPage(users.getNumber() + 1);
+            userPage.setSize(users.getSize());
+            userPage.setTotalItems(users.getTotalElements());
+            userPage.setHasNext(users.hasNext());
+            userPage.setItems(users.getContent());
         } else {
-            userPage = userRepository.searchBy(searchBy, PageRequest.of(page - 1, size));
+            Slice<User> users = searchBy == null
+                    ? userRepository.getAllUsersSlice(pageRequest)
+                    : userRepository.searchSlice(searchBy, pageRequest);
+
+            Long estimate = withTotal == TotalCountMode.ESTIMATE && users.hasNext()
+                    ? listingCountEstimator.estimate("users", searchBy,
+                            () -> searchBy == null ? userRepository.countNonAdmins() : userRepository.countSearch(searchBy))
+                    : null;
+            userPage = CustomPage.ofSlice(users, estimate);
         }
 
         CustomPage<UserListing> customPage = new CustomPage<>();
         customPage.setTotalPages(userPage.getTotalPages());
-        customPage.setCurrentPage(userPage.getNumber() + 1);
+        customPage.setCurrentPage(userPage.getCurrentPage());
         customPage.setSize(userPage.getSize());
-        customPage.setTotalItems(userPage.getTotalElements());
+        customPage.setTotalItems(userPage.getTotalItems());
+        customPage.setHasNext(userPage.isHasNext());
+        customPage.setTotalExact(userPage.isTotalExact());
 
-        customPage.setItems(userPage
+        customPage.setItems(userPage.getItems()
                 .stream()
                 .peek(user -> {
                             if (searchBy != null) {
@@ -103,18 +166,31 @@ public class UserService {
         return customPage;
     }
 
+    @Transactional
     public User updateUser(Long id, UserUpdateVO userUpdateVO) {
+        return updateUser(id, userUpdateVO, null);
+    }
+
+    /**
+     * @param ifMatch {@code If-Match} header; the update is refused unless it matches the current ETag
+     */
+    @Transactional
+    public User updateUser(Long id, UserUpdateVO userUpdateVO, String ifMatch) {
         User user = getUserById(id);
 
         if (user.getRole() == UserRole.ADMIN) {
             throw new CustomException("Admin password can't be changed", ErrorCode.Validation);
         }
 
-        if (isEmailTaken(userUpdateVO.email()) && !user.getEmail().equals(userUpdateVO.email())) {
+        if (ifMatch != null && !ETags.matches(ifMatch, ETags.user(user))) {
+            throw new PreconditionFailedException("User was modified");
+        }
+
+        if (!sameEmail(user.getEmail(), userUpdateVO.email()) && isEmailTaken(userUpdateVO.email())) {
             throw new CustomException("Email already taken", ErrorCode.AlreadyExists);
         }
 
-        if (isPhoneTaken(userUpdateVO.phone()) && !user.getPhone().equals(userUpdateVO.phone())) {
+        if (!samePhone(user.getPhone(), userUpdateVO.phone()) && isPhoneTaken(userUpdateVO.phone())) {
             throw new CustomException("Phone already taken", ErrorCode.AlreadyExists);
         }
 
@@ -123,9 +199,17 @@ public class UserService {
         user.setPhone(userUpdateVO.phone());
         user.setEmail(userUpdateVO.email());
 
-        return userRepository.save(user);
+        User saved = userRepository.save(user);
+        try {
+            userRepository.flush();
+        } catch (DataIntegrityViolationException e) {
+            throw contactTaken(e);
+        }
+        eventPublisher.publishEvent(new UserUpdatedEvent(user.getId(), user.getFullName(), user.getEmail(), user.getPhone()));
+        return saved;
     }
 
+    @Transactional
     public void updatePassword(Long id, ChangePasswordVO passwordVO) {
         User user = getUserById(id);
         if (user.getRole() == UserRole.ADMIN) {
@@ -134,8 +218,41 @@ public class UserService {
         if (passwordEncoder.matches(passwordVO.oldPassword(), user.getPassword())) {
             user.setPassword(passwordEncoder.encode(passwordVO.newPassword()));
             userRepository.save(user);
+            refreshTokenService.revokeAll(user.getId());
         } else {
             throw new CustomException("Old password didn't match", ErrorCode.Validation);
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Matches on the normalized column, like the index, so both agree on what counts as taken.
+     */
+    private boolean existsByEmail(String email) {
+        String normalized = Contacts.normalizeEmail(email);
+        return normalized != null && userRepository.existsByEmailNormalized(normalized);
+    }
+
+    private boolean existsByPhone(String phone) {
+        String normalized = Contacts.normalizePhone(phone);
+        return normalized != null && userRepository.existsByPhoneNormalized(normalized);
+    }
+
+    /**
+     * A concurrent registration or update took the email or phone between the check and the write.
+     * The constraint is told apart by name, as the driver message also quotes the conflicting value.
+     */
+    private static CustomException contactTaken(DataIntegrityViolationException e) {
+        String message = String.valueOf(e.getMostSpecificCause().getMessage()).toLowerCase(Locale.ROOT);
+        return message.contains("uk_users_phone")
+                ? new CustomException("Phone already taken", ErrorCode.AlreadyExists)
+                : new CustomException("Email already taken", ErrorCode.AlreadyExists);
+    }
+
+    private static boolean sameEmail(String current, String requested) {
+        return Objects.equals(Contacts.normalizeEmail(current), Contacts.normalizeEmail(requested));
+    }
+
+    private static boolean samePhone(String current, String requested) {
+        return Objects.equals(Contacts.normalizePhone(current), Contacts.normalizePhone(requested));
+    }
+}
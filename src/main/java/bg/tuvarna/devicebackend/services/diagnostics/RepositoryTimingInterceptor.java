@@ -0,0 +1,39 @@
+package bg.tuvarna.devicebackend.services.diagnostics;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.beans.factory.ObjectProvider;
+
+import java.util.List;
+
+/**
+ * Advice added to every Spring Data repository proxy. Latency histograms come from Spring Boot's
+ * {@code spring.data.repository.invocations} timer; this only hands calls over the threshold, with the
+ * SQL they ran, to the {@link SlowQueryLog}.
+ */
+public class RepositoryTimingInterceptor implements MethodInterceptor {
+    private final Class<?> repositoryInterface;
+    private final ObjectProvider<SlowQueryLog> slowQueryLog;
+
+    public RepositoryTimingInterceptor(Class<?> repositoryInterface, ObjectProvider<SlowQueryLog> slowQueryLog) {
+        this.repositoryInterface = repositoryInterface;
+        this.slowQueryLog = slowQueryLog;
+    }
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        List<String> outer = SqlCapture.begin();
+        long start = System.nanoTime();
+        try {
+            return invocation.proceed();
+        } finally {
+            long elapsed = System.nanoTime() - start;
+            List<String> statements = SqlCapture.end(outer);
+
+            SlowQueryLog log = slowQueryLog.getIfAvailable();
+            if (log != null && log.isSlow(elapsed)) {
+                log.record(repositoryInterface, invocation.getMethod(), invocation.getArguments(), elapsed, statements);
+            }
+        }
+    }
+}
@@ -0,0 +1,216 @@
+package bg.tuvarna.devicebackend.services.diagnostics;
+
+import bg.tuvarna.devicebackend.config.DatabaseDialect;
+import bg.tuvarna.devicebackend.models.dtos.SlowQueryVO;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.lang.reflect.Method;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.Temporal;
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The most recent repository calls slower than {@code app.slow-queries.threshold}, newest first, with their
+ * SQL and redacted arguments. On PostgreSQL the first select of each capture is explained in the background
+ * with {@code EXPLAIN (GENERIC_PLAN)}, which needs PostgreSQL 16; plans are cached per statement.
+ */
+@Component
+public class SlowQueryLog {
+    private static final Logger logger = LoggerFactory.getLogger(SlowQueryLog.class);
+    private static final int MAX_CACHED_PLANS = 200;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final DatabaseDialect dialect;
+    private final MeterRegistry meterRegistry;
+    private final long thresholdNanos;
+    private final int capacity;
+    private final boolean explain;
+
+    private final Deque<Entry> entries = new ArrayDeque<>();
+    private final Map<String, String> plans = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+            return size() > MAX_CACHED_PLANS;
+        }
+    });
+    private final ThreadPoolExecutor explainer = new ThreadPoolExecutor(
+            1, 1, 0, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(64),
+            runnable -> {
+                Thread thread = new Thread(runnable, "slow-query-explain");
+                thread.setDaemon(true);
+                return thread;
+            },
+            new ThreadPoolExecutor.DiscardPolicy()
+    );
+
+    public SlowQueryLog(
+            JdbcTemplate jdbcTemplate,
+            DatabaseDialect dialect,
+            MeterRegistry meterRegistry,
+            @Value("${app.slow-queries.threshold:PT0.2S}") Duration threshold,
+            @Value("${app.slow-queries.capacity:200}") int capacity,
+            @Value("${app.slow-queries.explain:true}") boolean explain
+    ) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.dialect = dialect;
+        this.meterRegistry = meterRegistry;
+        this.thresholdNanos = threshold.toNanos();
+        this.capacity = capacity;
+        this.explain = explain;
+    }
+
+    public boolean isSlow(long elapsedNanos) {
+        return elapsedNanos >= thresholdNanos;
+    }
+
+    public void record(Class<?> repository, Method method, Object[] arguments, long elapsedNanos, List<String> statements) {
+        List<String> parameters = new ArrayList<>(arguments != null ? arguments.length : 0);
+        if (arguments != null) {
+            for (Object argument : arguments) {
+                parameters.add(redact(argument));
+            }
+        }
+
+        Entry entry = new Entry(Instant.now(), repository.getSimpleName(), method.getName(),
+                TimeUnit.NANOSECONDS.toMillis(elapsedNanos), List.copyOf(parameters), List.copyOf(statements));
+        synchronized (entries) {
+            entries.addFirst(entry);
+            while (entries.size() > capacity) {
+                entries.removeLast();
+            }
+        }
+
+        Counter.builder("repository.slow.invocations")
+                .tag("repository", entry.repository)
+                .tag("method", entry.method)
+                .register(meterRegistry)
+                .increment();
+
+        if (explain) {
+            statements.stream()
+                    .filter(sql -> sql.stripLeading().regionMatches(true, 0, "select", 0, 6))
+                    .findFirst()
+                    .ifPresent(sql -> explainer.execute(() -> entry.plan = planFor(sql)));
+        }
+    }
+
+    public List<SlowQueryVO> recent() {
+        synchronized (entries) {
+            return entries.stream().map(Entry::toVO).toList();
+        }
+    }
+
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        explainer.shutdownNow();
+    }
+
+    private String planFor(String sql) {
+        if (!dialect.isPostgres()) {
+            return null;
+        }
+
+        String cached = plans.get(sql);
+        if (cached != null) {
+            return cached;
+        }
+
+        String plan;
+        try {
+            plan = String.join("\n", jdbcTemplate.queryForList("explain (generic_plan) " + toPositional(sql), String.class));
+        } catch (DataAccessException e) {
+            logger.debug("Cannot explain slow query: {}", e.getMessage());
+            plan = "unavailable: " + e.getMostSpecificCause().getMessage();
+        }
+        plans.put(sql, plan);
+        return plan;
+    }
+
+    /**
+     * Text may hold emails, phones or names, so only its length is kept.
+     */
+    static String redact(Object argument) {
+        if (argument == null) {
+            return "null";
+        }
+        if (argument instanceof CharSequence text) {
+            return "<text, " + text.length() + " chars>";
+        }
+        if (argument instanceof Number || argument instanceof Boolean || argument instanceof Enum<?>
+                || argument instanceof Temporal || argument instanceof Pageable || argument instanceof Sort
+                || argument instanceof Limit) {
+            return String.valueOf(argument);
+        }
+        if (argument instanceof Collection<?> collection) {
+            return "<" + argument.getClass().getSimpleName() + ", " + collection.size() + " items>";
+        }
+        return "<" + argument.getClass().getSimpleName() + ">";
+    }
+
+    /**
+     * JDBC {@code ?} markers to the {@code $n} parameters that {@code EXPLAIN (GENERIC_PLAN)} expects.
+     */
+    static String toPositional(String sql) {
+        StringBuilder positional = new StringBuilder(sql.length() + 16);
+        boolean quoted = false;
+        int parameter = 0;
+        for (int i = 0; i < sql.length(); i++) {
+            char c = sql.charAt(i);
+            if (c == '\'') {
+                quoted = !quoted;
+            }
+            if (c == '?' && !quoted) {
+                positional.append('$').append(++parameter);
+            } else {
+                positional.append(c);
+            }
+        }
+        return positional.toString();
+    }
+
+    private static final class Entry {
+        private final Instant capturedAt;
+        private final String repository;
+        private final String method;
+        private final long elapsedMillis;
+        private final List<String> parameters;
+        private final List<String> sql;
+        private volatile String plan;
+
+        private Entry(Instant capturedAt, String repository, String method, long elapsedMillis,
+                      List<String> parameters, List<String> sql) {
+            this.capturedAt = capturedAt;
+            this.repository = repository;
+            this.method = method;
+            this.elapsedMillis = elapsedMillis;
+            this.parameters = parameters;
+            this.sql = sql;
+        }
+
+        private SlowQueryVO toVO() {
+            return new SlowQueryVO(capturedAt, repository, method, elapsedMillis, parameters, sql, plan);
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package bg.tuvarna.devicebackend.services.diagnostics;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Collects the SQL Hibernate prepares on the current thread while a repository method runs.
+ * Registered as Hibernate's {@link StatementInspector}; it never changes the statement.
+ */
+public class SqlCapture implements StatementInspector {
+    private static final int MAX_STATEMENTS = 20;
+    private static final ThreadLocal<List<String>> CURRENT = new ThreadLocal<>();
+
+    /**
+     * @return the capture of an enclosing repository call, to be passed back to {@link #end}
+     */
+    static List<String> begin() {
+        List<String> previous = CURRENT.get();
+        CURRENT.set(new ArrayList<>());
+        return previous;
+    }
+
+    static List<String> end(List<String> previous) {
+        List<String> statements = CURRENT.get();
+        if (previous == null) {
+            CURRENT.remove();
+        } else {
+            previous.addAll(statements);
+            CURRENT.set(previous);
+        }
+        return statements;
+    }
+
+    @Override
+    public String inspect(String sql) {
+        List<String> statements = CURRENT.get();
+        if (statements != null && statements.size() < MAX_STATEMENTS) {
+            statements.add(sql);
+        }
+        return sql;
+    }
+}
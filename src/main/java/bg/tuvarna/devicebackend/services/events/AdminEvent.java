@@ -0,0 +1,13 @@
+package bg.tuvarna.devicebackend.services.events;
+
+import java.time.Instant;
+
+/**
+ * Committed domain event as sent on the admin stream. {@code id} increases by one per event within one
+ * run of the application.
+ */
+public record AdminEvent(long id, String type, String aggregateId, Instant occurredAt, String payload) {
+    String coalesceKey() {
+        return type + '|' + aggregateId;
+    }
+}
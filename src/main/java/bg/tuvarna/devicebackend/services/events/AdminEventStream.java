@@ -0,0 +1,297 @@
+package bg.tuvarna.devicebackend.services.events;
+
+import bg.tuvarna.devicebackend.controllers.exceptions.CustomException;
+import bg.tuvarna.devicebackend.controllers.exceptions.ErrorCode;
+import bg.tuvarna.devicebackend.models.enums.SlowConsumerPolicy;
+import bg.tuvarna.devicebackend.models.events.DomainEvent;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Fans committed {@link DomainEvent}s out to the admin console as server-sent events.
+ * <p>
+ * Every subscriber has its own {@link SubscriberBuffer} drained by a virtual thread, so publishing never
+ * waits for a connection. The last {@code app.admin-events.history-size} events are kept for
+ * {@code Last-Event-ID} resume. SSE ids are {@code <epoch>:<sequence>}; an id from another run of the
+ * application, or one older than the history, gets a {@code resync} event telling the client to reload.
+ * <p>
+ * Events are those committed by this instance only: with several instances behind a load balancer, a
+ * subscriber sees the changes made through the node it is connected to, and reconnecting to another node
+ * gets a {@code resync}.
+ */
+@Component
+public class AdminEventStream {
+    static final String RESYNC = "resync";
+
+    private final ObjectMapper objectMapper;
+    private final int bufferSize;
+    private final int maxSubscribers;
+    private final long timeoutMillis;
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+
+    private final AdminEvent[] history;
+    private long nextId = 1;
+
+    private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+    private final AtomicInteger subscriberSlots = new AtomicInteger();
+    private final ExecutorService writers = Executors.newVirtualThreadPerTaskExecutor();
+
+    private final Counter published;
+    private final MeterRegistry meterRegistry;
+
+    public AdminEventStream(
+            ObjectMapper objectMapper,
+            MeterRegistry meterRegistry,
+            @Value("${app.admin-events.history-size:1000}") int historySize,
+            @Value("${app.admin-events.buffer-size:256}") int bufferSize,
+            @Value("${app.admin-events.max-subscribers:50}") int maxSubscribers,
+            @Value("${app.admin-events.timeout:PT30M}") Duration timeout
+    ) {
+        if (historySize < 1 || bufferSize < 1 || maxSubscribers < 1) {
+            throw new IllegalArgumentException(
+                    "app.admin-events history-size, buffer-size and max-subscribers must be positive");
+        }
+        this.objectMapper = objectMapper;
+        this.meterRegistry = meterRegistry;
+        this.history = new AdminEvent[historySize];
+        this.bufferSize = bufferSize;
+        this.maxSubscribers = maxSubscribers;
+        this.timeoutMillis = timeout.toMillis();
+
+        published = Counter.builder("admin.events.published").register(meterRegistry);
+        Gauge.builder("admin.events.subscribers", subscribers, List::size).register(meterRegistry);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void publish(DomainEvent event) {
+        String payload = toJson(event);
+
+        synchronized (this) {
+            AdminEvent adminEvent = new AdminEvent(nextId++, event.type(), event.aggregateId(), Instant.now(), payload);
+            history[(int) ((adminEvent.id() - 1) % history.length)] = adminEvent;
+            for (Subscriber subscriber : subscribers) {
+                subscriber.enqueue(adminEvent);
+            }
+        }
+        published.increment();
+    }
+
+    public SseEmitter subscribe(String lastEventId, SlowConsumerPolicy policy) {
+        if (!reserveSlot()) {
+            throw new CustomException("Too many event subscribers", ErrorCode.Failed);
+        }
+
+        SseEmitter emitter = new SseEmitter(timeoutMillis);
+        Subscriber subscriber = new Subscriber(emitter, new SubscriberBuffer(bufferSize, policy));
+        emitter.onCompletion(() -> remove(subscriber));
+        emitter.onTimeout(() -> remove(subscriber));
+        emitter.onError(e -> remove(subscriber));
+
+        synchronized (this) {
+            if (lastEventId != null) {
+                Optional<List<AdminEvent>> missed = missedSince(lastEventId);
+                if (missed.isEmpty() || missed.get().size() > bufferSize) {
+                    subscriber.resync();
+                } else {
+                    missed.get().forEach(subscriber::enqueue);
+                }
+            }
+            if (subscriber.closed) {
+                subscriberSlots.decrementAndGet();
+            } else {
+                subscribers.add(subscriber);
+            }
+        }
+        return emitter;
+    }
+
+    /**
+     * Takes one of the {@code max-subscribers} slots; a plain size check would let concurrent
+     * subscriptions overshoot the limit. A slot is given back when its subscriber leaves the list.
+     */
+    private boolean reserveSlot() {
+        int taken;
+        do {
+            taken = subscriberSlots.get();
+            if (taken >= maxSubscribers) {
+                return false;
+            }
+        } while (!subscriberSlots.compareAndSet(taken, taken + 1));
+        return true;
+    }
+
+    private void remove(Subscriber subscriber) {
+        if (subscribers.remove(subscriber)) {
+            subscriberSlots.decrementAndGet();
+        }
+    }
+
+    /**
+     * Events published after {@code lastEventId}, or empty when they can no longer be replayed.
+     */
+    public synchronized Optional<List<AdminEvent>> missedSince(String lastEventId) {
+        int separator = lastEventId.indexOf(':');
+        if (separator < 0 || !epoch.equals(lastEventId.substring(0, separator))) {
+            return Optional.empty();
+        }
+
+        long lastSeen;
+        try {
+            lastSeen = Long.parseLong(lastEventId.substring(separator + 1));
+        } catch (NumberFormatException e) {
+            return Optional.empty();
+        }
+
+        long oldestKept = Math.max(1, nextId - history.length);
+        if (lastSeen >= nextId || lastSeen + 1 < oldestKept) {
+            return Optional.empty();
+        }
+
+        List<AdminEvent> missed = new ArrayList<>((int) (nextId - lastSeen - 1));
+        for (long id = lastSeen + 1; id < nextId; id++) {
+            missed.add(history[(int) ((id - 1) % history.length)]);
+        }
+        return Optional.of(missed);
+    }
+
+    /**
+     * SSE id of the most recently published event.
+     */
+    public synchronized String lastEventId() {
+        return sseId(nextId - 1);
+    }
+
+    public int subscriberCount() {
+        return subscribers.size();
+    }
+
+    /**
+     * Comment lines keep proxies from closing idle streams and surface dead connections.
+     */
+    @Scheduled(fixedDelayString = "${app.admin-events.heartbeat:PT15S}", initialDelayString = "${app.admin-events.heartbeat:PT15S}")
+    public void heartbeat() {
+        for (Subscriber subscriber : subscribers) {
+            writers.execute(() -> subscriber.send(SseEmitter.event().comment("")));
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        for (Subscriber subscriber : subscribers) {
+            subscriber.emitter.complete();
+        }
+        writers.shutdownNow();
+    }
+
+    private String sseId(long id) {
+        return epoch + ':' + id;
+    }
+
+    private String toJson(DomainEvent event) {
+        try {
+            return objectMapper.writeValueAsString(event);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot serialize " + event.type(), e);
+        }
+    }
+
+    private final class Subscriber {
+        private final SseEmitter emitter;
+        private final SubscriberBuffer buffer;
+        private final AtomicBoolean draining = new AtomicBoolean();
+        private final Counter dropped;
+        private volatile boolean closed;
+
+        private Subscriber(SseEmitter emitter, SubscriberBuffer buffer) {
+            this.emitter = emitter;
+            this.buffer = buffer;
+            this.dropped = Counter.builder("admin.events.dropped")
+                    .tag("policy", buffer.policy().name())
+                    .register(meterRegistry);
+        }
+
+        void enqueue(AdminEvent event) {
+            long droppedBefore = buffer.dropped();
+            boolean accepted = buffer.offer(event);
+            dropped.increment(buffer.dropped() - droppedBefore);
+
+            if (!accepted) {
+                dropped.increment();
+                disconnect();
+                return;
+            }
+            if (draining.compareAndSet(false, true)) {
+                writers.execute(this::flush);
+            }
+        }
+
+        /**
+         * Sent before the subscriber is registered, so it precedes every live event.
+         */
+        void resync() {
+            String current = lastEventId();
+            send(SseEmitter.event().name(RESYNC).id(current).data(current));
+        }
+
+        private void flush() {
+            while (!closed) {
+                List<AdminEvent> events = buffer.drain();
+                if (events.isEmpty()) {
+                    draining.set(false);
+                    // An event enqueued after drain() but before the reset would otherwise wait for the next one.
+                    if (buffer.isEmpty() || !draining.compareAndSet(false, true)) {
+                        return;
+                    }
+                    continue;
+                }
+
+                for (AdminEvent event : events) {
+                    send(SseEmitter.event()
+                            .id(sseId(event.id()))
+                            .name(event.type())
+                            .data(event.payload()));
+                }
+            }
+        }
+
+        private void send(SseEmitter.SseEventBuilder event) {
+            if (closed) {
+                return;
+            }
+            try {
+                emitter.send(event);
+            } catch (IOException | IllegalStateException e) {
+                closed = true;
+                remove(this);
+                emitter.completeWithError(e);
+            }
+        }
+
+        private void disconnect() {
+            closed = true;
+            remove(this);
+            writers.execute(emitter::complete);
+        }
+    }
+}
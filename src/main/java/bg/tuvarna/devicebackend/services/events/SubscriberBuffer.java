@@ -0,0 +1,86 @@
+package bg.tuvarna.devicebackend.services.events;
+
+import bg.tuvarna.devicebackend.models.enums.SlowConsumerPolicy;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Bounded queue of events waiting to be written to one subscriber. Publishers only ever enqueue here,
+ * so a slow connection costs at most {@code capacity} events of memory and never blocks a commit.
+ */
+public class SubscriberBuffer {
+    private final int capacity;
+    private final SlowConsumerPolicy policy;
+    private final LinkedHashMap<Object, AdminEvent> events = new LinkedHashMap<>();
+    private long dropped;
+    private boolean overflowed;
+
+    public SubscriberBuffer(int capacity, SlowConsumerPolicy policy) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be positive");
+        }
+        this.capacity = capacity;
+        this.policy = policy;
+    }
+
+    /**
+     * @return false when the buffer overflowed under {@link SlowConsumerPolicy#DISCONNECT}
+     */
+    public synchronized boolean offer(AdminEvent event) {
+        if (overflowed) {
+            return false;
+        }
+
+        if (policy == SlowConsumerPolicy.COALESCE) {
+            // Re-inserting moves the aggregate to the tail so events stay in id order.
+            if (events.remove(event.coalesceKey()) != null) {
+                dropped++;
+            }
+            dropOldestIfFull();
+            events.put(event.coalesceKey(), event);
+            return true;
+        }
+
+        if (events.size() >= capacity) {
+            if (policy == SlowConsumerPolicy.DISCONNECT) {
+                overflowed = true;
+                events.clear();
+                return false;
+            }
+            dropOldestIfFull();
+        }
+        events.put(event.id(), event);
+        return true;
+    }
+
+    public synchronized List<AdminEvent> drain() {
+        List<AdminEvent> drained = new ArrayList<>(events.values());
+        events.clear();
+        return drained;
+    }
+
+    public synchronized boolean isEmpty() {
+        return events.isEmpty();
+    }
+
+    public synchronized long dropped() {
+        return dropped;
+    }
+
+    public SlowConsumerPolicy policy() {
+        return policy;
+    }
+
+    private void dropOldestIfFull() {
+        Iterator<Map.Entry<Object, AdminEvent>> oldest = events.entrySet().iterator();
+        while (events.size() >= capacity && oldest.hasNext()) {
+            oldest.next();
+            oldest.remove();
+            dropped++;
+        }
+    }
+}
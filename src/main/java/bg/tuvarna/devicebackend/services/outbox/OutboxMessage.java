@@ -0,0 +1,15 @@
+package bg.tuvarna.devicebackend.services.outbox;
+
+import java.time.Instant;
+
+/**
+ * Outbox row as handed to a sink; {@code payload} is the event serialized as JSON.
+ */
+public record OutboxMessage(
+        long id,
+        String type,
+        String aggregateId,
+        Instant createdAt,
+        String payload
+) {
+}
@@ -0,0 +1,79 @@
+package bg.tuvarna.devicebackend.services.outbox;
+
+import bg.tuvarna.devicebackend.repositories.OutboxRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Drains the outbox to the configured {@link OutboxSink} in id order. Delivery is at least once:
+ * rows are deleted only after the sink accepted their batch. Only one relay should run per database.
+ */
+@Component
+@ConditionalOnProperty(prefix = "app.outbox", name = "enabled", havingValue = "true")
+public class OutboxRelay {
+    private static final Logger logger = LoggerFactory.getLogger(OutboxRelay.class);
+
+    private final OutboxRepository outboxRepository;
+    private final OutboxSink sink;
+    private final int batchSize;
+
+    private final Counter delivered;
+    private final Counter failures;
+
+    public OutboxRelay(
+            OutboxRepository outboxRepository,
+            OutboxSink sink,
+            MeterRegistry meterRegistry,
+            @Value("${app.outbox.batch-size:500}") int batchSize
+    ) {
+        this.outboxRepository = outboxRepository;
+        this.sink = sink;
+        this.batchSize = batchSize;
+
+        delivered = Counter.builder("outbox.delivered").register(meterRegistry);
+        failures = Counter.builder("outbox.failures").register(meterRegistry);
+        Gauge.builder("outbox.backlog", outboxRepository, OutboxRepository::count)
+                .description("Events waiting for delivery")
+                .register(meterRegistry);
+    }
+
+    /**
+     * @return number of events delivered
+     */
+    @Scheduled(fixedDelayString = "${app.outbox.relay-interval:PT1S}", initialDelayString = "${app.outbox.relay-interval:PT1S}")
+    public synchronized int drain() {
+        int total = 0;
+
+        while (true) {
+            List<OutboxMessage> batch = outboxRepository.findOldest(batchSize);
+            if (batch.isEmpty()) {
+                return total;
+            }
+
+            try {
+                sink.deliver(batch);
+            } catch (Exception e) {
+                failures.increment();
+                logger.warn("Outbox delivery of {} events failed, retrying later: {}", batch.size(), e.getMessage());
+                return total;
+            }
+
+            outboxRepository.deleteAll(batch);
+            delivered.increment(batch.size());
+            total += batch.size();
+
+            if (batch.size() < batchSize) {
+                return total;
+            }
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package bg.tuvarna.devicebackend.services.outbox;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.databind.util.RawValue;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Destination of outbox events. A batch counts as delivered only when {@link #deliver} returns;
+ * on an exception the whole batch is retried later, so sinks must tolerate duplicates.
+ */
+public interface OutboxSink {
+    void deliver(List<OutboxMessage> messages) throws IOException;
+
+    /**
+     * One JSON object per line: {@code {"id", "type", "aggregateId", "createdAt", "payload"}}.
+     */
+    static String toNdjson(ObjectMapper objectMapper, List<OutboxMessage> messages) throws IOException {
+        StringBuilder body = new StringBuilder();
+        for (OutboxMessage message : messages) {
+            ObjectNode line = objectMapper.createObjectNode()
+                    .put("id", message.id())
+                    .put("type", message.type())
+                    .put("aggregateId", message.aggregateId())
+                    .put("createdAt", message.createdAt().toString());
+            line.putRawValue("payload", new RawValue(message.payload()));
+            body.append(objectMapper.writeValueAsString(line)).append('\n');
+        }
+        return body.toString();
+    }
+}
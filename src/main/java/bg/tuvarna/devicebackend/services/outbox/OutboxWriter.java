@@ -0,0 +1,87 @@
+package bg.tuvarna.devicebackend.services.outbox;
+
+import bg.tuvarna.devicebackend.models.events.DomainEvent;
+import bg.tuvarna.devicebackend.repositories.OutboxRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Appends published {@link DomainEvent}s to the outbox table. Events of one transaction are buffered
+ * and written with a single JDBC batch just before it commits, so they are stored if and only if the
+ * change that produced them is.
+ */
+@Component
+public class OutboxWriter {
+    private final OutboxRepository outboxRepository;
+    private final ObjectMapper objectMapper;
+    private final boolean enabled;
+
+    public OutboxWriter(
+            OutboxRepository outboxRepository,
+            ObjectMapper objectMapper,
+            @Value("${app.outbox.enabled:false}") boolean enabled
+    ) {
+        this.outboxRepository = outboxRepository;
+        this.objectMapper = objectMapper;
+        this.enabled = enabled;
+    }
+
+    @EventListener
+    public void append(DomainEvent event) {
+        if (!enabled) {
+            return;
+        }
+
+        OutboxMessage message = new OutboxMessage(0, event.type(), event.aggregateId(), Instant.now(), toJson(event));
+
+        if (!TransactionSynchronizationManager.isSynchronizationActive()
+                || !TransactionSynchronizationManager.isActualTransactionActive()) {
+            outboxRepository.insertAll(List.of(message));
+            return;
+        }
+
+        pendingMessages().add(message);
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<OutboxMessage> pendingMessages() {
+        List<OutboxMessage> pending = (List<OutboxMessage>) TransactionSynchronizationManager.getResource(this);
+        if (pending != null) {
+            return pending;
+        }
+
+        List<OutboxMessage> messages = new ArrayList<>();
+        TransactionSynchronizationManager.bindResource(this, messages);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void beforeCommit(boolean readOnly) {
+                if (!messages.isEmpty()) {
+                    outboxRepository.insertAll(messages);
+                }
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(OutboxWriter.this);
+            }
+        });
+        return messages;
+    }
+
+    private String toJson(DomainEvent event) {
+        try {
+            return objectMapper.writeValueAsString(event);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot serialize " + event.type(), e);
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package bg.tuvarna.devicebackend.services.outbox;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.client.ClientHttpRequestFactories;
+import org.springframework.boot.web.client.ClientHttpRequestFactorySettings;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestClient;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * POSTs each batch as one {@code application/x-ndjson} request. Any non-2xx response fails the batch.
+ */
+@Component
+@ConditionalOnProperty(prefix = "app.outbox", name = "sink", havingValue = "webhook")
+public class WebhookOutboxSink implements OutboxSink {
+    private static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+
+    private final ObjectMapper objectMapper;
+    private final RestClient restClient;
+
+    public WebhookOutboxSink(
+            ObjectMapper objectMapper,
+            RestClient.Builder restClientBuilder,
+            @Value("${app.outbox.webhook.url}") String url,
+            @Value("${app.outbox.webhook.timeout:PT10S}") Duration timeout
+    ) {
+        this.objectMapper = objectMapper;
+        this.restClient = restClientBuilder
+                .baseUrl(url)
+                .requestFactory(ClientHttpRequestFactories.get(ClientHttpRequestFactorySettings.DEFAULTS
+                        .withConnectTimeout(timeout)
+                        .withReadTimeout(timeout)))
+                .build();
+    }
+
+    @Override
+    public void deliver(List<OutboxMessage> messages) throws IOException {
+        restClient.post()
+                .contentType(NDJSON)
+                .body(OutboxSink.toNdjson(objectMapper, messages))
+                .retrieve()
+                .toBodilessEntity();
+    }
+}
@@ -0,0 +1,29 @@
+package bg.tuvarna.devicebackend.utils;
+
+import java.util.Locale;
+
+/**
+ * Canonical forms of emails and phones, used wherever two contacts are compared: emails are
+ * case-insensitive and phones keep only digits and a leading {@code +}. {@code users} stores them in the
+ * indexed {@code email_normalized} and {@code phone_normalized} columns.
+ */
+public final class Contacts {
+    private Contacts() {
+    }
+
+    public static String normalizeEmail(String email) {
+        if (email == null || email.isBlank()) {
+            return null;
+        }
+        return email.trim().toLowerCase(Locale.ROOT);
+    }
+
+    public static String normalizePhone(String phone) {
+        if (phone == null || phone.isBlank()) {
+            return null;
+        }
+        String trimmed = phone.trim();
+        String digits = trimmed.replaceAll("\\D", "");
+        return trimmed.startsWith("+") ? "+" + digits : digits;
+    }
+}
@@ -3,6 +3,7 @@ package bg.tuvarna.devicebackend.utils;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import org.springframework.data.domain.Slice;
 
 import java.util.List;
 
@@ -15,4 +16,39 @@ public class CustomPage<T> {
     private int size;
     private long totalItems;
     private List<T> items;
-}
\ No newline at end of file
+    private boolean hasNext;
+    /**
+     * False when {@code totalItems} is an estimate, or -1 because it was not counted.
+     */
+    private boolean totalExact = true;
+
+    /**
+     * Page read without a count query. The total becomes exact once the last page is reached;
+     * before that it is {@code estimatedTotal}, or -1 when there is none.
+     */
+    public static <T> CustomPage<T> ofSlice(Slice<T> slice, Long estimatedTotal) {
+        CustomPage<T> page = new CustomPage<>();
+        page.setItems(slice.getContent());
+        page.setCurrentPage(slice.getNumber() + 1);
+        page.setSize(slice.getSize());
+        page.setHasNext(slice.hasNext());
+
+        long seen = (long) slice.getNumber() * slice.getSize() + slice.getNumberOfElements();
+        boolean lastPage = !slice.hasNext() && (slice.hasContent() || slice.isFirst());
+
+        if (lastPage) {
+            page.setTotalItems(seen);
+        } else if (estimatedTotal != null) {
+            page.setTotalItems(Math.max(estimatedTotal, slice.hasNext() ? seen + 1 : seen));
+            page.setTotalExact(false);
+        } else {
+            page.setTotalItems(-1);
+            page.setTotalPages(-1);
+            page.setTotalExact(false);
+            return page;
+        }
+
+        page.setTotalPages((int) ((page.getTotalItems() + slice.getSize() - 1) / slice.getSize()));
+        return page;
+    }
+}
@@ -0,0 +1,74 @@
+package bg.tuvarna.devicebackend.utils;
+
+import bg.tuvarna.devicebackend.models.entities.Device;
+import bg.tuvarna.devicebackend.models.entities.User;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+
+/**
+ * Strong ETags built from the {@code @Version} columns of everything a representation contains.
+ * A device tag is {@code "<device>.<passport>.<owner>"}, the same string
+ * {@code DeviceRepository.findVersionTag} computes in SQL, so a 304 needs no entity loading.
+ */
+public final class ETags {
+    private ETags() {
+    }
+
+    public static String device(Device device) {
+        return quote(device.getVersion()
+                + "." + (device.getPassport() != null ? device.getPassport().getVersion() : 0)
+                + "." + (device.getUser() != null ? device.getUser().getVersion() : 0));
+    }
+
+    public static String device(String versionTag) {
+        return quote(versionTag);
+    }
+
+    /**
+     * The user representation embeds the user's devices, whose versions do not bump the user row,
+     * so the tag digests the user version together with every device tag.
+     */
+    public static String user(User user) {
+        StringBuilder state = new StringBuilder().append(user.getId()).append(':').append(user.getVersion());
+        List<Device> devices = user.getDevices() != null ? user.getDevices() : List.of();
+        devices.stream()
+                .sorted(Comparator.comparing(Device::getSerialNumber))
+                .forEach(device -> state.append('|').append(device.getSerialNumber()).append('=')
+                        .append(device(device)));
+        return quote("u" + user.getVersion() + "-" + digest(state.toString()));
+    }
+
+    /**
+     * Strong comparison as required for {@code If-Match}: weak tags never match, {@code *} always does.
+     */
+    public static boolean matches(String ifMatch, String etag) {
+        if (ifMatch == null) {
+            return true;
+        }
+        for (String candidate : ifMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.equals("*") || tag.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String quote(String value) {
+        return '"' + value + '"';
+    }
+
+    private static String digest(String value) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(hash, 0, 8);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package bg.tuvarna.devicebackend.utils;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Bounded prefix index from search terms to values, each value owned by a key (e.g. a user id).
+ * Terms are kept in a sorted skip list, so a lookup seeks to the prefix in O(log n) and walks only the
+ * matching range. Reads are lock-free; writes for the same owner must not run concurrently.
+ * <p>
+ * Once {@code maxEntries} terms are stored, further terms are rejected until entries are removed.
+ */
+public class PrefixIndex<V> {
+    private static final char SEPARATOR = '\u0000';
+
+    private record Entry<V>(String owner, V value) {
+    }
+
+    private final ConcurrentSkipListMap<String, Entry<V>> terms = new ConcurrentSkipListMap<>();
+    private final Map<String, List<String>> keysByOwner = new ConcurrentHashMap<>();
+    private final AtomicInteger size = new AtomicInteger();
+    private final int maxEntries;
+    private final int maxTermLength;
+
+    public PrefixIndex(int maxEntries, int maxTermLength) {
+        this.maxEntries = maxEntries;
+        this.maxTermLength = maxTermLength;
+    }
+
+    /**
+     * Lower-cases and collapses whitespace, the same way for terms and queries.
+     */
+    public static String normalize(String text) {
+        return text == null ? "" : text.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Replaces every term of {@code owner}. Each term maps to its value; terms longer than the maximum
+     * length are truncated, so they still match on their leading characters.
+     *
+     * @return number of terms rejected because the index is full
+     */
+    public int put(String owner, Map<String, V> valuesByTerm) {
+        remove(owner);
+
+        List<String> keys = new ArrayList<>(valuesByTerm.size());
+        int rejected = 0;
+        for (Map.Entry<String, V> term : valuesByTerm.entrySet()) {
+            String normalized = normalize(term.getKey());
+            if (normalized.isEmpty()) {
+                continue;
+            }
+            if (size.get() >= maxEntries) {
+                rejected++;
+                continue;
+            }
+
+            if (normalized.length() > maxTermLength) {
+                normalized = normalized.substring(0, maxTermLength);
+            }
+            String key = normalized + SEPARATOR + owner;
+            if (terms.put(key, new Entry<>(owner, term.getValue())) == null) {
+                size.incrementAndGet();
+                keys.add(key);
+            }
+        }
+
+        if (!keys.isEmpty()) {
+            keysByOwner.put(owner, keys);
+        }
+        return rejected;
+    }
+
+    public void remove(String owner) {
+        List<String> keys = keysByOwner.remove(owner);
+        if (keys == null) {
+            return;
+        }
+        for (String key : keys) {
+            if (terms.remove(key) != null) {
+                size.decrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Values whose term starts with {@code prefix}, at most one per owner, in term order, so exact and
+     * shorter matches come first.
+     */
+    public List<V> search(String prefix, int limit) {
+        String normalized = normalize(prefix);
+        if (normalized.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+
+        List<V> results = new ArrayList<>(limit);
+        Set<String> owners = new HashSet<>();
+        for (Map.Entry<String, Entry<V>> term : terms.tailMap(normalized).entrySet()) {
+            if (!term.getKey().startsWith(normalized)) {
+                break;
+            }
+            if (owners.add(term.getValue().owner())) {
+                results.add(term.getValue().value());
+                if (results.size() == limit) {
+                    break;
+                }
+            }
+        }
+        return results;
+    }
+
+    public int size() {
+        return size.get();
+    }
+}
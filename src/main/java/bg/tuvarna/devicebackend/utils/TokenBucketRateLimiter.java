@@ -0,0 +1,125 @@
+package bg.tuvarna.devicebackend.utils;
+
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Lock-free token buckets keyed by client, kept in striped maps.
+ * <p>
+ * Each bucket is a single {@link AtomicLong} holding the time at which it will be full again
+ * (the GCRA form of a token bucket), updated with a CAS loop. A bucket whose refill time has passed
+ * is full, which is exactly how an absent bucket behaves, so idle buckets can be evicted without
+ * changing any decision. When a stripe is still over its share of {@code maxBuckets} after that, the
+ * eighth of its buckets nearest to full are dropped and their clients start over with a full bucket.
+ * A bucket only gets nearer to full while it is not used, so the least recently active clients go first
+ * and a client that is being throttled keeps its bucket.
+ */
+public class TokenBucketRateLimiter {
+    private static final long NANOS_PER_SECOND = 1_000_000_000L;
+
+    public record Decision(boolean allowed, long limit, long remaining, long resetSeconds, long retryAfterSeconds) {
+    }
+
+    private final ConcurrentHashMap<String, AtomicLong>[] stripes;
+    private final int maxBucketsPerStripe;
+    private final LongSupplier nanoClock;
+
+    @SuppressWarnings("unchecked")
+    public TokenBucketRateLimiter(int stripeCount, int maxBuckets, LongSupplier nanoClock) {
+        int count = stripeCount <= 1 ? 1 : Integer.highestOneBit(stripeCount - 1) << 1;
+        this.stripes = new ConcurrentHashMap[count];
+        for (int i = 0; i < count; i++) {
+            stripes[i] = new ConcurrentHashMap<>();
+        }
+        this.maxBucketsPerStripe = Math.max(1, maxBuckets / count);
+        this.nanoClock = nanoClock;
+    }
+
+    /**
+     * Takes one token from the bucket of {@code key}, which holds up to {@code capacity} tokens
+     * and refills completely over {@code period}.
+     */
+    public Decision tryAcquire(String key, long capacity, Duration period) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive");
+        }
+        long interval = Math.max(1, period.toNanos() / capacity);
+        long burst = interval * capacity;
+        long now = nanoClock.getAsLong();
+        AtomicLong bucket = bucket(key, now);
+
+        while (true) {
+            long fullAt = bucket.get();
+            long next = Math.max(fullAt, now) + interval;
+            long backlog = next - now;
+
+            if (backlog > burst) {
+                return new Decision(false, capacity, 0, seconds(fullAt - now), seconds(backlog - burst));
+            }
+            if (bucket.compareAndSet(fullAt, next)) {
+                return new Decision(true, capacity, (burst - backlog) / interval, seconds(backlog), 0);
+            }
+        }
+    }
+
+    /**
+     * Drops every bucket that has refilled completely.
+     */
+    public void evictIdle() {
+        long now = nanoClock.getAsLong();
+        for (ConcurrentHashMap<String, AtomicLong> stripe : stripes) {
+            evictIdle(stripe, now);
+        }
+    }
+
+    public long size() {
+        long size = 0;
+        for (ConcurrentHashMap<String, AtomicLong> stripe : stripes) {
+            size += stripe.size();
+        }
+        return size;
+    }
+
+    private AtomicLong bucket(String key, long now) {
+        ConcurrentHashMap<String, AtomicLong> stripe = stripes[spread(key.hashCode()) & (stripes.length - 1)];
+        AtomicLong bucket = stripe.get(key);
+        if (bucket != null) {
+            return bucket;
+        }
+
+        if (stripe.size() >= maxBucketsPerStripe) {
+            synchronized (stripe) {
+                if (stripe.size() >= maxBucketsPerStripe) {
+                    evictIdle(stripe, now);
+                }
+                if (stripe.size() >= maxBucketsPerStripe) {
+                    evictNearestToFull(stripe, Math.max(1, maxBucketsPerStripe / 8));
+                }
+            }
+        }
+        return stripe.computeIfAbsent(key, k -> new AtomicLong(now));
+    }
+
+    private static void evictNearestToFull(ConcurrentHashMap<String, AtomicLong> stripe, int count) {
+        long[] fullAt = stripe.values().stream().mapToLong(AtomicLong::get).sorted().toArray();
+        if (fullAt.length == 0) {
+            return;
+        }
+        long cutoff = fullAt[Math.min(count, fullAt.length) - 1];
+        stripe.values().removeIf(bucket -> bucket.get() - cutoff <= 0);
+    }
+
+    private static void evictIdle(ConcurrentHashMap<String, AtomicLong> stripe, long now) {
+        stripe.values().removeIf(bucket -> bucket.get() - now <= 0);
+    }
+
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+    private static long seconds(long nanos) {
+        return nanos <= 0 ? 0 : (nanos + NANOS_PER_SECOND - 1) / NANOS_PER_SECOND;
+    }
+}
@@ -0,0 +1,157 @@
+package bg.tuvarna.devicebackend.validators;
+
+import bg.tuvarna.devicebackend.annotations.ValidEmail;
+import bg.tuvarna.devicebackend.annotations.ValidPassword;
+import jakarta.validation.Constraint;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.RecordComponent;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Predicate;
+
+/**
+ * Checks the constraints declared on a VO record without going through Bean Validation, for paths that validate
+ * many rows at once (batch endpoints, streamed imports). The annotations are read once when the validator is
+ * built; validating a row calls the record accessors and {@link ValidationRules} directly.
+ * <p>
+ * Supports {@code @NotBlank}, {@code @NotNull}, {@code @Min}, {@code @ValidEmail} and {@code @ValidPassword} in
+ * the default group, and reports the same messages as Bean Validation. Any other constraint fails fast when the
+ * validator is built, so a rule is never skipped silently.
+ */
+public final class RecordValidator<T extends Record> {
+    private static final Set<Class<?>> INTEGRAL_TYPES = Set.of(
+            byte.class, short.class, int.class, long.class,
+            Byte.class, Short.class, Integer.class, Long.class
+    );
+
+    private record Check(Method accessor, Predicate<Object> rule, String message) {
+    }
+
+    private final Check[] checks;
+
+    private RecordValidator(List<Check> checks) {
+        this.checks = checks.toArray(new Check[0]);
+    }
+
+    public static <T extends Record> RecordValidator<T> of(Class<T> type) {
+        List<Check> checks = new ArrayList<>();
+        for (RecordComponent component : type.getRecordComponents()) {
+            Method accessor = component.getAccessor();
+            accessor.setAccessible(true);
+            for (Annotation annotation : field(type, component).getAnnotations()) {
+                Check check = compile(type, component, accessor, annotation);
+                if (check != null) {
+                    checks.add(check);
+                }
+            }
+        }
+        return new RecordValidator<>(checks);
+    }
+
+    /**
+     * @return violation messages in sorted order, or an empty list when the row is valid
+     */
+    public List<String> validate(T row) {
+        List<String> messages = null;
+        for (Check check : checks) {
+            if (!check.rule().test(read(check.accessor(), row))) {
+                if (messages == null) {
+                    messages = new ArrayList<>(2);
+                }
+                messages.add(check.message());
+            }
+        }
+
+        if (messages == null) {
+            return List.of();
+        }
+        messages.sort(null);
+        return messages;
+    }
+
+    public boolean isValid(T row) {
+        for (Check check : checks) {
+            if (!check.rule().test(read(check.accessor(), row))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static Check compile(Class<?> type, RecordComponent component, Method accessor, Annotation annotation) {
+        if (annotation instanceof NotBlank notBlank) {
+            requireDefaultGroup(type, component, notBlank.groups());
+            return new Check(accessor, value -> ValidationRules.isNotBlank((CharSequence) value),
+                    message(notBlank.message(), "must not be blank"));
+        }
+        if (annotation instanceof NotNull notNull) {
+            requireDefaultGroup(type, component, notNull.groups());
+            return new Check(accessor, value -> value != null, message(notNull.message(), "must not be null"));
+        }
+        if (annotation instanceof Min min) {
+            requireDefaultGroup(type, component, min.groups());
+            if (!INTEGRAL_TYPES.contains(component.getType())) {
+                throw unsupported(type, component, "@Min on " + component.getType().getSimpleName());
+            }
+            long bound = min.value();
+            return new Check(accessor, value -> ValidationRules.isAtLeast((Number) value, bound),
+                    message(min.message(), "must be greater than or equal to " + bound));
+        }
+        if (annotation instanceof ValidEmail validEmail) {
+            requireDefaultGroup(type, component, validEmail.groups());
+            return new Check(accessor, value -> ValidationRules.isValidEmail((CharSequence) value),
+                    validEmail.message());
+        }
+        if (annotation instanceof ValidPassword validPassword) {
+            requireDefaultGroup(type, component, validPassword.groups());
+            return new Check(accessor, value -> ValidationRules.isValidPassword((CharSequence) value),
+                    validPassword.message());
+        }
+        if (annotation.annotationType().isAnnotationPresent(Constraint.class)) {
+            throw unsupported(type, component, "@" + annotation.annotationType().getSimpleName());
+        }
+        return null;
+    }
+
+    private static String message(String declared, String defaultMessage) {
+        return declared.startsWith("{") ? defaultMessage : declared;
+    }
+
+    private static void requireDefaultGroup(Class<?> type, RecordComponent component, Class<?>[] groups) {
+        if (groups.length > 0) {
+            throw unsupported(type, component, "validation groups");
+        }
+    }
+
+    private static IllegalArgumentException unsupported(Class<?> type, RecordComponent component, String what) {
+        return new IllegalArgumentException(
+                "%s.%s: %s is not supported".formatted(type.getSimpleName(), component.getName(), what)
+        );
+    }
+
+    private static Field field(Class<?> type, RecordComponent component) {
+        try {
+            return type.getDeclaredField(component.getName());
+        } catch (NoSuchFieldException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static Object read(Method accessor, Object row) {
+        try {
+            return accessor.invoke(row);
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        } catch (InvocationTargetException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+}
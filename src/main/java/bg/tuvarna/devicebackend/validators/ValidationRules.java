@@ -0,0 +1,117 @@
+package bg.tuvarna.devicebackend.validators;
+
+/**
+ * Hand-rolled matchers behind the custom constraints. Each method accepts exactly what the original regular
+ * expression accepted, but scans the value once without compiling a pattern or allocating.
+ * <p>
+ * As in Bean Validation, {@code null} passes the format checks; {@code @NotBlank}/{@code @NotNull} reject it.
+ */
+public final class ValidationRules {
+    private static final int MIN_PASSWORD_LENGTH = 8;
+
+    private ValidationRules() {
+    }
+
+    /**
+     * Same as {@code ^[A-Za-z0-9+_.-]+@[A-Za-z0-9.-]+\.[A-Za-z]{2,}$}.
+     */
+    public static boolean isValidEmail(CharSequence value) {
+        if (value == null) {
+            return true;
+        }
+
+        int length = value.length();
+        int at = -1;
+        int lastDot = -1;
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c == '@') {
+                if (at >= 0) {
+                    return false;
+                }
+                at = i;
+            } else if (c == '.') {
+                if (at >= 0) {
+                    lastDot = i;
+                }
+            } else if (!isAsciiLetterOrDigit(c) && c != '-' && (at >= 0 || (c != '+' && c != '_'))) {
+                return false;
+            }
+        }
+
+        if (at < 1 || lastDot < at + 2 || length - lastDot - 1 < 2) {
+            return false;
+        }
+        for (int i = lastDot + 1; i < length; i++) {
+            if (!isAsciiLetter(value.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Same as {@code ^(?=.*[0-9])(?=.*[a-z])(?=.*[A-Z])(?=\S+$).{8,}$}: at least eight code points, no
+     * whitespace or line breaks, and at least one digit, lower-case and upper-case ASCII letter.
+     */
+    public static boolean isValidPassword(CharSequence value) {
+        if (value == null) {
+            return true;
+        }
+
+        int length = value.length();
+        boolean digit = false;
+        boolean lower = false;
+        boolean upper = false;
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c >= '0' && c <= '9') {
+                digit = true;
+            } else if (c >= 'a' && c <= 'z') {
+                lower = true;
+            } else if (c >= 'A' && c <= 'Z') {
+                upper = true;
+            } else if (isWhitespaceOrLineBreak(c)) {
+                return false;
+            }
+        }
+
+        return digit && lower && upper
+                && length >= MIN_PASSWORD_LENGTH
+                && Character.codePointCount(value, 0, length) >= MIN_PASSWORD_LENGTH;
+    }
+
+    /**
+     * Same as {@code @NotBlank}: not null and not only characters up to {@code ' '}.
+     */
+    public static boolean isNotBlank(CharSequence value) {
+        if (value == null) {
+            return false;
+        }
+        for (int i = 0, length = value.length(); i < length; i++) {
+            if (value.charAt(i) > ' ') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Same as {@code @Min(min)} on an integral number.
+     */
+    public static boolean isAtLeast(Number value, long min) {
+        return value == null || value.longValue() >= min;
+    }
+
+    private static boolean isWhitespaceOrLineBreak(char c) {
+        return c == ' ' || (c >= '\t' && c <= '\r') || c == '\u0085' || c == '\u2028' || c == '\u2029';
+    }
+
+    private static boolean isAsciiLetterOrDigit(char c) {
+        return isAsciiLetter(c) || (c >= '0' && c <= '9');
+    }
+
+    private static boolean isAsciiLetter(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+    }
+}
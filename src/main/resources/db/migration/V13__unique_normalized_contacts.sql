@@ -0,0 +1,8 @@
+-- Emails and phones that only differ in case, spacing or punctuation belong to the same user. The
+-- availability checks compare the normalized values, but two concurrent registrations can both pass them,
+-- so the normalized columns are made unique as well. Existing duplicates have to be merged before this runs.
+drop index idx_users_email_normalized;
+drop index idx_users_phone_normalized;
+
+create unique index uk_users_email_normalized on users (email_normalized);
+create unique index uk_users_phone_normalized on users (phone_normalized);
@@ -0,0 +1,49 @@
+-- Schema as previously created by hibernate ddl-auto=update.
+-- Existing databases are baselined at this version (spring.flyway.baseline-on-migrate).
+
+create table passports
+(
+    id                 bigint generated by default as identity,
+    name               varchar(255),
+    model              varchar(255),
+    serial_prefix      varchar(255),
+    from_serial_number integer not null,
+    to_serial_number   integer not null,
+    warranty_months    integer not null,
+    primary key (id)
+);
+
+create table users
+(
+    id        bigint generated by default as identity,
+    full_name varchar(255),
+    address   varchar(255),
+    phone     varchar(255),
+    email     varchar(255),
+    password  varchar(255),
+    role      varchar(255) check (role in ('ADMIN', 'USER')),
+    primary key (id)
+);
+
+create table devices
+(
+    serial_number            varchar(255) not null,
+    purchase_date            date,
+    warranty_expiration_date date,
+    comment                  varchar(255),
+    user_id                  bigint,
+    passport_id              bigint,
+    primary key (serial_number),
+    constraint fk_devices_user foreign key (user_id) references users (id),
+    constraint fk_devices_passport foreign key (passport_id) references passports (id)
+);
+
+create table renovations
+(
+    id                   bigint generated by default as identity,
+    description          varchar(255),
+    renovation_date      date,
+    device_serial_number varchar(255),
+    primary key (id),
+    constraint fk_renovations_device foreign key (device_serial_number) references devices (serial_number)
+);
@@ -0,0 +1,10 @@
+alter table users add constraint uk_users_email unique (email);
+alter table users add constraint uk_users_phone unique (phone);
+
+-- join columns used by the device and user listings
+create index idx_devices_user_id on devices (user_id);
+create index idx_devices_passport_id on devices (passport_id);
+create index idx_renovations_device_serial_number on renovations (device_serial_number);
+
+create index idx_devices_warranty_expiration_date on devices (warranty_expiration_date);
+create index idx_passports_serial_prefix on passports (serial_prefix);
@@ -0,0 +1,12 @@
+-- Transactional outbox: rows are written in the transaction that made the change and removed
+-- by the relay once the sink has accepted them.
+
+create table outbox_events
+(
+    id           bigint generated by default as identity,
+    event_type   varchar(64)   not null,
+    aggregate_id varchar(255)  not null,
+    payload      varchar(4000) not null,
+    created_at   timestamp     not null,
+    primary key (id)
+);
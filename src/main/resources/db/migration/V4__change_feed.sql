@@ -0,0 +1,44 @@
+-- Change sequence for the device delta-sync feed (GET /api/v1/devices/changes).
+-- Every device/passport write and device deletion takes the next value, so clients can ask
+-- for everything after the last value they saw.
+
+create table change_sequence
+(
+    id             integer not null,
+    last_value     bigint  not null,
+    purged_through bigint  not null,
+    primary key (id)
+);
+
+alter table devices add column change_seq bigint default 0 not null;
+alter table devices add column updated_at timestamp with time zone;
+alter table passports add column change_seq bigint default 0 not null;
+alter table passports add column updated_at timestamp with time zone;
+
+-- existing rows get distinct values so the feed can page through them
+merge into devices d
+using (select serial_number, row_number() over (order by serial_number) as seq from devices) s
+on d.serial_number = s.serial_number
+when matched then update set change_seq = s.seq;
+
+merge into passports p
+using (select id, row_number() over (order by id) + (select count(*) from devices) as seq from passports) s
+on p.id = s.id
+when matched then update set change_seq = s.seq;
+
+insert into change_sequence (id, last_value, purged_through)
+select 1, (select count(*) from devices) + (select count(*) from passports), 0;
+
+create index idx_devices_change_seq on devices (change_seq);
+create index idx_passports_change_seq on passports (change_seq);
+
+create table device_tombstones
+(
+    serial_number varchar(255)             not null,
+    change_seq    bigint                   not null,
+    deleted_at    timestamp with time zone not null,
+    primary key (serial_number)
+);
+
+create index idx_device_tombstones_change_seq on device_tombstones (change_seq);
+create index idx_device_tombstones_deleted_at on device_tombstones (deleted_at);
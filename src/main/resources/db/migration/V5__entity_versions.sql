@@ -0,0 +1,5 @@
+-- Optimistic-lock versions; also the source of the ETags on device and user resources.
+
+alter table devices add column version bigint default 0 not null;
+alter table users add column version bigint default 0 not null;
+alter table passports add column version bigint default 0 not null;
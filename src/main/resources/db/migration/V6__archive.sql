@@ -0,0 +1,29 @@
+-- Cold storage for devices whose warranty expired long ago, moved by ArchiveService.
+-- No foreign keys: archived rows must not block changes to users and passports.
+
+create table devices_archive
+(
+    serial_number            varchar(255)             not null,
+    purchase_date            date,
+    warranty_expiration_date date,
+    comment                  varchar(255),
+    user_id                  bigint,
+    passport_id              bigint,
+    updated_at               timestamp with time zone,
+    archived_at              timestamp with time zone not null,
+    primary key (serial_number)
+);
+
+create index idx_devices_archive_user_id on devices_archive (user_id);
+
+create table renovations_archive
+(
+    id                   bigint                   not null,
+    description          varchar(255),
+    renovation_date      date,
+    device_serial_number varchar(255),
+    archived_at          timestamp with time zone not null,
+    primary key (id)
+);
+
+create index idx_renovations_archive_device_serial_number on renovations_archive (device_serial_number);
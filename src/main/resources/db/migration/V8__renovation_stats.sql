@@ -0,0 +1,19 @@
+-- Aggregates behind GET /api/v1/reports/renovations, kept up to date by RenovationStatsService and
+-- filled (and corrected) by its reconciliation pass. month_start is the first day of the month.
+
+create table renovation_monthly_stats
+(
+    model       varchar(255) not null,
+    month_start date         not null,
+    renovations bigint       not null,
+    primary key (model, month_start)
+);
+
+create index idx_renovation_monthly_stats_month_start on renovation_monthly_stats (month_start);
+
+create table model_device_counts
+(
+    model   varchar(255) not null,
+    devices bigint       not null,
+    primary key (model)
+);
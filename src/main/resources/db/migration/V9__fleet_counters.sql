@@ -0,0 +1,9 @@
+-- Counters behind GET /api/v1/stats, kept up to date by FleetStatsService. One row per counter, e.g.
+-- devices.total or devices.passport.42; warranty.as-of holds the epoch day the warranty split refers to.
+
+create table fleet_counters
+(
+    name   varchar(100) not null,
+    amount bigint       not null,
+    primary key (name)
+);
@@ -0,0 +1,173 @@
+package bg.tuvarna.devicebackend.api;
+
+import bg.tuvarna.devicebackend.models.dtos.AuthResponseDTO;
+import bg.tuvarna.devicebackend.models.entities.Device;
+import bg.tuvarna.devicebackend.models.entities.Passport;
+import bg.tuvarna.devicebackend.models.entities.User;
+import bg.tuvarna.devicebackend.models.enums.UserRole;
+import bg.tuvarna.devicebackend.repositories.DeviceRepository;
+import bg.tuvarna.devicebackend.repositories.PassportRepository;
+import bg.tuvarna.devicebackend.repositories.RenovationRepository;
+import bg.tuvarna.devicebackend.repositories.UserRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.springframework.security.test.web.servlet.setup.SecurityMockMvcConfigurers.springSecurity;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest
+@ActiveProfiles("test")
+@AutoConfigureMockMvc
+public class ETagApiTests {
+    private static final String UPDATE = """
+            {"purchaseDate":"2024-01-10","comment":"checked"}
+            """;
+
+    @Autowired private MockMvc mvc;
+    @Autowired private WebApplicationContext context;
+    @Autowired private ObjectMapper mapper;
+
+    @Autowired private UserRepository userRepository;
+    @Autowired private PassportRepository passportRepository;
+    @Autowired private DeviceRepository deviceRepository;
+    @Autowired private RenovationRepository renovationRepository;
+    @Autowired private PasswordEncoder passwordEncoder;
+
+    private String token;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        mvc = MockMvcBuilders.webAppContextSetup(context).apply(springSecurity()).build();
+        tearDown();
+
+        User admin = userRepository.save(User.builder()
+                .fullName("admin")
+                .email("admin@abv.bg")
+                .phone("2222222222")
+                .password(passwordEncoder.encode("Admin$12345"))
+                .role(UserRole.ADMIN)
+                .build());
+
+        Passport passport = passportRepository.save(Passport.builder()
+                .name("Tag")
+                .model("T1")
+                .serialPrefix("ET")
+                .fromSerialNumber(1)
+                .toSerialNumber(999)
+                .warrantyMonths(24)
+                .build());
+
+        Device device = new Device();
+        device.setSerialNumber("ET1");
+        device.setPurchaseDate(LocalDate.of(2024, 1, 1));
+        device.setWarrantyExpirationDate(LocalDate.of(2026, 1, 1));
+        device.setPassport(passport);
+        device.setUser(admin);
+        deviceRepository.save(device);
+
+        token = loginAndGetToken();
+    }
+
+    @AfterEach
+    void tearDown() {
+        renovationRepository.deleteAllInBatch();
+        deviceRepository.deleteAllInBatch();
+        passportRepository.deleteAllInBatch();
+        userRepository.deleteAllInBatch();
+    }
+
+    @Test
+    void answersNotModifiedForCurrentETag() throws Exception {
+        String etag = getDeviceETag();
+
+        mvc.perform(get("/api/v1/devices/ET1")
+                        .header("Authorization", "Bearer " + token)
+                        .header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, etag))
+                .andExpect(content().string(""));
+    }
+
+    @Test
+    void conditionalUpdateRequiresCurrentETag() throws Exception {
+        String etag = getDeviceETag();
+
+        MvcResult updated = mvc.perform(put("/api/v1/devices/ET1")
+                        .header("Authorization", "Bearer " + token)
+                        .header(HttpHeaders.IF_MATCH, etag)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(UPDATE))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.comment").value("checked"))
+                .andReturn();
+
+        String newETag = updated.getResponse().getHeader(HttpHeaders.ETAG);
+        assertNotEquals(etag, newETag);
+        assertNotNull(newETag);
+
+        mvc.perform(put("/api/v1/devices/ET1")
+                        .header("Authorization", "Bearer " + token)
+                        .header(HttpHeaders.IF_MATCH, etag)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(UPDATE))
+                .andExpect(status().isPreconditionFailed())
+                .andExpect(jsonPath("$.errorCode").value(8));
+
+        mvc.perform(get("/api/v1/devices/ET1")
+                        .header("Authorization", "Bearer " + token)
+                        .header(HttpHeaders.IF_NONE_MATCH, newETag))
+                .andExpect(status().isNotModified());
+    }
+
+    @Test
+    void currentUserHasETag() throws Exception {
+        MvcResult result = mvc.perform(get("/api/v1/users/getUser").header("Authorization", "Bearer " + token))
+                .andExpect(status().isOk())
+                .andExpect(header().exists(HttpHeaders.ETAG))
+                .andReturn();
+
+        mvc.perform(get("/api/v1/users/getUser")
+                        .header("Authorization", "Bearer " + token)
+                        .header(HttpHeaders.IF_NONE_MATCH, result.getResponse().getHeader(HttpHeaders.ETAG)))
+                .andExpect(status().isNotModified());
+    }
+
+    private String getDeviceETag() throws Exception {
+        MvcResult result = mvc.perform(get("/api/v1/devices/ET1").header("Authorization", "Bearer " + token))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.serialNumber").value("ET1"))
+                .andReturn();
+
+        return result.getResponse().getHeader(HttpHeaders.ETAG);
+    }
+
+    private String loginAndGetToken() throws Exception {
+        MvcResult login = mvc.perform(post("/api/v1/users/login")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                {"username":"admin@abv.bg","password":"Admin$12345"}
+                                """))
+                .andExpect(status().isOk())
+                .andReturn();
+
+        return mapper.readValue(login.getResponse().getContentAsString(), AuthResponseDTO.class).getToken();
+    }
+}
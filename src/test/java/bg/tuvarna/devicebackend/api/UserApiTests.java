@@ -2,9 +2,11 @@ package bg.tuvarna.devicebackend.api;
 
 import bg.tuvarna.devicebackend.controllers.exceptions.ErrorResponse;
 import bg.tuvarna.devicebackend.models.dtos.AuthResponseDTO;
+import bg.tuvarna.devicebackend.models.dtos.RefreshTokenVO;
 import bg.tuvarna.devicebackend.models.entities.User;
 import bg.tuvarna.devicebackend.models.enums.UserRole;
 import bg.tuvarna.devicebackend.repositories.UserRepository;
+import bg.tuvarna.devicebackend.services.UserAvailabilityIndex;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
@@ -42,6 +44,8 @@ public class UserApiTests {
     private UserRepository userRepository;
     @Autowired
     private PasswordEncoder passwordEncoder;
+    @Autowired
+    private UserAvailabilityIndex userAvailabilityIndex;
     @BeforeEach
     void setUp() {
         mvc = MockMvcBuilders
@@ -123,4 +127,49 @@ public class UserApiTests {
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.role").value(UserRole.USER.toString()));
     }
+
+    @Test
+    void availabilityIsPublicAndNormalizesEmails() throws Exception {
+        userAvailabilityIndex.rebuild();
+
+        mvc.perform(get("/api/v1/users/availability")
+                        .param("email", " GOSHO@abv.bg")
+                        .param("phone", "0899 999 999"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.emailAvailable").value(false))
+                .andExpect(jsonPath("$.phoneAvailable").value(true));
+
+        mvc.perform(get("/api/v1/users/availability").param("phone", "0899999999"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.emailAvailable").doesNotExist())
+                .andExpect(jsonPath("$.phoneAvailable").value(true));
+    }
+
+    @Test
+    void refreshTokenRenewsTheAccessTokenOnce() throws Exception {
+        MvcResult login = mvc.perform(post("/api/v1/users/login")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("""
+                    {
+                      "username": "gosho@abv.bg",
+                      "password": "Az$um_GOSHO123"
+                    }""")).andReturn();
+        AuthResponseDTO auth = mapper.readValue(login.getResponse().getContentAsString(), AuthResponseDTO.class);
+        assertNotNull(auth.getRefreshToken());
+
+        MvcResult refresh = mvc.perform(post("/api/v1/users/token/refresh")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(mapper.writeValueAsString(new RefreshTokenVO(auth.getRefreshToken()))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.user").doesNotExist())
+                .andReturn();
+        AuthResponseDTO renewed = mapper.readValue(refresh.getResponse().getContentAsString(), AuthResponseDTO.class);
+
+        mvc.perform(get("/api/v1/users/getUser").header("Authorization", "Bearer " + renewed.getToken()))
+                .andExpect(status().isOk());
+        mvc.perform(post("/api/v1/users/token/refresh")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(mapper.writeValueAsString(new RefreshTokenVO(auth.getRefreshToken()))))
+                .andExpect(status().isBadRequest());
+    }
 }
@@ -0,0 +1,142 @@
+package bg.tuvarna.devicebackend.api;
+
+import bg.tuvarna.devicebackend.models.dtos.AuthResponseDTO;
+import bg.tuvarna.devicebackend.models.dtos.RenovationCreateVO;
+import bg.tuvarna.devicebackend.models.entities.Passport;
+import bg.tuvarna.devicebackend.models.entities.User;
+import bg.tuvarna.devicebackend.models.enums.UserRole;
+import bg.tuvarna.devicebackend.repositories.DeviceRepository;
+import bg.tuvarna.devicebackend.repositories.PassportRepository;
+import bg.tuvarna.devicebackend.repositories.UserRepository;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.security.test.web.servlet.setup.SecurityMockMvcConfigurers.springSecurity;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest
+@ActiveProfiles("test")
+@AutoConfigureMockMvc
+public class WireFormatApiTests {
+    private static final MediaType CBOR = MediaType.parseMediaType("application/cbor");
+    private static final MediaType SMILE = MediaType.parseMediaType("application/x-jackson-smile");
+
+    @Autowired private MockMvc mvc;
+    @Autowired private WebApplicationContext context;
+    @Autowired private ObjectMapper mapper;
+
+    @Autowired private UserRepository userRepository;
+    @Autowired private PassportRepository passportRepository;
+    @Autowired private DeviceRepository deviceRepository;
+    @Autowired private PasswordEncoder passwordEncoder;
+
+    private final CBORMapper cborMapper = CBORMapper.builder().addModule(new JavaTimeModule()).build();
+    private final SmileMapper smileMapper = SmileMapper.builder().addModule(new JavaTimeModule()).build();
+
+    @BeforeEach
+    void setUp() {
+        mvc = MockMvcBuilders.webAppContextSetup(context).apply(springSecurity()).build();
+
+        deviceRepository.deleteAllInBatch();
+        passportRepository.deleteAllInBatch();
+        userRepository.deleteAllInBatch();
+
+        userRepository.save(User.builder()
+                .fullName("admin")
+                .email("admin@abv.bg")
+                .phone("2222222222")
+                .password(passwordEncoder.encode("Admin$12345"))
+                .role(UserRole.ADMIN)
+                .build());
+
+        Passport passport = new Passport();
+        passport.setName("Wire");
+        passport.setModel("W1");
+        passport.setSerialPrefix("WF");
+        passport.setFromSerialNumber(1);
+        passport.setToSerialNumber(999);
+        passport.setWarrantyMonths(24);
+        passportRepository.save(passport);
+    }
+
+    @AfterEach
+    void tearDown() {
+        deviceRepository.deleteAllInBatch();
+        passportRepository.deleteAllInBatch();
+        userRepository.deleteAllInBatch();
+    }
+
+    @Test
+    void jsonStaysTheDefault() throws Exception {
+        mvc.perform(get("/api/v1/passports/getBySerialId/WF10"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.name").value("Wire"));
+    }
+
+    @Test
+    void respondsWithCbor() throws Exception {
+        MvcResult result = mvc.perform(get("/api/v1/passports/getBySerialId/WF10").accept(CBOR))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(CBOR))
+                .andReturn();
+
+        JsonNode body = cborMapper.readTree(result.getResponse().getContentAsByteArray());
+        assertEquals("Wire", body.path("name").asText());
+    }
+
+    @Test
+    void acceptsCborBodyAndRespondsWithSmile() throws Exception {
+        String token = loginAndGetToken();
+        byte[] body = cborMapper.writeValueAsBytes(List.of(
+                new RenovationCreateVO("WF10", "Replaced battery", LocalDate.of(2024, 5, 1))
+        ));
+
+        MvcResult result = mvc.perform(post("/api/v1/renovations/batch")
+                        .header("Authorization", "Bearer " + token)
+                        .contentType(CBOR)
+                        .accept(SMILE)
+                        .content(body))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(SMILE))
+                .andReturn();
+
+        JsonNode response = smileMapper.readTree(result.getResponse().getContentAsByteArray());
+        assertEquals(0, response.path("created").asInt());
+        assertEquals("NOT_REGISTERED", response.path("items").get(0).path("status").asText());
+    }
+
+    private String loginAndGetToken() throws Exception {
+        MvcResult login = mvc.perform(post("/api/v1/users/login")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                {"username":"admin@abv.bg","password":"Admin$12345"}
+                                """))
+                .andExpect(status().isOk())
+                .andReturn();
+
+        return mapper.readValue(login.getResponse().getContentAsString(), AuthResponseDTO.class).getToken();
+    }
+}
@@ -0,0 +1,103 @@
+package bg.tuvarna.devicebackend.config;
+
+import bg.tuvarna.devicebackend.controllers.exceptions.CustomException;
+import bg.tuvarna.devicebackend.models.entities.User;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.crypto.spec.SecretKeySpec;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.KeyStore;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class JwtServiceTests {
+    private static final Duration LIFETIME = Duration.ofHours(2);
+    private static final Duration OVERLAP = Duration.ofMinutes(5);
+
+    @Test
+    void tokensIssuedByOneInstanceAreAcceptedByAnother() {
+        JwtProperties shared = properties(List.of(key("k1", 1, null)));
+        JwtService first = new JwtService(shared);
+        JwtService second = new JwtService(shared);
+        JwtService other = new JwtService(properties(List.of(key("k1", 2, null))));
+        User user = User.builder().id(7L).build();
+
+        String token = first.generateToken(user);
+
+        assertEquals("7", second.extractId(token));
+        assertTrue(second.isTokenValid(token, user));
+        assertThrows(RuntimeException.class, () -> other.extractId(token));
+        assertThrows(CustomException.class, () -> new JwtService(properties(List.of(key("k2", 1, null)))).extractId(token));
+    }
+
+    @Test
+    void rotationSignsWithTheNewKeyAndAcceptsTheOldOneUntilItsTokensExpire() throws Exception {
+        Instant rotation = Instant.parse("2026-01-01T00:00:00Z");
+        JwtProperties properties = properties(List.of(key("old", 1, null), key("new", 2, rotation)));
+
+        JwtKeyRing before = JwtKeyRing.load(properties, rotation.minusSeconds(1));
+        assertEquals("old", before.signingKey(rotation.minusSeconds(1)).id());
+        assertNotNull(before.parser("new"));
+
+        JwtKeyRing during = JwtKeyRing.load(properties, rotation.plus(LIFETIME));
+        assertEquals("new", during.signingKey(rotation.plus(LIFETIME)).id());
+        assertNotNull(during.parser("old"));
+
+        JwtKeyRing after = JwtKeyRing.load(properties, rotation.plus(LIFETIME).plus(OVERLAP));
+        assertEquals(List.of("new"), after.keyIds());
+        assertNull(after.parser("old"));
+    }
+
+    @Test
+    void loadsSecretKeysFromAKeystore(@TempDir Path directory) throws Exception {
+        KeyStore store = KeyStore.getInstance("PKCS12");
+        store.load(null, null);
+        store.setEntry("2026-01", new KeyStore.SecretKeyEntry(new SecretKeySpec(secret(3), "HmacSHA256")),
+                new KeyStore.PasswordProtection("changeit".toCharArray()));
+        Path path = directory.resolve("jwt.p12");
+        try (OutputStream out = Files.newOutputStream(path)) {
+            store.store(out, "changeit".toCharArray());
+        }
+
+        JwtProperties properties = new JwtProperties(List.of(key("config", 1, null)),
+                new JwtProperties.Keystore(path.toString(), "changeit", null, Duration.ofMinutes(10)), LIFETIME, OVERLAP);
+        JwtKeyRing ring = JwtKeyRing.load(properties, Instant.now());
+
+        assertEquals(List.of("config", "2026-01"), ring.keyIds());
+        assertEquals("config", ring.signingKey(Instant.now()).id());
+        assertEquals("2026-01", ring.signingKey(Instant.now().plus(Duration.ofMinutes(11))).id());
+    }
+
+    @Test
+    void generatesAnEphemeralKeyWithoutConfiguration() throws Exception {
+        JwtProperties properties = properties(List.of());
+
+        assertNull(JwtKeyRing.load(properties, Instant.now()));
+        JwtService service = new JwtService(properties);
+        User user = User.builder().id(1L).build();
+        assertTrue(service.isTokenValid(service.generateToken(user), user));
+    }
+
+    private static JwtProperties properties(List<JwtProperties.Key> keys) {
+        return new JwtProperties(keys, null, LIFETIME, OVERLAP);
+    }
+
+    private static JwtProperties.Key key(String id, int seed, Instant activatesAt) {
+        return new JwtProperties.Key(id, Base64.getEncoder().encodeToString(secret(seed)), activatesAt);
+    }
+
+    private static byte[] secret(int seed) {
+        byte[] secret = new byte[32];
+        for (int i = 0; i < secret.length; i++) {
+            secret[i] = (byte) (seed * 31 + i);
+        }
+        return secret;
+    }
+}
@@ -0,0 +1,54 @@
+package bg.tuvarna.devicebackend.config;
+
+import bg.tuvarna.devicebackend.models.dtos.DeviceVO;
+import bg.tuvarna.devicebackend.models.dtos.UserLoginDTO;
+import bg.tuvarna.devicebackend.models.entities.Device;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.aot.hint.MemberCategory;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.TypeReference;
+import org.springframework.aot.hint.predicate.RuntimeHintsPredicates;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class NativeRuntimeHintsTests {
+    private RuntimeHints hints;
+
+    @BeforeEach
+    void setUp() {
+        hints = new RuntimeHints();
+        new NativeRuntimeHints().registerHints(hints, getClass().getClassLoader());
+    }
+
+    @Test
+    void registersEntities() {
+        assertTrue(RuntimeHintsPredicates.reflection()
+                .onType(Device.class)
+                .withMemberCategory(MemberCategory.DECLARED_FIELDS)
+                .test(hints));
+    }
+
+    @Test
+    void registersDtoRecordsForBinding() {
+        assertTrue(RuntimeHintsPredicates.reflection().onType(DeviceVO.class).test(hints));
+    }
+
+    @Test
+    void registersGsonLoginBody() {
+        assertTrue(RuntimeHintsPredicates.reflection()
+                .onType(UserLoginDTO.class)
+                .withMemberCategory(MemberCategory.DECLARED_FIELDS)
+                .test(hints));
+    }
+
+    @Test
+    void registersJjwtImplementations() {
+        assertTrue(RuntimeHintsPredicates.reflection()
+                .onType(TypeReference.of("io.jsonwebtoken.impl.DefaultJwtBuilder"))
+                .test(hints));
+        assertTrue(RuntimeHintsPredicates.resource()
+                .forResource("META-INF/services/io.jsonwebtoken.io.Serializer")
+                .test(hints));
+    }
+}
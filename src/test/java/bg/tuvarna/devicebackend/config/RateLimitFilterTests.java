@@ -0,0 +1,107 @@
+package bg.tuvarna.devicebackend.config;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import static org.springframework.security.test.web.servlet.setup.SecurityMockMvcConfigurers.springSecurity;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest(properties = {
+        "app.rate-limit.enabled=true",
+        "app.rate-limit.key-header=X-Api-Key",
+        "app.rate-limit.trusted-proxies=10.0.0.0/8",
+        "app.rate-limit.routes.login.pattern=/api/v1/users/login",
+        "app.rate-limit.routes.login.capacity=2",
+        "app.rate-limit.routes.login.period=PT1M"
+})
+@ActiveProfiles("test")
+public class RateLimitFilterTests {
+    private static final String BAD_LOGIN = """
+            {"username":"nobody@abv.bg","password":"wrong"}
+            """;
+
+    @Autowired
+    private WebApplicationContext context;
+
+    private MockMvc mvc;
+
+    @BeforeEach
+    void setUp() {
+        mvc = MockMvcBuilders.webAppContextSetup(context).apply(springSecurity()).build();
+    }
+
+    @Test
+    void rejectsAfterCapacityWithHeaders() throws Exception {
+        login("client-a")
+                .andExpect(header().string("RateLimit-Limit", "2"))
+                .andExpect(header().string("RateLimit-Remaining", "1"));
+        login("client-a")
+                .andExpect(header().string("RateLimit-Remaining", "0"));
+
+        login("client-a")
+                .andExpect(status().isTooManyRequests())
+                .andExpect(header().string("Retry-After", "30"))
+                .andExpect(jsonPath("$.errorCode").value(6));
+    }
+
+    @Test
+    void limitsEachKeySeparately() throws Exception {
+        login("client-b");
+        login("client-b");
+
+        login("client-c").andExpect(header().string("RateLimit-Remaining", "1"));
+    }
+
+    @Test
+    void ignoresForwardedForFromUntrustedPeers() throws Exception {
+        loginFrom("127.0.0.2", "198.51.100.1");
+        loginFrom("127.0.0.2", "198.51.100.2");
+
+        loginFrom("127.0.0.2", "198.51.100.3").andExpect(status().isTooManyRequests());
+    }
+
+    @Test
+    void followsForwardedForFromTrustedProxies() throws Exception {
+        loginFrom("10.0.0.5", "203.0.113.1");
+        loginFrom("10.0.0.5", "203.0.113.1");
+
+        loginFrom("10.0.0.5", "203.0.113.1").andExpect(status().isTooManyRequests());
+        loginFrom("10.0.0.5", "192.0.2.9, 203.0.113.2, 10.0.0.7")
+                .andExpect(header().string("RateLimit-Remaining", "1"));
+    }
+
+    @Test
+    void leavesOtherRoutesAlone() throws Exception {
+        mvc.perform(get("/api/v1/devices"))
+                .andExpect(status().isUnauthorized())
+                .andExpect(header().doesNotExist("RateLimit-Limit"));
+    }
+
+    private ResultActions loginFrom(String peer, String forwardedFor) throws Exception {
+        return mvc.perform(post("/api/v1/users/login")
+                .with(request -> {
+                    request.setRemoteAddr(peer);
+                    return request;
+                })
+                .header("X-Forwarded-For", forwardedFor)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(BAD_LOGIN));
+    }
+
+    private ResultActions login(String apiKey) throws Exception {
+        return mvc.perform(post("/api/v1/users/login")
+                .header("X-Api-Key", apiKey)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(BAD_LOGIN));
+    }
+}
@@ -0,0 +1,170 @@
+package bg.tuvarna.devicebackend.config;
+
+import bg.tuvarna.devicebackend.controllers.exceptions.CustomException;
+import bg.tuvarna.devicebackend.models.dtos.ChangePasswordVO;
+import bg.tuvarna.devicebackend.models.entities.Passport;
+import bg.tuvarna.devicebackend.repositories.PassportRepository;
+import bg.tuvarna.devicebackend.services.DeviceService;
+import bg.tuvarna.devicebackend.services.PassportService;
+import bg.tuvarna.devicebackend.services.UserService;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=" + ReadReplicaRoutingTests.PRIMARY_URL,
+        "app.datasource.routing.enabled=true",
+        "app.datasource.routing.replicas[0].url=" + ReadReplicaRoutingTests.REPLICA_URL,
+        "app.datasource.routing.replicas[0].username=test",
+        "app.datasource.routing.replicas[0].password=test",
+        "app.datasource.routing.sticky-window=PT1M"
+})
+@ActiveProfiles("test")
+public class ReadReplicaRoutingTests {
+    static final String PRIMARY_URL = "jdbc:h2:mem:routing-primary;DB_CLOSE_DELAY=-1";
+    static final String REPLICA_URL = "jdbc:h2:mem:routing-replica;DB_CLOSE_DELAY=-1";
+    private static final String INSERT_PASSPORT = "insert into passports " +
+            "(name, model, serial_prefix, warranty_months, from_serial_number, to_serial_number) " +
+            "values ('Passport', 'M1', ?, 12, 1, 100)";
+
+    private static final JdbcTemplate replica = new JdbcTemplate(new DriverManagerDataSource(REPLICA_URL, "test", "test"));
+
+    static {
+        // Stands in for replication: the replica gets the same schema, but none of the primary's rows.
+        Flyway.configure()
+                .dataSource(REPLICA_URL, "test", "test")
+                .locations("classpath:db/migration", "classpath:db/vendor/h2")
+                .load()
+                .migrate();
+    }
+
+    @Autowired
+    private PassportService passportService;
+    @Autowired
+    private DeviceService deviceService;
+    @Autowired
+    private UserService userService;
+    @Autowired
+    private PassportRepository passportRepository;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+        jdbcTemplate.update("delete from devices");
+        jdbcTemplate.update("delete from users");
+        jdbcTemplate.update("delete from passports");
+        replica.update("delete from passports");
+    }
+
+    @Test
+    void writesGoToPrimary() {
+        passportRepository.save(passport("WR"));
+
+        assertEquals(1, jdbcTemplate.queryForObject("select count(*) from passports", Integer.class));
+        assertEquals(0, replica.queryForObject("select count(*) from passports", Integer.class));
+    }
+
+    @Test
+    void readOnlyTransactionsGoToReplica() {
+        // Plain statements outside a transaction do not count as a write by this client.
+        jdbcTemplate.update(INSERT_PASSPORT, "PR");
+        replica.update(INSERT_PASSPORT, "RP");
+
+        List<Passport> passports = passportService.getPassports(1, 10).getItems();
+
+        assertEquals(1, passports.size());
+        assertEquals("RP", passports.getFirst().getSerialPrefix());
+    }
+
+    @Test
+    void readsStickToPrimaryAfterOwnWrite() {
+        authenticate("writer@mail.com");
+
+        passportRepository.save(passport("ST"));
+        List<Passport> passports = passportService.getPassports(1, 10).getItems();
+
+        assertEquals(1, passports.size());
+        assertEquals("ST", passports.getFirst().getSerialPrefix());
+    }
+
+    @Test
+    void readWriteTransactionsThatOnlyReadDoNotStick() {
+        authenticate("reader@mail.com");
+        replica.update(INSERT_PASSPORT, "RP");
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(
+                status -> jdbcTemplate.queryForObject("select count(*) from passports", Integer.class));
+        List<Passport> passports = passportService.getPassports(1, 10).getItems();
+
+        assertEquals(1, passports.size());
+        assertEquals("RP", passports.getFirst().getSerialPrefix());
+    }
+
+    @Test
+    void primaryReadsDoNotStick() {
+        authenticate("primary-reader@mail.com");
+        jdbcTemplate.update("insert into devices (serial_number) values ('PRIMARY2')");
+        replica.update(INSERT_PASSPORT, "RP");
+
+        assertNotNull(deviceService.findDevice("PRIMARY2"));
+        List<Passport> passports = passportService.getPassports(1, 10).getItems();
+
+        assertEquals(1, passports.size());
+        assertEquals("RP", passports.getFirst().getSerialPrefix());
+    }
+
+    @Test
+    void registrationChecksReadPrimary() {
+        jdbcTemplate.update("insert into devices (serial_number) values ('PRIMARY1')");
+
+        CustomException ex = assertThrows(CustomException.class, () -> deviceService.alreadyExist("PRIMARY1"));
+        assertEquals("Device already registered", ex.getMessage());
+        assertNotNull(deviceService.findDevice("PRIMARY1"));
+    }
+
+    @Test
+    void passwordChangesReadPrimary() {
+        jdbcTemplate.update("insert into users (id, email, password, role) values (900, 'primary@mail.com', 'x', 'USER')");
+
+        CustomException ex = assertThrows(CustomException.class,
+                () -> userService.updatePassword(900L, new ChangePasswordVO("wrong", "newPassword1!")));
+        assertEquals("Old password didn't match", ex.getMessage());
+    }
+
+    /**
+     * Each test uses its own principal: the sticky window outlives a single test.
+     */
+    private static void authenticate(String name) {
+        SecurityContextHolder.getContext().setAuthentication(
+                UsernamePasswordAuthenticationToken.authenticated(name, null, List.of())
+        );
+    }
+
+    private static Passport passport(String prefix) {
+        return Passport.builder()
+                .name("Passport " + prefix)
+                .model("M1")
+                .serialPrefix(prefix)
+                .warrantyMonths(12)
+                .fromSerialNumber(1)
+                .toSerialNumber(100)
+                .build();
+    }
+}
@@ -0,0 +1,83 @@
+package bg.tuvarna.devicebackend.migrations;
+
+import bg.tuvarna.devicebackend.services.RenovationPartitionMaintainer;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.time.YearMonth;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs the migrations against a local Postgres container and boots Hibernate with ddl-auto=validate.
+ * Skipped when Docker is not available.
+ */
+@SpringBootTest
+@Testcontainers(disabledWithoutDocker = true)
+public class PostgresSchemaMigrationTests {
+    @Container
+    private static final PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    @DynamicPropertySource
+    static void datasource(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgres::getJdbcUrl);
+        registry.add("spring.datasource.username", postgres::getUsername);
+        registry.add("spring.datasource.password", postgres::getPassword);
+        registry.add("spring.datasource.driver-class-name", () -> "org.postgresql.Driver");
+    }
+
+    @Autowired
+    private Flyway flyway;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private RenovationPartitionMaintainer maintainer;
+
+    @Test
+    void migratesAndValidates() {
+        assertEquals(0, flyway.info().pending().length);
+    }
+
+    @Test
+    void productionIndexesExist() {
+        List<String> indexes = jdbcTemplate.queryForList(
+                "select indexname from pg_indexes where schemaname = 'public'",
+                String.class
+        );
+
+        assertTrue(indexes.containsAll(List.of(
+                "uk_users_email",
+                "uk_users_phone",
+                "idx_devices_user_id",
+                "idx_devices_passport_id",
+                "idx_devices_warranty_expiration_date",
+                "idx_renovations_device_serial_number",
+                "idx_passports_serial_prefix",
+                "idx_renovations_renovation_date"
+        )));
+    }
+
+    @Test
+    void renovationsArePartitionedByMonth() {
+        assertEquals(Boolean.TRUE, jdbcTemplate.queryForObject(
+                "select exists (select 1 from pg_partitioned_table where partrelid = to_regclass('renovations'))",
+                Boolean.class
+        ));
+        assertTrue(maintainer.ensurePartitions().isEmpty());
+        assertEquals(Boolean.TRUE, jdbcTemplate.queryForObject(
+                "select to_regclass(?) is not null",
+                Boolean.class,
+                RenovationPartitionMaintainer.partitionName(YearMonth.now().plusMonths(3))
+        ));
+    }
+}
@@ -0,0 +1,61 @@
+package bg.tuvarna.devicebackend.migrations;
+
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@ActiveProfiles("test")
+public class SchemaMigrationTests {
+    @Autowired
+    private Flyway flyway;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void allMigrationsApplied() {
+        assertEquals(0, flyway.info().pending().length);
+        assertNotNull(flyway.info().current());
+    }
+
+    @Test
+    void productionIndexesExist() {
+        List<String> indexes = jdbcTemplate.queryForList(
+                "select lower(index_name) from information_schema.indexes where table_schema = 'PUBLIC'",
+                String.class
+        );
+
+        assertTrue(indexes.containsAll(List.of(
+                "idx_devices_user_id",
+                "idx_devices_passport_id",
+                "idx_devices_warranty_expiration_date",
+                "idx_renovations_device_serial_number",
+                "idx_passports_serial_prefix"
+        )));
+    }
+
+    @Test
+    void duplicateEmailRejected() {
+        jdbcTemplate.update("insert into users (email, phone, role) values ('a@abv.bg', '1', 'USER')");
+
+        assertThrows(Exception.class, () ->
+                jdbcTemplate.update("insert into users (email, phone, role) values ('a@abv.bg', '2', 'USER')")
+        );
+    }
+
+    @Test
+    void duplicateNormalizedEmailRejected() {
+        jdbcTemplate.update("insert into users (email, email_normalized, phone, role) values ('B@abv.bg', 'b@abv.bg', '3', 'USER')");
+
+        assertThrows(Exception.class, () ->
+                jdbcTemplate.update("insert into users (email, email_normalized, phone, role) values ('b@abv.bg', 'b@abv.bg', '4', 'USER')")
+        );
+    }
+}
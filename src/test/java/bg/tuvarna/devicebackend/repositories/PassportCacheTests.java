@@ -0,0 +1,83 @@
+package bg.tuvarna.devicebackend.repositories;
+
+import bg.tuvarna.devicebackend.models.dtos.PassportCreateVO;
+import bg.tuvarna.devicebackend.models.dtos.PassportUpdateVO;
+import bg.tuvarna.devicebackend.models.entities.Passport;
+import bg.tuvarna.devicebackend.services.PassportService;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@ActiveProfiles("test")
+public class PassportCacheTests {
+    @Autowired
+    private PassportService passportService;
+    @Autowired
+    private PassportRepository passportRepository;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+    private Passport passport;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        passport = passportService.create(new PassportCreateVO("Cached", "C1", "CQ", 12, 1, 1000));
+        statistics.clear();
+    }
+
+    @AfterEach
+    void tearDown() {
+        passportRepository.deleteAll();
+    }
+
+    @Test
+    void serialLookupsBypassTheQueryCache() {
+        passportService.findPassportBySerialId("CQ100");
+        passportService.findPassportBySerialId("CQ101");
+
+        assertEquals(0, statistics.getQueryCachePutCount());
+        assertEquals(0, statistics.getQueryCacheHitCount());
+    }
+
+    @Test
+    void findByIdIsServedFromEntityCache() {
+        passportService.findPassportById(passport.getId());
+        statistics.clear();
+
+        passportService.findPassportById(passport.getId());
+
+        assertEquals(1, statistics.getDomainDataRegionStatistics("passports").getHitCount());
+        assertEquals(0, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void updateIsVisibleToSerialLookups() {
+        passportService.findPassportBySerialId("CQ100");
+
+        passportService.update(passport.getId(), new PassportUpdateVO("Renamed", null, null, null, null, null));
+        Passport found = passportService.findPassportBySerialId("CQ100");
+
+        assertEquals("Renamed", found.getName());
+    }
+
+    @Test
+    void deleteIsVisibleToSerialLookups() {
+        passportService.findPassportBySerialId("CQ100");
+
+        passportService.delete(passport.getId());
+
+        assertTrue(passportService.getPassportsBySerialPrefix("CQ100").isEmpty());
+        assertNull(passportService.findPassportById(passport.getId()));
+    }
+}
@@ -1,17 +1,21 @@
 package bg.tuvarna.devicebackend.repositories;
 
+import bg.tuvarna.devicebackend.models.dtos.RenovationListingVO;
 import bg.tuvarna.devicebackend.models.entities.Device;
+import bg.tuvarna.devicebackend.models.entities.Passport;
 import bg.tuvarna.devicebackend.models.entities.Renovation;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
 
 import jakarta.persistence.EntityManager;
 import org.springframework.test.context.ActiveProfiles;
 
 import java.time.LocalDate;
+import java.util.List;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -137,4 +141,82 @@ public class RenovationRepositoryTests {
 
         assertDoesNotThrow(() -> renovationRepository.deleteById(renovationId));
     }
+
+    @Test
+    public void testBatchInsert() {
+        Device device = new Device();
+        device.setSerialNumber("SN-BATCH");
+        entityManager.persist(device);
+        entityManager.flush();
+
+        Renovation r1 = new Renovation();
+        r1.setDevice(device);
+        r1.setDescription("R1");
+        r1.setRenovationDate(LocalDate.of(2025, 3, 1));
+        Renovation r2 = new Renovation();
+        r2.setDevice(device);
+        r2.setDescription("R2");
+        r2.setRenovationDate(LocalDate.of(2025, 3, 2));
+
+        renovationRepository.batchInsert(List.of(r1, r2));
+        entityManager.clear();
+
+        Device found = entityManager.find(Device.class, "SN-BATCH");
+        assertEquals(2, found.getRenovations().size());
+    }
+
+    @Test
+    public void testFindInRangeIsNewestFirstAndExcludesUntil() {
+        Device device = new Device();
+        device.setSerialNumber("SN-RANGE");
+        addRenovation(device, "Before", LocalDate.of(2025, 3, 31));
+        addRenovation(device, "First", LocalDate.of(2025, 4, 1));
+        addRenovation(device, "Last", LocalDate.of(2025, 4, 30));
+        addRenovation(device, "After", LocalDate.of(2025, 5, 1));
+        entityManager.persist(device);
+        entityManager.flush();
+        entityManager.clear();
+
+        Slice<RenovationListingVO> slice = renovationRepository.findInRange(
+                LocalDate.of(2025, 4, 1), LocalDate.of(2025, 5, 1), PageRequest.of(0, 10)
+        );
+
+        assertEquals(List.of("Last", "First"), slice.getContent().stream().map(RenovationListingVO::description).toList());
+        assertEquals("SN-RANGE", slice.getContent().getFirst().deviceSerialNumber());
+        assertNull(slice.getContent().getFirst().passportId());
+        assertFalse(slice.hasNext());
+    }
+
+    @Test
+    public void testFindInRangeForPassport() {
+        Passport passport = new Passport();
+        passport.setSerialPrefix("RP");
+        passport.setName("test");
+        passport.setModel("model");
+        passport.setFromSerialNumber(1);
+        passport.setToSerialNumber(100);
+        entityManager.persist(passport);
+
+        Device matching = new Device();
+        matching.setSerialNumber("RP1");
+        matching.setPassport(passport);
+        addRenovation(matching, "Matching", LocalDate.of(2025, 6, 10));
+        entityManager.persist(matching);
+
+        Device other = new Device();
+        other.setSerialNumber("SN-OTHER");
+        addRenovation(other, "Other", LocalDate.of(2025, 6, 11));
+        entityManager.persist(other);
+
+        entityManager.flush();
+        entityManager.clear();
+
+        Slice<RenovationListingVO> slice = renovationRepository.findInRangeForPassport(
+                LocalDate.of(2025, 6, 1), LocalDate.of(2025, 7, 1), passport.getId(), PageRequest.of(0, 10)
+        );
+
+        assertEquals(1, slice.getContent().size());
+        assertEquals("Matching", slice.getContent().getFirst().description());
+        assertEquals(passport.getId(), slice.getContent().getFirst().passportId());
+    }
 }
@@ -0,0 +1,155 @@
+package bg.tuvarna.devicebackend.services;
+
+import bg.tuvarna.devicebackend.models.enums.SlowConsumerPolicy;
+import bg.tuvarna.devicebackend.models.events.DeviceDeletedEvent;
+import bg.tuvarna.devicebackend.services.events.AdminEvent;
+import bg.tuvarna.devicebackend.services.events.AdminEventStream;
+import bg.tuvarna.devicebackend.services.events.SubscriberBuffer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AdminEventStreamTests {
+    private AdminEventStream stream;
+
+    @BeforeEach
+    void setUp() {
+        ObjectMapper mapper = new ObjectMapper().registerModule(new JavaTimeModule());
+        stream = new AdminEventStream(mapper, new SimpleMeterRegistry(), 3, 10, 5, Duration.ofMinutes(1));
+    }
+
+    @AfterEach
+    void tearDown() {
+        stream.close();
+    }
+
+    @Test
+    void replaysEventsAfterLastEventId() {
+        stream.publish(new DeviceDeletedEvent("A1"));
+        String lastSeen = stream.lastEventId();
+        stream.publish(new DeviceDeletedEvent("A2"));
+        stream.publish(new DeviceDeletedEvent("A3"));
+
+        List<AdminEvent> missed = stream.missedSince(lastSeen).orElseThrow();
+
+        assertEquals(List.of("A2", "A3"), missed.stream().map(AdminEvent::aggregateId).toList());
+        assertEquals("DeviceDeleted", missed.getFirst().type());
+        assertTrue(missed.getFirst().payload().contains("\"serialNumber\":\"A2\""));
+        assertEquals(List.of(), stream.missedSince(stream.lastEventId()).orElseThrow());
+    }
+
+    @Test
+    void cannotResumePastHistoryOrFromAnotherRun() {
+        stream.publish(new DeviceDeletedEvent("A1"));
+        String lastSeen = stream.lastEventId();
+        for (int i = 2; i <= 5; i++) {
+            stream.publish(new DeviceDeletedEvent("A" + i));
+        }
+
+        assertTrue(stream.missedSince(lastSeen).isEmpty());
+        assertTrue(stream.missedSince("other:1").isEmpty());
+        assertTrue(stream.missedSince("garbage").isEmpty());
+    }
+
+    @Test
+    void rejectsSubscribersOverTheLimit() {
+        for (int i = 0; i < 5; i++) {
+            stream.subscribe(null, SlowConsumerPolicy.DROP_OLDEST);
+        }
+
+        assertEquals(5, stream.subscriberCount());
+        assertThrows(RuntimeException.class, () -> stream.subscribe(null, SlowConsumerPolicy.DROP_OLDEST));
+    }
+
+    @Test
+    void concurrentSubscriptionsStayWithinTheLimit() throws Exception {
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger accepted = new AtomicInteger();
+        try (ExecutorService executor = Executors.newFixedThreadPool(16)) {
+            for (int i = 0; i < 64; i++) {
+                executor.execute(() -> {
+                    try {
+                        start.await();
+                        stream.subscribe(null, SlowConsumerPolicy.DROP_OLDEST);
+                        accepted.incrementAndGet();
+                    } catch (InterruptedException | RuntimeException ignored) {
+                    }
+                });
+            }
+            start.countDown();
+        }
+
+        assertEquals(5, accepted.get());
+        assertEquals(5, stream.subscriberCount());
+    }
+
+    @Test
+    void rejectsNonPositiveSizes() {
+        ObjectMapper mapper = new ObjectMapper();
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+        assertThrows(IllegalArgumentException.class,
+                () -> new AdminEventStream(mapper, registry, 0, 10, 5, Duration.ofMinutes(1)));
+        assertThrows(IllegalArgumentException.class,
+                () -> new AdminEventStream(mapper, registry, 3, 0, 5, Duration.ofMinutes(1)));
+        assertThrows(IllegalArgumentException.class,
+                () -> new AdminEventStream(mapper, registry, 3, 10, 0, Duration.ofMinutes(1)));
+    }
+
+    @Test
+    void dropOldestKeepsNewestEvents() {
+        SubscriberBuffer buffer = new SubscriberBuffer(2, SlowConsumerPolicy.DROP_OLDEST);
+
+        for (long id = 1; id <= 4; id++) {
+            assertTrue(buffer.offer(event(id, "D" + id)));
+        }
+
+        assertEquals(List.of(3L, 4L), buffer.drain().stream().map(AdminEvent::id).toList());
+        assertEquals(2, buffer.dropped());
+    }
+
+    @Test
+    void coalesceKeepsLatestEventPerAggregate() {
+        SubscriberBuffer buffer = new SubscriberBuffer(10, SlowConsumerPolicy.COALESCE);
+
+        buffer.offer(event(1, "D1"));
+        buffer.offer(event(2, "D2"));
+        buffer.offer(event(3, "D1"));
+
+        assertEquals(List.of(2L, 3L), buffer.drain().stream().map(AdminEvent::id).toList());
+        assertEquals(1, buffer.dropped());
+    }
+
+    @Test
+    void disconnectRejectsOnceFull() {
+        SubscriberBuffer buffer = new SubscriberBuffer(1, SlowConsumerPolicy.DISCONNECT);
+
+        assertTrue(buffer.offer(event(1, "D1")));
+        assertFalse(buffer.offer(event(2, "D2")));
+        assertFalse(buffer.offer(event(3, "D3")));
+        assertTrue(buffer.isEmpty());
+    }
+
+    @Test
+    void parsesOverflowParameter() {
+        assertEquals(SlowConsumerPolicy.COALESCE, SlowConsumerPolicy.fromParam("coalesce"));
+        assertThrows(RuntimeException.class, () -> SlowConsumerPolicy.fromParam("block"));
+    }
+
+    private static AdminEvent event(long id, String serialNumber) {
+        return new AdminEvent(id, "DeviceUpdated", serialNumber, Instant.now(), "{}");
+    }
+}
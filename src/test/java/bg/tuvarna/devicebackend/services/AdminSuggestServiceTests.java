@@ -0,0 +1,87 @@
+package bg.tuvarna.devicebackend.services;
+
+import bg.tuvarna.devicebackend.models.dtos.DeviceCreateVO;
+import bg.tuvarna.devicebackend.models.dtos.SuggestionVO;
+import bg.tuvarna.devicebackend.models.dtos.UserCreateVO;
+import bg.tuvarna.devicebackend.models.dtos.UserUpdateVO;
+import bg.tuvarna.devicebackend.models.entities.Passport;
+import bg.tuvarna.devicebackend.models.enums.SuggestionType;
+import bg.tuvarna.devicebackend.repositories.DeviceRepository;
+import bg.tuvarna.devicebackend.repositories.PassportRepository;
+import bg.tuvarna.devicebackend.repositories.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@ActiveProfiles("test")
+public class AdminSuggestServiceTests {
+    @Autowired private AdminSuggestService adminSuggestService;
+    @Autowired private UserService userService;
+    @Autowired private DeviceService deviceService;
+    @Autowired private UserRepository userRepository;
+    @Autowired private DeviceRepository deviceRepository;
+    @Autowired private PassportRepository passportRepository;
+    @Autowired private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        tearDown();
+        passportRepository.save(Passport.builder()
+                .name("Suggest")
+                .model("SG")
+                .serialPrefix("SG")
+                .fromSerialNumber(1)
+                .toSerialNumber(999)
+                .warrantyMonths(12)
+                .build());
+        adminSuggestService.rebuild();
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("delete from renovations");
+        deviceRepository.deleteAllInBatch();
+        passportRepository.deleteAllInBatch();
+        jdbcTemplate.update("delete from users where role <> 'ADMIN'");
+    }
+
+    @Test
+    void followsRegistrationsUpdatesAndDeletions() {
+        userService.register(new UserCreateVO(
+                "Georgi Ivanov", "Password1!", "georgi@example.com", "0888123456", "Varna",
+                LocalDate.now(), "SG7"
+        ));
+        Long userId = userRepository.getByEmail("georgi@example.com").getId();
+
+        assertEquals(List.of(new SuggestionVO(SuggestionType.USER, String.valueOf(userId), "fullName", "Georgi Ivanov", "Georgi Ivanov")),
+                adminSuggestService.suggest("ivan", 10));
+        assertEquals("phone", adminSuggestService.suggest("0888", 10).getFirst().field());
+        assertEquals(List.of(new SuggestionVO(SuggestionType.DEVICE, "SG7", "serialNumber", "SG7", "SG7")),
+                adminSuggestService.suggest("sg", 10));
+
+        userService.updateUser(userId, new UserUpdateVO("Georgi Ivanov", "Varna", "0888123456", "gi@example.com"));
+        assertTrue(adminSuggestService.suggest("georgi@", 10).isEmpty());
+        assertEquals("email", adminSuggestService.suggest("gi@", 10).getFirst().field());
+
+        deviceService.deleteDevice("SG7");
+        assertTrue(adminSuggestService.suggest("sg", 10).isEmpty());
+    }
+
+    @Test
+    void rebuildLoadsExistingRowsAndAnonymousDevicesAreIndexed() {
+        deviceService.addAnonymousDevice(new DeviceCreateVO("SG1", LocalDate.now()));
+        adminSuggestService.rebuild();
+
+        assertEquals(1, adminSuggestService.suggest("SG1", 500).size());
+    }
+}
@@ -0,0 +1,133 @@
+package bg.tuvarna.devicebackend.services;
+
+import bg.tuvarna.devicebackend.controllers.exceptions.CustomException;
+import bg.tuvarna.devicebackend.controllers.exceptions.ErrorCode;
+import bg.tuvarna.devicebackend.models.dtos.ArchivedDeviceVO;
+import bg.tuvarna.devicebackend.models.dtos.DeviceCreateVO;
+import bg.tuvarna.devicebackend.models.entities.Device;
+import bg.tuvarna.devicebackend.models.entities.Passport;
+import bg.tuvarna.devicebackend.models.entities.Renovation;
+import bg.tuvarna.devicebackend.repositories.DeviceRepository;
+import bg.tuvarna.devicebackend.repositories.PassportRepository;
+import bg.tuvarna.devicebackend.repositories.RenovationRepository;
+import bg.tuvarna.devicebackend.utils.CustomPage;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@ActiveProfiles("test")
+@TestPropertySource(properties = {"app.archive.chunk-size=2", "app.archive.min-expired-age=P3Y"})
+public class ArchiveServiceTests {
+    @Autowired private ArchiveService archiveService;
+    @Autowired private DeviceService deviceService;
+    @Autowired private ChangeFeedService changeFeedService;
+    @Autowired private DeviceRepository deviceRepository;
+    @Autowired private PassportRepository passportRepository;
+    @Autowired private RenovationRepository renovationRepository;
+    @Autowired private JdbcTemplate jdbcTemplate;
+
+    private Passport passport;
+
+    @BeforeEach
+    void setUp() {
+        tearDown();
+        passport = passportRepository.save(Passport.builder()
+                .name("Cold")
+                .model("C1")
+                .serialPrefix("AR")
+                .fromSerialNumber(1)
+                .toSerialNumber(999)
+                .warrantyMonths(12)
+                .build());
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("delete from renovations_archive");
+        jdbcTemplate.update("delete from devices_archive");
+        renovationRepository.deleteAllInBatch();
+        deviceRepository.deleteAllInBatch();
+        passportRepository.deleteAllInBatch();
+    }
+
+    @Test
+    void movesStaleDevicesWithRenovationsInChunks() {
+        Device stale = saveDevice("AR1", LocalDate.now().minusYears(5));
+        saveDevice("AR2", LocalDate.now().minusYears(4));
+        saveDevice("AR3", LocalDate.now().minusYears(3).minusDays(1));
+        saveDevice("AR4", LocalDate.now().minusYears(1));
+
+        Renovation renovation = new Renovation();
+        renovation.setDevice(stale);
+        renovation.setDescription("Replaced fan");
+        renovation.setRenovationDate(LocalDate.now().minusYears(6));
+        renovationRepository.save(renovation);
+
+        changeFeedService.sequencePending();
+        String token = String.valueOf(jdbcTemplate.queryForObject("select max(change_seq) from (" +
+                "select change_seq from devices union all select change_seq from device_tombstones) seqs", Long.class));
+
+        assertEquals(3, archiveService.archiveStaleDevices());
+        changeFeedService.sequencePending();
+
+        assertEquals(List.of("AR4"), deviceRepository.findAll().stream().map(Device::getSerialNumber).toList());
+        assertEquals(0, renovationRepository.count());
+
+        ArchivedDeviceVO archived = archiveService.findDevice("AR1");
+        assertEquals(passport.getId(), archived.passportId());
+        assertEquals(List.of("Replaced fan"), archived.renovations().stream().map(r -> r.description()).toList());
+
+        assertEquals(List.of("AR1", "AR2", "AR3"), changeFeedService.changesSince(token, 10).deleted().stream().sorted().toList());
+    }
+
+    @Test
+    void pagesThroughArchive() {
+        saveDevice("AR1", LocalDate.now().minusYears(5));
+        saveDevice("AR2", LocalDate.now().minusYears(5));
+        saveDevice("AR3", LocalDate.now().minusYears(5));
+        archiveService.archiveStaleDevices();
+
+        CustomPage<ArchivedDeviceVO> page = archiveService.getDevices(null, 2, 2);
+
+        assertEquals(3, page.getTotalItems());
+        assertEquals(2, page.getTotalPages());
+        assertEquals(List.of("AR3"), page.getItems().stream().map(ArchivedDeviceVO::serialNumber).toList());
+        assertFalse(page.isHasNext());
+        assertEquals(0, archiveService.getDevices(42L, 1, 10).getTotalItems());
+    }
+
+    @Test
+    void archivedSerialsCannotBeRegisteredAgain() {
+        saveDevice("AR1", LocalDate.now().minusYears(5));
+        archiveService.archiveStaleDevices();
+
+        CustomException ex = assertThrows(CustomException.class,
+                () -> deviceService.addAnonymousDevice(new DeviceCreateVO("AR1", LocalDate.now())));
+        assertEquals(ErrorCode.AlreadyExists, ex.getErrorCode());
+    }
+
+    @Test
+    void unknownArchivedDeviceIsNotFound() {
+        assertThrows(CustomException.class, () -> archiveService.findDevice("missing"));
+    }
+
+    private Device saveDevice(String serialNumber, LocalDate warrantyExpirationDate) {
+        Device device = new Device();
+        device.setSerialNumber(serialNumber);
+        device.setPurchaseDate(warrantyExpirationDate.minusMonths(12));
+        device.setWarrantyExpirationDate(warrantyExpirationDate);
+        device.setPassport(passport);
+        return deviceRepository.save(device);
+    }
+}
@@ -0,0 +1,137 @@
+package bg.tuvarna.devicebackend.services;
+
+import bg.tuvarna.devicebackend.controllers.exceptions.CustomException;
+import bg.tuvarna.devicebackend.controllers.exceptions.ErrorCode;
+import bg.tuvarna.devicebackend.models.dtos.DeviceChangesVO;
+import bg.tuvarna.devicebackend.models.dtos.DeviceCreateVO;
+import bg.tuvarna.devicebackend.models.dtos.DeviceUpdateVO;
+import bg.tuvarna.devicebackend.models.dtos.PassportCreateVO;
+import bg.tuvarna.devicebackend.models.entities.Device;
+import bg.tuvarna.devicebackend.models.entities.Passport;
+import bg.tuvarna.devicebackend.repositories.DeviceRepository;
+import bg.tuvarna.devicebackend.repositories.PassportRepository;
+import bg.tuvarna.devicebackend.repositories.RenovationRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@ActiveProfiles("test")
+public class ChangeFeedTests {
+    @Autowired private ChangeFeedService changeFeedService;
+    @Autowired private DeviceService deviceService;
+    @Autowired private PassportService passportService;
+    @Autowired private RenovationRepository renovationRepository;
+    @Autowired private DeviceRepository deviceRepository;
+    @Autowired private PassportRepository passportRepository;
+    @Autowired private JdbcTemplate jdbcTemplate;
+
+    private Passport passport;
+
+    @BeforeEach
+    void setUp() {
+        renovationRepository.deleteAllInBatch();
+        deviceRepository.deleteAllInBatch();
+        passportRepository.deleteAllInBatch();
+
+        passport = passportService.create(new PassportCreateVO("Feed", "F1", "CF", 24, 1, 999));
+    }
+
+    @Test
+    void returnsOnlyWhatChangedSinceTheToken() {
+        deviceService.addAnonymousDevice(new DeviceCreateVO("CF1", LocalDate.now()));
+        deviceService.addAnonymousDevice(new DeviceCreateVO("CF2", LocalDate.now()));
+        String token = currentToken();
+
+        deviceService.updateDevice("CF2", new DeviceUpdateVO(LocalDate.now().minusDays(1), "updated"));
+        deviceService.deleteDevice("CF1");
+        changeFeedService.sequencePending();
+
+        DeviceChangesVO changes = changeFeedService.changesSince(token, 100);
+
+        assertEquals(List.of("CF2"), changes.devices().stream().map(Device::getSerialNumber).toList());
+        assertEquals("updated", changes.devices().getFirst().getComment());
+        assertEquals(List.of("CF1"), changes.deleted());
+        assertTrue(changes.passports().isEmpty());
+        assertTrue(changes.deletedPassports().isEmpty());
+        assertFalse(changes.hasMore());
+
+        DeviceChangesVO nothing = changeFeedService.changesSince(changes.nextToken(), 100);
+        assertTrue(nothing.devices().isEmpty() && nothing.deleted().isEmpty());
+        assertEquals(changes.nextToken(), nothing.nextToken());
+    }
+
+    @Test
+    void pagesThroughChangesInSequenceOrder() {
+        String token = currentToken();
+        for (int i = 1; i <= 5; i++) {
+            deviceService.addAnonymousDevice(new DeviceCreateVO("CF" + i, LocalDate.now()));
+            changeFeedService.sequencePending();
+        }
+
+        DeviceChangesVO first = changeFeedService.changesSince(token, 2);
+        DeviceChangesVO second = changeFeedService.changesSince(first.nextToken(), 2);
+        DeviceChangesVO third = changeFeedService.changesSince(second.nextToken(), 2);
+
+        assertTrue(first.hasMore());
+        assertTrue(second.hasMore());
+        assertFalse(third.hasMore());
+        assertEquals(List.of("CF1", "CF2", "CF3", "CF4", "CF5"), Stream.of(first, second, third)
+                .flatMap(page -> page.devices().stream())
+                .map(Device::getSerialNumber)
+                .toList());
+    }
+
+    @Test
+    void pendingChangesStayHiddenUntilSequenced() {
+        String token = currentToken();
+        deviceService.addAnonymousDevice(new DeviceCreateVO("CF1", LocalDate.now()));
+
+        assertTrue(changeFeedService.changesSince(token, 100).devices().isEmpty());
+
+        changeFeedService.sequencePending();
+        assertEquals(List.of("CF1"), changeFeedService.changesSince(token, 100).devices().stream()
+                .map(Device::getSerialNumber).toList());
+    }
+
+    @Test
+    void deletedPassportsLeaveATombstone() {
+        String token = currentToken();
+
+        passportService.delete(passport.getId());
+        changeFeedService.sequencePending();
+
+        assertEquals(List.of(passport.getId()), changeFeedService.changesSince(token, 100).deletedPassports());
+    }
+
+    @Test
+    void fullSyncIncludesPassports() {
+        changeFeedService.sequencePending();
+        DeviceChangesVO changes = changeFeedService.changesSince(null, ChangeFeedService.MAX_LIMIT);
+
+        assertTrue(changes.passports().stream().anyMatch(p -> p.getId().equals(passport.getId())));
+    }
+
+    @Test
+    void rejectsBadTokensAndLimits() {
+        CustomException invalid = assertThrows(CustomException.class, () -> changeFeedService.changesSince("abc", 10));
+        assertEquals(ErrorCode.Validation, invalid.getErrorCode());
+        assertThrows(CustomException.class, () -> changeFeedService.changesSince(null, ChangeFeedService.MAX_LIMIT + 1));
+    }
+
+    private String currentToken() {
+        changeFeedService.sequencePending();
+        return String.valueOf(jdbcTemplate.queryForObject("select max(change_seq) from (" +
+                "select change_seq from devices union all select change_seq from passports union all " +
+                "select change_seq from device_tombstones union all select change_seq from passport_tombstones) seqs", Long.class));
+    }
+}
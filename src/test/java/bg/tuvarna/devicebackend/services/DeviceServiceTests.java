@@ -7,6 +7,7 @@ import bg.tuvarna.devicebackend.models.dtos.DeviceUpdateVO;
 import bg.tuvarna.devicebackend.models.entities.Device;
 import bg.tuvarna.devicebackend.models.entities.Passport;
 import bg.tuvarna.devicebackend.models.entities.User;
+import bg.tuvarna.devicebackend.models.enums.TotalCountMode;
 import bg.tuvarna.devicebackend.repositories.DeviceRepository;
 import bg.tuvarna.devicebackend.utils.CustomPage;
 import org.junit.jupiter.api.Assertions;
@@ -14,10 +15,14 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.SliceImpl;
 
 import java.time.LocalDate;
 import java.util.ArrayList;
@@ -38,6 +43,12 @@ public class DeviceServiceTests {
 
     @Autowired
     private DeviceService deviceService;
+    @Autowired
+    private DeviceSerialFilter deviceSerialFilter;
+    @Autowired
+    private ChangeFeedService changeFeedService;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
 
     @Test
     public void testRegisterDeviceSuccess(){
@@ -115,7 +126,7 @@ public class DeviceServiceTests {
         Device device = new Device();
         device.setSerialNumber("abc");
 
-        when(deviceRepository.existsById("abc")).thenReturn(true);
+        deviceSerialFilter.add("abc");
         when(deviceRepository.findById("abc")).thenReturn(Optional.of(device));
 
         Device result = deviceService.isDeviceExists("abc");
@@ -123,6 +134,49 @@ public class DeviceServiceTests {
         Assertions.assertEquals("abc", result.getSerialNumber());
     }
 
+    @Test
+    public void testIsDeviceExistsAnswersNegativesWithoutQuery() {
+        CustomException ex = assertThrows(CustomException.class, () -> deviceService.isDeviceExists("never-registered"));
+        Assertions.assertEquals(ErrorCode.NotRegistered, ex.getErrorCode());
+
+        verify(deviceRepository, never()).findById("never-registered");
+        verify(deviceRepository, never()).existsById("never-registered");
+    }
+
+    @Test
+    public void testIsDeviceExistsThrowsOnFalsePositive() {
+        deviceSerialFilter.add("deleted");
+        when(deviceRepository.findById("deleted")).thenReturn(Optional.empty());
+
+        CustomException ex = assertThrows(CustomException.class, () -> deviceService.isDeviceExists("deleted"));
+        Assertions.assertEquals(ErrorCode.NotRegistered, ex.getErrorCode());
+    }
+
+    @Test
+    public void testFilterPicksUpDevicesRegisteredOnOtherInstances() {
+        jdbcTemplate.update("insert into devices (serial_number, version) values ('OTHER-NODE', 0)");
+        try {
+            changeFeedService.sequencePending();
+            deviceSerialFilter.sync();
+
+            Assertions.assertTrue(deviceSerialFilter.mightContain("OTHER-NODE"));
+        } finally {
+            jdbcTemplate.update("delete from devices where serial_number = 'OTHER-NODE'");
+        }
+    }
+
+    @Test
+    public void testRegisteredDeviceIsAddedToFilter() {
+        Passport passport = new Passport();
+        passport.setWarrantyMonths(12);
+        when(passportService.findPassportBySerialId("NEW-SN")).thenReturn(passport);
+        when(deviceRepository.save(any(Device.class))).thenAnswer(inv -> inv.getArgument(0));
+
+        deviceService.registerDevice("NEW-SN", LocalDate.now(), new User());
+
+        Assertions.assertTrue(deviceSerialFilter.mightContain("NEW-SN"));
+    }
+
     @Test
     public void testAlreadyExistThrowsWhenFound() {
         Device existing = new Device();
@@ -229,14 +283,21 @@ public class DeviceServiceTests {
     }
 
     @Test
-    public void testDeleteDeviceFailureCatchesRuntime() {
-        doThrow(new RuntimeException("fk")).when(deviceRepository).deleteBySerialNumber("SN");
+    public void testDeleteDeviceFailureCatchesIntegrityViolation() {
+        doThrow(new DataIntegrityViolationException("fk")).when(deviceRepository).deleteBySerialNumber("SN");
 
         CustomException ex = assertThrows(CustomException.class, () -> deviceService.deleteDevice("SN"));
         Assertions.assertEquals("Cannot delete device: renovations exist", ex.getMessage());
         Assertions.assertEquals(ErrorCode.Failed, ex.getErrorCode());
     }
 
+    @Test
+    public void testDeleteDeviceDoesNotMaskLockFailures() {
+        doThrow(new CannotAcquireLockException("deadlock")).when(deviceRepository).deleteBySerialNumber("SN");
+
+        assertThrows(CannotAcquireLockException.class, () -> deviceService.deleteDevice("SN"));
+    }
+
     @Test
     public void testAddAnonymousDeviceSuccess() {
         Passport passport = new Passport();
@@ -304,4 +365,57 @@ public class DeviceServiceTests {
         verify(deviceRepository, never()).getAllDevices(any(PageRequest.class));
         verify(deviceRepository).findAll(eq("ABC"), any(PageRequest.class));
     }
+
+    @Test
+    public void testGetDevicesWithoutTotalSkipsCount() {
+        Device d = new Device();
+        d.setSerialNumber("D1");
+
+        when(deviceRepository.getAllDevicesSlice(any(PageRequest.class)))
+                .thenReturn(new SliceImpl<>(List.of(d), PageRequest.of(0, 1), true));
+
+        CustomPage<Device> result = deviceService.getDevices(null, 1, 1, TotalCountMode.NONE);
+
+        Assertions.assertEquals(1, result.getItems().size());
+        Assertions.assertTrue(result.isHasNext());
+        Assertions.assertFalse(result.isTotalExact());
+        Assertions.assertEquals(-1, result.getTotalItems());
+
+        verify(deviceRepository, never()).getAllDevices(any(PageRequest.class));
+        verify(deviceRepository, never()).count();
+    }
+
+    @Test
+    public void testGetDevicesLastSliceHasExactTotal() {
+        Device d = new Device();
+        d.setSerialNumber("LAST1");
+
+        when(deviceRepository.searchSlice(eq("LAST"), any(PageRequest.class)))
+                .thenReturn(new SliceImpl<>(List.of(d), PageRequest.of(2, 5), false));
+
+        CustomPage<Device> result = deviceService.getDevices("LAST", 3, 5, TotalCountMode.ESTIMATE);
+
+        Assertions.assertTrue(result.isTotalExact());
+        Assertions.assertEquals(11, result.getTotalItems());
+        Assertions.assertEquals(3, result.getTotalPages());
+        verify(deviceRepository, never()).countSearch(anyString());
+    }
+
+    @Test
+    public void testGetDevicesEstimateReusesCachedCount() {
+        Device d = new Device();
+        d.setSerialNumber("EST1");
+
+        when(deviceRepository.searchSlice(eq("EST"), any(PageRequest.class)))
+                .thenReturn(new SliceImpl<>(List.of(d), PageRequest.of(0, 1), true));
+        when(deviceRepository.countSearch("EST")).thenReturn(40L);
+
+        CustomPage<Device> first = deviceService.getDevices("EST", 1, 1, TotalCountMode.ESTIMATE);
+        CustomPage<Device> second = deviceService.getDevices("EST", 1, 1, TotalCountMode.ESTIMATE);
+
+        Assertions.assertEquals(40, first.getTotalItems());
+        Assertions.assertEquals(40, second.getTotalPages());
+        Assertions.assertFalse(second.isTotalExact());
+        verify(deviceRepository, times(1)).countSearch("EST");
+    }
 }
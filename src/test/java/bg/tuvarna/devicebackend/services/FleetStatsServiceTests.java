@@ -0,0 +1,133 @@
+package bg.tuvarna.devicebackend.services;
+
+import bg.tuvarna.devicebackend.models.dtos.DeviceCreateVO;
+import bg.tuvarna.devicebackend.models.dtos.DeviceUpdateVO;
+import bg.tuvarna.devicebackend.models.dtos.FleetStatsVO;
+import bg.tuvarna.devicebackend.models.dtos.PassportCreateVO;
+import bg.tuvarna.devicebackend.models.dtos.UserCreateVO;
+import bg.tuvarna.devicebackend.models.entities.Passport;
+import bg.tuvarna.devicebackend.repositories.DeviceRepository;
+import bg.tuvarna.devicebackend.repositories.PassportRepository;
+import bg.tuvarna.devicebackend.repositories.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDate;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@ActiveProfiles("test")
+public class FleetStatsServiceTests {
+    @Autowired private FleetStatsService fleetStatsService;
+    @Autowired private DeviceService deviceService;
+    @Autowired private UserService userService;
+    @Autowired private PassportService passportService;
+    @Autowired private DeviceRepository deviceRepository;
+    @Autowired private PassportRepository passportRepository;
+    @Autowired private UserRepository userRepository;
+    @Autowired private JdbcTemplate jdbcTemplate;
+
+    private Passport passport;
+
+    @BeforeEach
+    void setUp() {
+        tearDown();
+        fleetStatsService.reconcile();
+        passport = passportService.create(new PassportCreateVO("Fleet", "F1", "FL", 12, 1, 999));
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("delete from renovations");
+        deviceRepository.deleteAllInBatch();
+        passportRepository.deleteAllInBatch();
+        jdbcTemplate.update("delete from users where role <> 'ADMIN'");
+        jdbcTemplate.update("delete from fleet_counters");
+    }
+
+    @Test
+    void countsEveryWritePath() {
+        userService.register(new UserCreateVO(
+                "Fleet Owner", "Password1!", "fleet@example.com", "0888000111", "Varna",
+                LocalDate.now().minusMonths(1), "FL1"
+        ));
+        deviceService.addAnonymousDevice(new DeviceCreateVO("FL2", LocalDate.now().minusYears(5)));
+        deviceService.addAnonymousDevice(new DeviceCreateVO("FL3", LocalDate.now()));
+
+        FleetStatsVO stats = fleetStatsService.getStats();
+        assertEquals(3, stats.devices());
+        assertEquals(1, stats.registeredDevices());
+        assertEquals(2, stats.anonymousDevices());
+        assertEquals(2, stats.activeWarranties());
+        assertEquals(1, stats.expiredWarranties());
+        assertEquals(1, stats.users());
+        assertEquals(1, stats.passports());
+        assertEquals(Map.of(passport.getId(), 3L), stats.devicesPerPassport());
+
+        deviceService.updateDevice("FL3", new DeviceUpdateVO(LocalDate.now().minusYears(5), null));
+        deviceService.deleteDevice("FL2");
+
+        stats = fleetStatsService.getStats();
+        assertEquals(2, stats.devices());
+        assertEquals(1, stats.anonymousDevices());
+        assertEquals(1, stats.activeWarranties());
+        assertEquals(1, stats.expiredWarranties());
+        assertEquals(Map.of(passport.getId(), 2L), stats.devicesPerPassport());
+
+        fleetStatsService.reconcile();
+        assertEquals(stats, fleetStatsService.getStats());
+    }
+
+    @Test
+    void rollMovesWarrantiesThatEndedToExpired() {
+        deviceService.addAnonymousDevice(new DeviceCreateVO("FL1", LocalDate.now().minusMonths(12).plusDays(2)));
+        assertEquals(1, fleetStatsService.getStats().activeWarranties());
+
+        jdbcTemplate.update("update fleet_counters set amount = ? where name = 'warranty.as-of'",
+                LocalDate.now().minusDays(5).toEpochDay());
+        jdbcTemplate.update("update devices set warranty_expiration_date = ? where serial_number = 'FL1'",
+                LocalDate.now().minusDays(1));
+
+        assertEquals(1, fleetStatsService.rollWarranties());
+
+        FleetStatsVO stats = fleetStatsService.getStats();
+        assertEquals(0, stats.activeWarranties());
+        assertEquals(1, stats.expiredWarranties());
+        assertEquals(LocalDate.now(), stats.warrantyAsOf());
+        assertEquals(0, fleetStatsService.rollWarranties());
+    }
+
+    @Test
+    void reconcileAddsDriftWithoutOverwritingCounters() {
+        userService.register(new UserCreateVO(
+                "Fleet Drift", "Password1!", "drift@example.com", "0888000222", "Varna",
+                LocalDate.now().minusMonths(1), "FL1"
+        ));
+        jdbcTemplate.update("update fleet_counters set amount = amount + 5 where name = 'devices.total'");
+        jdbcTemplate.update("insert into fleet_counters (name, amount) values ('devices.passport.0', 0)");
+
+        assertEquals(1, fleetStatsService.reconcile());
+
+        FleetStatsVO stats = fleetStatsService.getStats();
+        assertEquals(1, stats.devices());
+        assertEquals(1, stats.users());
+        assertEquals(Map.of(passport.getId(), 1L), stats.devicesPerPassport());
+        assertEquals(0, fleetStatsService.reconcile());
+    }
+
+    @Test
+    void deletingPassportDropsItsCounter() {
+        passportService.delete(passport.getId());
+
+        FleetStatsVO stats = fleetStatsService.getStats();
+        assertEquals(0, stats.passports());
+        assertTrue(stats.devicesPerPassport().isEmpty());
+    }
+}
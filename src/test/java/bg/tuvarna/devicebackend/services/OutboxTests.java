@@ -0,0 +1,148 @@
+package bg.tuvarna.devicebackend.services;
+
+import bg.tuvarna.devicebackend.controllers.exceptions.CustomException;
+import bg.tuvarna.devicebackend.models.dtos.DeviceCreateVO;
+import bg.tuvarna.devicebackend.models.dtos.PassportCreateVO;
+import bg.tuvarna.devicebackend.repositories.DeviceRepository;
+import bg.tuvarna.devicebackend.repositories.OutboxRepository;
+import bg.tuvarna.devicebackend.repositories.PassportRepository;
+import bg.tuvarna.devicebackend.services.outbox.FileOutboxSink;
+import bg.tuvarna.devicebackend.services.outbox.OutboxMessage;
+import bg.tuvarna.devicebackend.services.outbox.OutboxRelay;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:outbox;DB_CLOSE_DELAY=-1",
+        "app.outbox.enabled=true",
+        "app.outbox.sink=webhook",
+        "app.outbox.relay-interval=PT1H"
+})
+@ActiveProfiles("test")
+public class OutboxTests {
+    private static final List<String> received = new CopyOnWriteArrayList<>();
+    private static volatile int responseStatus = 200;
+    private static final HttpServer webhook = startWebhook();
+
+    @Autowired
+    private DeviceService deviceService;
+    @Autowired
+    private PassportService passportService;
+    @Autowired
+    private OutboxRelay outboxRelay;
+    @Autowired
+    private OutboxRepository outboxRepository;
+    @Autowired
+    private DeviceRepository deviceRepository;
+    @Autowired
+    private PassportRepository passportRepository;
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @DynamicPropertySource
+    static void webhookUrl(DynamicPropertyRegistry registry) {
+        registry.add("app.outbox.webhook.url", () -> "http://localhost:" + webhook.getAddress().getPort() + "/events");
+    }
+
+    @BeforeEach
+    void setUp() {
+        passportService.create(new PassportCreateVO("Outbox", "O1", "OB", 12, 1, 1000));
+    }
+
+    @AfterEach
+    void tearDown() {
+        received.clear();
+        responseStatus = 200;
+        deviceRepository.deleteAll();
+        passportRepository.deleteAll();
+        outboxRepository.deleteAll(outboxRepository.findOldest(Integer.MAX_VALUE));
+    }
+
+    @AfterAll
+    static void stopWebhook() {
+        webhook.stop(0);
+    }
+
+    @Test
+    void registrationIsRelayedToWebhook() {
+        deviceService.addAnonymousDevice(new DeviceCreateVO("OB10", LocalDate.of(2024, 1, 1)));
+        assertEquals(1, outboxRepository.count());
+
+        assertEquals(1, outboxRelay.drain());
+
+        assertEquals(1, received.size());
+        assertTrue(received.getFirst().contains("\"type\":\"DeviceRegistered\""));
+        assertTrue(received.getFirst().contains("\"serialNumber\":\"OB10\""));
+        assertEquals(0, outboxRepository.count());
+    }
+
+    @Test
+    void rolledBackChangeLeavesNoEvent() {
+        assertThrows(CustomException.class,
+                () -> deviceService.addAnonymousDevice(new DeviceCreateVO("ZZ10", LocalDate.of(2024, 1, 1))));
+
+        assertEquals(0, outboxRepository.count());
+    }
+
+    @Test
+    void failedDeliveryKeepsEvents() {
+        deviceService.addAnonymousDevice(new DeviceCreateVO("OB11", LocalDate.of(2024, 1, 1)));
+        responseStatus = 503;
+
+        assertEquals(0, outboxRelay.drain());
+        assertEquals(1, outboxRepository.count());
+    }
+
+    @Test
+    void fileSinkAppendsNdjson(@TempDir Path directory) throws IOException {
+        Path file = directory.resolve("events.ndjson");
+        FileOutboxSink sink = new FileOutboxSink(objectMapper, file);
+
+        sink.deliver(List.of(new OutboxMessage(1, "DeviceDeleted", "A1", Instant.EPOCH, "{\"serialNumber\":\"A1\"}")));
+        sink.deliver(List.of(new OutboxMessage(2, "DeviceDeleted", "A2", Instant.EPOCH, "{\"serialNumber\":\"A2\"}")));
+
+        List<String> lines = Files.readAllLines(file);
+        assertEquals(2, lines.size());
+        assertEquals("A2", objectMapper.readTree(lines.get(1)).path("payload").path("serialNumber").asText());
+    }
+
+    private static HttpServer startWebhook() {
+        try {
+            HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+            server.createContext("/events", exchange -> {
+                String body = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+                if (responseStatus == 200) {
+                    received.addAll(body.lines().toList());
+                }
+                exchange.sendResponseHeaders(responseStatus, -1);
+                exchange.close();
+            });
+            server.start();
+            return server;
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
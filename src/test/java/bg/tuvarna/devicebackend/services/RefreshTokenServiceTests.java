@@ -0,0 +1,85 @@
+package bg.tuvarna.devicebackend.services;
+
+import bg.tuvarna.devicebackend.config.JwtService;
+import bg.tuvarna.devicebackend.controllers.exceptions.CustomException;
+import bg.tuvarna.devicebackend.models.dtos.AuthResponseDTO;
+import bg.tuvarna.devicebackend.models.entities.User;
+import bg.tuvarna.devicebackend.models.enums.UserRole;
+import bg.tuvarna.devicebackend.repositories.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@ActiveProfiles("test")
+public class RefreshTokenServiceTests {
+    @Autowired private RefreshTokenService refreshTokenService;
+    @Autowired private JwtService jwtService;
+    @Autowired private UserRepository userRepository;
+    @Autowired private JdbcTemplate jdbcTemplate;
+
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        tearDown();
+        user = userRepository.save(User.builder()
+                .fullName("Refresh")
+                .email("refresh@test.com")
+                .phone("+359888000111")
+                .password("hash")
+                .role(UserRole.USER)
+                .build());
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("delete from refresh_tokens");
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void refreshRotatesTheTokenAndStoresOnlyHashes() {
+        String first = refreshTokenService.issue(user.getId());
+
+        AuthResponseDTO renewed = refreshTokenService.refresh(first);
+
+        assertEquals(user.getId().toString(), jwtService.extractId(renewed.getToken()));
+        assertNotEquals(first, renewed.getRefreshToken());
+        assertNotNull(refreshTokenService.refresh(renewed.getRefreshToken()).getRefreshToken());
+        assertEquals(0, count("select count(*) from refresh_tokens where token_hash = ?", first));
+        assertEquals(3, count("select count(*) from refresh_tokens where user_id = ?", user.getId()));
+    }
+
+    @Test
+    void reusingARotatedTokenRevokesItsFamilyOnly() {
+        String first = refreshTokenService.issue(user.getId());
+        String otherLogin = refreshTokenService.issue(user.getId());
+        String second = refreshTokenService.refresh(first).getRefreshToken();
+
+        assertThrows(CustomException.class, () -> refreshTokenService.refresh(first));
+        assertThrows(CustomException.class, () -> refreshTokenService.refresh(second));
+        assertNotNull(refreshTokenService.refresh(otherLogin).getToken());
+    }
+
+    @Test
+    void revokeAllAndUnknownTokensAreRejected() {
+        String token = refreshTokenService.issue(user.getId());
+
+        refreshTokenService.revokeAll(user.getId());
+
+        assertThrows(CustomException.class, () -> refreshTokenService.refresh(token));
+        assertThrows(CustomException.class, () -> refreshTokenService.refresh("unknown"));
+    }
+
+    private long count(String sql, Object argument) {
+        Long count = jdbcTemplate.queryForObject(sql, Long.class, argument);
+        return count != null ? count : 0;
+    }
+}
@@ -2,22 +2,34 @@ package bg.tuvarna.devicebackend.services;
 
 import bg.tuvarna.devicebackend.controllers.exceptions.CustomException;
 import bg.tuvarna.devicebackend.controllers.exceptions.ErrorCode;
+import bg.tuvarna.devicebackend.models.dtos.RenovationBatchResultVO;
 import bg.tuvarna.devicebackend.models.dtos.RenovationCreateVO;
 import bg.tuvarna.devicebackend.models.entities.Device;
 import bg.tuvarna.devicebackend.models.entities.Renovation;
+import bg.tuvarna.devicebackend.models.enums.BatchItemStatus;
+import bg.tuvarna.devicebackend.models.events.RenovationAddedEvent;
+import bg.tuvarna.devicebackend.models.events.RenovationsAddedEvent;
 import bg.tuvarna.devicebackend.repositories.RenovationRepository;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.event.ApplicationEvents;
+import org.springframework.test.context.event.RecordApplicationEvents;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.Mockito.*;
 
 @SpringBootTest
+@RecordApplicationEvents
 public class RenovationServiceTests {
     @MockBean
     private RenovationRepository renovationRepository;
@@ -28,6 +40,9 @@ public class RenovationServiceTests {
     @Autowired
     private RenovationService renovationService;
 
+    @Autowired
+    private ApplicationEvents events;
+
     @Test
     public void testSaveSuccess() {
         Device device = new Device();
@@ -64,4 +79,80 @@ public class RenovationServiceTests {
 
         verify(renovationRepository, never()).save(any());
     }
+
+    @Test
+    public void testSaveBatchReportsPerItemOutcomes() {
+        List<RenovationCreateVO> items = List.of(
+                new RenovationCreateVO("SN1", "screen", LocalDate.of(2025, 1, 1)),
+                new RenovationCreateVO("SN2", "battery", LocalDate.of(2025, 1, 2)),
+                new RenovationCreateVO("SN1", "", LocalDate.of(2025, 1, 3))
+        );
+
+        when(deviceService.findRegisteredSerialNumbers(anyCollection())).thenReturn(Set.of("SN1"));
+
+        RenovationBatchResultVO result = renovationService.saveBatch(items);
+
+        assertEquals(1, result.created());
+        assertEquals(2, result.rejected());
+        assertEquals(BatchItemStatus.CREATED, result.items().get(0).status());
+        assertEquals(BatchItemStatus.NOT_REGISTERED, result.items().get(1).status());
+        assertEquals(BatchItemStatus.INVALID, result.items().get(2).status());
+        assertEquals(List.of("Description is required"), result.items().get(2).errors());
+
+        verify(deviceService, times(1)).findRegisteredSerialNumbers(anyCollection());
+        verify(deviceService, never()).isDeviceExists(any());
+        verify(renovationRepository).batchInsert(argThat(list -> list.size() == 1));
+    }
+
+    @Test
+    public void testSaveBatchPublishesOneEvent() {
+        List<RenovationCreateVO> items = List.of(
+                new RenovationCreateVO("SN1", "screen", LocalDate.of(2025, 1, 3)),
+                new RenovationCreateVO("SN2", "battery", LocalDate.of(2025, 1, 1)),
+                new RenovationCreateVO("SN1", "keyboard", LocalDate.of(2025, 1, 2))
+        );
+
+        when(deviceService.findRegisteredSerialNumbers(anyCollection())).thenReturn(Set.of("SN1", "SN2"));
+
+        renovationService.saveBatch(items);
+
+        List<RenovationsAddedEvent> published = events.stream(RenovationsAddedEvent.class).toList();
+        assertEquals(1, published.size());
+        assertEquals(3, published.getFirst().renovations());
+        assertEquals(2, published.getFirst().devices());
+        assertEquals(LocalDate.of(2025, 1, 1), published.getFirst().firstRenovationDate());
+        assertEquals(LocalDate.of(2025, 1, 3), published.getFirst().lastRenovationDate());
+        assertEquals(0, events.stream(RenovationAddedEvent.class).count());
+    }
+
+    @Test
+    public void testSaveBatchSkipsInsertWhenNothingValid() {
+        List<RenovationCreateVO> items = List.of(new RenovationCreateVO("", "desc", null));
+
+        RenovationBatchResultVO result = renovationService.saveBatch(items);
+
+        assertEquals(0, result.created());
+        verify(deviceService, never()).findRegisteredSerialNumbers(anyCollection());
+        verify(renovationRepository, never()).batchInsert(anyList());
+    }
+
+    @Test
+    public void testSaveBatchRejectsOversizedBatch() {
+        List<RenovationCreateVO> items = new ArrayList<>();
+        for (int i = 0; i <= RenovationService.MAX_BATCH_SIZE; i++) {
+            items.add(new RenovationCreateVO("SN" + i, "desc", LocalDate.now()));
+        }
+
+        CustomException ex = assertThrows(CustomException.class, () -> renovationService.saveBatch(items));
+        assertEquals(ErrorCode.Validation, ex.getErrorCode());
+    }
+
+    @Test
+    void getRenovationsRejectsInvertedRange() {
+        CustomException ex = assertThrows(CustomException.class, () -> renovationService.getRenovations(
+                LocalDate.of(2025, 5, 1), LocalDate.of(2025, 4, 1), null, 1, 10
+        ));
+        assertEquals(ErrorCode.Validation, ex.getErrorCode());
+        verifyNoInteractions(renovationRepository);
+    }
 }
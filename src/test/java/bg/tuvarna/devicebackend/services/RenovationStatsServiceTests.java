@@ -0,0 +1,107 @@
+package bg.tuvarna.devicebackend.services;
+
+import bg.tuvarna.devicebackend.controllers.exceptions.CustomException;
+import bg.tuvarna.devicebackend.controllers.exceptions.ErrorCode;
+import bg.tuvarna.devicebackend.models.dtos.DeviceCreateVO;
+import bg.tuvarna.devicebackend.models.dtos.RenovationCreateVO;
+import bg.tuvarna.devicebackend.models.dtos.RenovationStatsVO;
+import bg.tuvarna.devicebackend.models.entities.Passport;
+import bg.tuvarna.devicebackend.repositories.DeviceRepository;
+import bg.tuvarna.devicebackend.repositories.PassportRepository;
+import bg.tuvarna.devicebackend.repositories.RenovationRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@ActiveProfiles("test")
+public class RenovationStatsServiceTests {
+    private static final YearMonth MARCH = YearMonth.of(2025, 3);
+
+    @Autowired private RenovationStatsService renovationStatsService;
+    @Autowired private RenovationService renovationService;
+    @Autowired private DeviceService deviceService;
+    @Autowired private DeviceRepository deviceRepository;
+    @Autowired private PassportRepository passportRepository;
+    @Autowired private RenovationRepository renovationRepository;
+    @Autowired private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        tearDown();
+        passportRepository.save(Passport.builder()
+                .name("Stats")
+                .model("S1")
+                .serialPrefix("ST")
+                .fromSerialNumber(1)
+                .toSerialNumber(999)
+                .warrantyMonths(12)
+                .build());
+    }
+
+    @AfterEach
+    void tearDown() {
+        renovationRepository.deleteAllInBatch();
+        deviceRepository.deleteAllInBatch();
+        passportRepository.deleteAllInBatch();
+        jdbcTemplate.update("delete from renovation_monthly_stats");
+        jdbcTemplate.update("delete from model_device_counts");
+    }
+
+    @Test
+    void countsRenovationsAndDevicesAsTheyAreWritten() {
+        deviceService.addAnonymousDevice(new DeviceCreateVO("ST1", LocalDate.of(2025, 1, 1)));
+        deviceService.addAnonymousDevice(new DeviceCreateVO("ST2", LocalDate.of(2025, 1, 1)));
+        renovationService.save(new RenovationCreateVO("ST1", "Fan", LocalDate.of(2025, 3, 5)));
+        renovationService.saveBatch(List.of(
+                new RenovationCreateVO("ST1", "Screen", LocalDate.of(2025, 3, 20)),
+                new RenovationCreateVO("ST2", "Battery", LocalDate.of(2025, 4, 1))
+        ));
+
+        List<RenovationStatsVO> report = renovationStatsService.getReport(MARCH, MARCH.plusMonths(1), null);
+
+        assertEquals(List.of(
+                new RenovationStatsVO("S1", MARCH, 2, 2, 1.0),
+                new RenovationStatsVO("S1", MARCH.plusMonths(1), 1, 2, 0.5)
+        ), report);
+        assertEquals(0, renovationStatsService.reconcile());
+
+        deviceService.addAnonymousDevice(new DeviceCreateVO("ST3", LocalDate.of(2025, 1, 1)));
+        assertEquals(3, renovationStatsService.getReport(MARCH, MARCH, "S1").getFirst().registeredDevices());
+        deviceService.deleteDevice("ST3");
+        assertEquals(2, renovationStatsService.getReport(MARCH, MARCH, "S1").getFirst().registeredDevices());
+    }
+
+    @Test
+    void reconcileCorrectsDrift() {
+        deviceService.addAnonymousDevice(new DeviceCreateVO("ST1", LocalDate.of(2025, 1, 1)));
+        renovationService.save(new RenovationCreateVO("ST1", "Fan", LocalDate.of(2025, 3, 5)));
+        jdbcTemplate.update("update renovation_monthly_stats set renovations = 7");
+        jdbcTemplate.update("insert into renovation_monthly_stats (model, month_start, renovations) values ('Gone', date '2024-01-01', 3)");
+        jdbcTemplate.update("delete from model_device_counts");
+
+        assertEquals(3, renovationStatsService.reconcile());
+
+        assertEquals(
+                List.of(new RenovationStatsVO("S1", MARCH, 1, 1, 1.0)),
+                renovationStatsService.getReport(YearMonth.of(2024, 1), MARCH, null)
+        );
+    }
+
+    @Test
+    void rejectsInvertedRange() {
+        CustomException ex = assertThrows(CustomException.class,
+                () -> renovationStatsService.getReport(MARCH, MARCH.minusMonths(1), null));
+        assertEquals(ErrorCode.Validation, ex.getErrorCode());
+    }
+}
@@ -0,0 +1,65 @@
+package bg.tuvarna.devicebackend.services;
+
+import bg.tuvarna.devicebackend.models.dtos.SlowQueryVO;
+import bg.tuvarna.devicebackend.repositories.DeviceRepository;
+import bg.tuvarna.devicebackend.services.diagnostics.SlowQueryLog;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@ActiveProfiles("test")
+@TestPropertySource(properties = "app.slow-queries.threshold=PT0S")
+public class SlowQueryLogTests {
+    @Autowired private SlowQueryLog slowQueryLog;
+    @Autowired private DeviceRepository deviceRepository;
+    @Autowired private MeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        slowQueryLog.clear();
+    }
+
+    @Test
+    void capturesRepositoryCallsWithSqlAndRedactedArguments() {
+        deviceRepository.findAll("someone@example.com", PageRequest.of(0, 5));
+
+        SlowQueryVO captured = slowQueryLog.recent().stream()
+                .filter(query -> query.method().equals("findAll"))
+                .findFirst()
+                .orElseThrow();
+
+        assertEquals("DeviceRepository", captured.repository());
+        assertEquals("<text, 19 chars>", captured.parameters().getFirst());
+        assertTrue(captured.parameters().getLast().contains("size 5"));
+        assertFalse(captured.sql().isEmpty());
+        assertTrue(captured.sql().getFirst().toLowerCase().contains("devices"));
+        assertNull(captured.plan());
+    }
+
+    @Test
+    void keepsNewestFirst() {
+        deviceRepository.count();
+        deviceRepository.existsById("X1");
+
+        assertEquals("existsById", slowQueryLog.recent().getFirst().method());
+        assertEquals("count", slowQueryLog.recent().get(1).method());
+    }
+
+    @Test
+    void recordsLatencyPerRepositoryMethod() {
+        deviceRepository.count();
+
+        assertNotNull(meterRegistry.find("spring.data.repository.invocations")
+                .tag("repository", "DeviceRepository")
+                .tag("method", "count")
+                .timer());
+    }
+}
@@ -2,12 +2,14 @@ package bg.tuvarna.devicebackend.services;
 
 import bg.tuvarna.devicebackend.controllers.exceptions.CustomException;
 import bg.tuvarna.devicebackend.controllers.exceptions.ErrorCode;
+import bg.tuvarna.devicebackend.models.dtos.AvailabilityVO;
 import bg.tuvarna.devicebackend.models.dtos.ChangePasswordVO;
 import bg.tuvarna.devicebackend.models.dtos.UserCreateVO;
 import bg.tuvarna.devicebackend.models.dtos.UserListing;
 import bg.tuvarna.devicebackend.models.dtos.UserUpdateVO;
 import bg.tuvarna.devicebackend.models.entities.Device;
 import bg.tuvarna.devicebackend.models.entities.User;
+import bg.tuvarna.devicebackend.models.enums.TotalCountMode;
 import bg.tuvarna.devicebackend.models.enums.UserRole;
 import bg.tuvarna.devicebackend.repositories.UserRepository;
 import bg.tuvarna.devicebackend.utils.CustomPage;
@@ -15,9 +17,11 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.security.crypto.password.PasswordEncoder;
 
 import java.time.LocalDate;
@@ -36,6 +40,10 @@ public class UserServiceTests {
     private PasswordEncoder passwordEncoder;
     @MockBean
     private DeviceService deviceService;
+    @MockBean
+    private UserAvailabilityIndex userAvailabilityIndex;
+    @MockBean
+    private RefreshTokenService refreshTokenService;
     @Autowired
     private UserService userService;
 
@@ -51,7 +59,7 @@ public class UserServiceTests {
                 "123451"
         );
 
-        when(userRepository.getByPhone("+123")).thenReturn(new User());
+        when(userRepository.existsByPhoneNormalized("+123")).thenReturn(true);
         CustomException ex = assertThrows(
                 CustomException.class,
                 () -> userService.register(userCreateVO)
@@ -70,8 +78,8 @@ public class UserServiceTests {
                 "123451"
         );
 
-        when(userRepository.getByPhone("+123")).thenReturn(null);
-        when(userRepository.getByEmail("Email")).thenReturn(null);
+        when(userRepository.existsByPhoneNormalized("+123")).thenReturn(false);
+        when(userRepository.existsByEmailNormalized("email")).thenReturn(false);
         when(passwordEncoder.encode("123")).thenReturn("encoded123");
         when(userRepository.save(org.mockito.ArgumentMatchers.any(User.class)))
                 .thenAnswer( i -> {
@@ -107,6 +115,7 @@ public class UserServiceTests {
         when(passwordEncoder.matches("abc", "abc")).thenReturn(true);
         when(passwordEncoder.encode("test")).thenReturn("encodedTest");
         assertDoesNotThrow(() -> userService.updatePassword(2L, new ChangePasswordVO("abc", "test")));
+        verify(refreshTokenService).revokeAll(2L);
     }
     @Test
     public void testUpdateAdminPassword() {
@@ -168,7 +177,7 @@ public class UserServiceTests {
                 .build();
         when(userRepository.findById(2L)).thenReturn(Optional.of(user1));
         when(userRepository.save(org.mockito.ArgumentMatchers.any(User.class))).thenReturn(user1);
-        when(userRepository.getByEmail("ivan@test.com")).thenReturn(user);
+        when(userRepository.existsByEmailNormalized("ivan@test.com")).thenReturn(true);
         CustomException ex = assertThrows(
                 CustomException.class,
                 () -> userService.updateUser(2L,new UserUpdateVO("petar","address2","+234","ivan@test.com"))
@@ -199,7 +208,7 @@ public class UserServiceTests {
                 .build();
         when(userRepository.findById(2L)).thenReturn(Optional.of(user1));
         when(userRepository.save(org.mockito.ArgumentMatchers.any(User.class))).thenReturn(user1);
-        when(userRepository.getByPhone("+222")).thenReturn(user);
+        when(userRepository.existsByPhoneNormalized("+222")).thenReturn(true);
         CustomException ex = assertThrows(
                 CustomException.class,
                 () -> userService.updateUser(2L,new UserUpdateVO("petar","address2","+222","petar@test.com"))
@@ -214,7 +223,7 @@ public class UserServiceTests {
                 LocalDate.now(), "123451"
         );
 
-        when(userRepository.getByEmail("Email")).thenReturn(new User());
+        when(userRepository.existsByEmailNormalized("email")).thenReturn(true);
 
         CustomException ex = assertThrows(CustomException.class, () -> userService.register(vo));
         assertEquals("Email already taken", ex.getMessage());
@@ -229,8 +238,8 @@ public class UserServiceTests {
                 "SN"
         );
 
-        when(userRepository.getByEmail("Email")).thenReturn(null);
-        when(userRepository.getByPhone("+123")).thenReturn(null);
+        when(userRepository.existsByEmailNormalized("email")).thenReturn(false);
+        when(userRepository.existsByPhoneNormalized("+123")).thenReturn(false);
         when(passwordEncoder.encode("123")).thenReturn("enc");
 
         User saved = User.builder().id(10L).build();
@@ -242,6 +251,21 @@ public class UserServiceTests {
         verify(deviceService, never()).registerDevice(anyString(), any(), any());
     }
 
+    @Test
+    public void testRegisterMapsNormalizedPhoneConflict() {
+        UserCreateVO vo = new UserCreateVO("Ivan", "123", "Email", "+123", "adress", null, null);
+
+        when(passwordEncoder.encode("123")).thenReturn("enc");
+        when(userRepository.saveAndFlush(any(User.class))).thenThrow(new DataIntegrityViolationException(
+                "could not execute statement",
+                new RuntimeException("Unique index or primary key violation: \"PUBLIC.UK_USERS_PHONE_NORMALIZED\"")
+        ));
+
+        CustomException ex = assertThrows(CustomException.class, () -> userService.register(vo));
+        assertEquals("Phone already taken", ex.getMessage());
+        assertEquals(ErrorCode.AlreadyExists, ex.getErrorCode());
+    }
+
     @Test
     public void testRegisterRollsBackWhenDeviceRegistrationFails() {
         UserCreateVO vo = new UserCreateVO(
@@ -250,8 +274,8 @@ public class UserServiceTests {
                 "SN1"
         );
 
-        when(userRepository.getByEmail("Email")).thenReturn(null);
-        when(userRepository.getByPhone("+123")).thenReturn(null);
+        when(userRepository.existsByEmailNormalized("email")).thenReturn(false);
+        when(userRepository.existsByPhoneNormalized("+123")).thenReturn(false);
         when(passwordEncoder.encode("123")).thenReturn("enc");
 
         User saved = User.builder().id(10L).email("Email").phone("+123").build();
@@ -264,7 +288,7 @@ public class UserServiceTests {
         CustomException ex = assertThrows(CustomException.class, () -> userService.register(vo));
         assertEquals("Invalid serial number", ex.getMessage());
 
-        verify(userRepository).delete(saved);
+        verify(userRepository, never()).delete(any(User.class));
     }
 
     @Test
@@ -322,4 +346,52 @@ public class UserServiceTests {
         verify(userRepository, never()).getAllUsers(any(PageRequest.class));
         assertEquals(1, result.getTotalItems());
     }
+
+    @Test
+    public void testGetUsersWithoutTotalUsesSlice() {
+        User u = User.builder()
+                .id(2L)
+                .fullName("Slice")
+                .role(UserRole.USER)
+                .devices(List.of())
+                .build();
+
+        when(userRepository.getAllUsersSlice(any(PageRequest.class)))
+                .thenReturn(new SliceImpl<>(List.of(u), PageRequest.of(0, 1), true));
+
+        CustomPage<UserListing> result = userService.getUsers(null, 1, 1, TotalCountMode.NONE);
+
+        assertEquals(1, result.getItems().size());
+        assertEquals(-1, result.getTotalItems());
+        assertFalse(result.isTotalExact());
+        verify(userRepository, never()).getAllUsers(any(PageRequest.class));
+        verify(userRepository, never()).countNonAdmins();
+    }
+
+    @Test
+    public void testCheckAvailabilityUsesLoadedIndex() {
+        when(userAvailabilityIndex.isLoaded()).thenReturn(true);
+        when(userAvailabilityIndex.containsEmail("taken@test.com")).thenReturn(true);
+
+        assertEquals(new AvailabilityVO(false, true), userService.checkAvailability("taken@test.com", "+359"));
+        verify(userRepository, never()).existsByEmailNormalized(any());
+        verify(userRepository, never()).existsByPhoneNormalized(any());
+    }
+
+    @Test
+    public void testEmailTakenFallsBackToDatabaseOnIndexMiss() {
+        when(userRepository.existsByEmailNormalized("other@test.com")).thenReturn(true);
+
+        assertTrue(userService.isEmailTaken("other@test.com"));
+        verify(userRepository, never()).getByEmail(any());
+    }
+
+    @Test
+    public void testFallbackQueriesUseTheNormalizedContacts() {
+        when(userRepository.existsByEmailNormalized("ivan@test.com")).thenReturn(true);
+        when(userRepository.existsByPhoneNormalized("+359888")).thenReturn(true);
+
+        assertTrue(userService.isEmailTaken(" Ivan@Test.com "));
+        assertTrue(userService.isPhoneTaken("+359 (888)"));
+    }
 }
@@ -0,0 +1,51 @@
+package bg.tuvarna.devicebackend.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PrefixIndexTests {
+    @Test
+    void findsTermsByCaseInsensitivePrefixOncePerOwner() {
+        PrefixIndex<String> index = new PrefixIndex<>(100, 64);
+        index.put("1", Map.of("Ivan Petrov", "ivan", "Ivan", "ivan", "ivan@example.com", "ivan"));
+        index.put("2", Map.of("Ivanka", "ivanka"));
+        index.put("3", Map.of("Maria", "maria"));
+
+        assertEquals(List.of("ivan", "ivanka"), index.search("IVA", 10));
+        assertEquals(List.of("ivan"), index.search("iva", 1));
+        assertEquals(List.of("maria"), index.search("  Mar", 10));
+        assertTrue(index.search("x", 10).isEmpty());
+        assertTrue(index.search("", 10).isEmpty());
+    }
+
+    @Test
+    void putReplacesAndRemoveDropsTheOwnersTerms() {
+        PrefixIndex<String> index = new PrefixIndex<>(100, 64);
+        index.put("1", Map.of("old@example.com", "old"));
+        index.put("1", Map.of("new@example.com", "new"));
+
+        assertTrue(index.search("old", 10).isEmpty());
+        assertEquals(List.of("new"), index.search("new", 10));
+        assertEquals(1, index.size());
+
+        index.remove("1");
+        assertTrue(index.search("new", 10).isEmpty());
+        assertEquals(0, index.size());
+    }
+
+    @Test
+    void staysWithinBounds() {
+        PrefixIndex<String> index = new PrefixIndex<>(2, 4);
+        assertEquals(0, index.put("1", Map.of("abcdefgh", "first")));
+        assertEquals(0, index.put("2", Map.of("abcz", "second")));
+        assertEquals(1, index.put("3", Map.of("abcy", "third")));
+
+        assertEquals(2, index.size());
+        assertEquals(List.of("first"), index.search("abcd", 10));
+        assertTrue(index.search("abcde", 10).isEmpty());
+    }
+}
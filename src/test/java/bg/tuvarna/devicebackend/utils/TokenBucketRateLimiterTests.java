@@ -0,0 +1,93 @@
+package bg.tuvarna.devicebackend.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TokenBucketRateLimiterTests {
+    private static final Duration MINUTE = Duration.ofMinutes(1);
+
+    private final AtomicLong clock = new AtomicLong(1_000_000_000_000L);
+    private final TokenBucketRateLimiter limiter = new TokenBucketRateLimiter(4, 1000, clock::get);
+
+    @Test
+    void allowsBurstThenRejects() {
+        for (int i = 0; i < 3; i++) {
+            TokenBucketRateLimiter.Decision decision = limiter.tryAcquire("a", 3, MINUTE);
+            assertTrue(decision.allowed());
+            assertEquals(2 - i, decision.remaining());
+        }
+
+        TokenBucketRateLimiter.Decision rejected = limiter.tryAcquire("a", 3, MINUTE);
+        assertFalse(rejected.allowed());
+        assertEquals(0, rejected.remaining());
+        assertEquals(20, rejected.retryAfterSeconds());
+    }
+
+    @Test
+    void refillsOverTime() {
+        for (int i = 0; i < 3; i++) {
+            limiter.tryAcquire("a", 3, MINUTE);
+        }
+
+        clock.addAndGet(Duration.ofSeconds(20).toNanos());
+
+        assertTrue(limiter.tryAcquire("a", 3, MINUTE).allowed());
+        assertFalse(limiter.tryAcquire("a", 3, MINUTE).allowed());
+    }
+
+    @Test
+    void clientsHaveSeparateBuckets() {
+        limiter.tryAcquire("a", 1, MINUTE);
+
+        assertFalse(limiter.tryAcquire("a", 1, MINUTE).allowed());
+        assertTrue(limiter.tryAcquire("b", 1, MINUTE).allowed());
+    }
+
+    @Test
+    void evictsOnlyRefilledBuckets() {
+        limiter.tryAcquire("a", 3, MINUTE);
+        clock.addAndGet(Duration.ofSeconds(30).toNanos());
+        limiter.tryAcquire("b", 3, MINUTE);
+
+        limiter.evictIdle();
+
+        assertEquals(1, limiter.size());
+    }
+
+    @Test
+    void rejectsNonPositiveCapacity() {
+        assertThrows(IllegalArgumentException.class, () -> limiter.tryAcquire("a", 0, MINUTE));
+    }
+
+    @Test
+    void evictsTheBucketsNearestToFullWhenAStripeIsFull() {
+        TokenBucketRateLimiter single = new TokenBucketRateLimiter(1, 8, clock::get);
+        for (int i = 0; i < 3; i++) {
+            single.tryAcquire("busy", 3, MINUTE);
+        }
+        for (int i = 0; i < 7; i++) {
+            clock.addAndGet(1);
+            single.tryAcquire("client-" + i, 3, MINUTE);
+        }
+
+        single.tryAcquire("new", 3, MINUTE);
+
+        assertFalse(single.tryAcquire("busy", 3, MINUTE).allowed());
+        assertTrue(single.size() <= 8);
+    }
+
+    @Test
+    void staysWithinMaxBuckets() {
+        TokenBucketRateLimiter small = new TokenBucketRateLimiter(4, 40, clock::get);
+
+        for (int i = 0; i < 10_000; i++) {
+            small.tryAcquire("client-" + i, 5, MINUTE);
+        }
+
+        assertTrue(small.size() <= 40);
+    }
+}
@@ -0,0 +1,74 @@
+package bg.tuvarna.devicebackend.validators;
+
+import bg.tuvarna.devicebackend.models.dtos.PassportCreateVO;
+import bg.tuvarna.devicebackend.models.dtos.RenovationCreateVO;
+import bg.tuvarna.devicebackend.models.dtos.UserCreateVO;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+import jakarta.validation.ValidatorFactory;
+import jakarta.validation.constraints.Size;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RecordValidatorTests {
+    private static ValidatorFactory validatorFactory;
+    private static Validator beanValidator;
+
+    record SizedVO(@Size(max = 3) String name) {
+    }
+
+    @BeforeAll
+    static void setUp() {
+        validatorFactory = Validation.buildDefaultValidatorFactory();
+        beanValidator = validatorFactory.getValidator();
+    }
+
+    @AfterAll
+    static void tearDown() {
+        validatorFactory.close();
+    }
+
+    @Test
+    void reportsTheSameMessagesAsBeanValidation() {
+        RecordValidator<UserCreateVO> users = RecordValidator.of(UserCreateVO.class);
+        RecordValidator<PassportCreateVO> passports = RecordValidator.of(PassportCreateVO.class);
+        RecordValidator<RenovationCreateVO> renovations = RecordValidator.of(RenovationCreateVO.class);
+
+        for (UserCreateVO user : List.of(
+                new UserCreateVO("Gosho", "Az$um_GOSHO123", "gosho@abv.bg", "0888", null, null, null),
+                new UserCreateVO(" ", "", "", null, null, null, null),
+                new UserCreateVO(null, "weak", "gosho@abv", "0888", null, null, null),
+                new UserCreateVO(null, null, null, null, null, null, null)
+        )) {
+            assertEquals(beanValidation(user), users.validate(user), user.toString());
+            assertEquals(beanValidation(user).isEmpty(), users.isValid(user));
+        }
+
+        for (PassportCreateVO passport : List.of(
+                new PassportCreateVO("Washer", "W1", "WS", 24, 1, 100),
+                new PassportCreateVO("", null, "WS", -1, null, -5)
+        )) {
+            assertEquals(beanValidation(passport), passports.validate(passport), passport.toString());
+        }
+
+        RenovationCreateVO renovation = new RenovationCreateVO("", null, null);
+        assertEquals(beanValidation(renovation), renovations.validate(renovation));
+        assertTrue(renovations.validate(new RenovationCreateVO("S1", "Fixed", LocalDate.now())).isEmpty());
+    }
+
+    @Test
+    void rejectsUnsupportedConstraints() {
+        assertThrows(IllegalArgumentException.class, () -> RecordValidator.of(SizedVO.class));
+    }
+
+    private static List<String> beanValidation(Object row) {
+        return beanValidator.validate(row).stream().map(ConstraintViolation::getMessage).sorted().toList();
+    }
+}
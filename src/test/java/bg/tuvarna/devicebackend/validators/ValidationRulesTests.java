@@ -0,0 +1,63 @@
+package bg.tuvarna.devicebackend.validators;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ValidationRulesTests {
+    private static final String EMAIL_REGEX = "^[A-Za-z0-9+_.-]+@[A-Za-z0-9.-]+\\.[A-Za-z]{2,}$";
+    private static final String PASSWORD_REGEX = "^(?=.*[0-9])(?=.*[a-z])(?=.*[A-Z])(?=\\S+$).{8,}$";
+
+    @Test
+    void emailMatchesTheRegex() {
+        List<String> samples = List.of(
+                "gosho@abv.bg", "a.b+c_d-e@sub.example.com", "x@y.co", "x@y.c", "@y.com", "x@.com", "x@y..com",
+                "x@y.com.", "x@@y.com", "x@y_z.com", "x_y@z.com", "x@y.c0m", "x@y.com\n", "x y@z.com", "",
+                "x@y-.com", "x@y.abc1", "x.@y.com", "x@y.", "x@yc", "ä@y.com", "x@y.comä"
+        );
+        for (String sample : samples) {
+            assertEquals(sample.matches(EMAIL_REGEX), ValidationRules.isValidEmail(sample), sample);
+        }
+    }
+
+    @Test
+    void passwordMatchesTheRegex() {
+        List<String> samples = List.of(
+                "Az$um_GOSHO123", "Abcdefg1", "Abcdef1", "abcdefg1", "ABCDEFG1", "Abcdefgh", "Abcd efg1",
+                "Abcdefg1\n", "Abcd\tefg1", "Abcdefg1 ", "Abcdefg1 ", "Ab1😀😀😀",
+                "Ab1😀😀😀xy", "", "Пароль1Aa"
+        );
+        for (String sample : samples) {
+            assertEquals(sample.matches(PASSWORD_REGEX), ValidationRules.isValidPassword(sample), sample);
+        }
+    }
+
+    @Test
+    void randomInputsMatchTheRegexes() {
+        String alphabet = "aZ9@.-+_ \n é";
+        Random random = new Random(42);
+        for (int i = 0; i < 20_000; i++) {
+            StringBuilder sample = new StringBuilder();
+            for (int length = random.nextInt(14); length > 0; length--) {
+                sample.append(alphabet.charAt(random.nextInt(alphabet.length())));
+            }
+            String value = sample.toString();
+            assertEquals(value.matches(EMAIL_REGEX), ValidationRules.isValidEmail(value), value);
+            assertEquals(value.matches(PASSWORD_REGEX), ValidationRules.isValidPassword(value), value);
+        }
+    }
+
+    @Test
+    void nullPassesFormatChecksButIsBlank() {
+        assertTrue(ValidationRules.isValidEmail(null));
+        assertTrue(ValidationRules.isValidPassword(null));
+        assertTrue(ValidationRules.isAtLeast(null, 0));
+        assertFalse(ValidationRules.isNotBlank(null));
+        assertFalse(ValidationRules.isNotBlank(" \t\n"));
+        assertTrue(ValidationRules.isNotBlank(" a "));
+        assertFalse(ValidationRules.isAtLeast(-1, 0));
+    }
+}